@@ -16,6 +16,9 @@ android {
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
     }
 
+    // MockContentResolver / MockContentProvider des tests instrumentés
+    useLibrary("android.test.mock")
+
     buildTypes {
         release {
             isMinifyEnabled = false
@@ -0,0 +1,247 @@
+package com.example.matonique.library;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.provider.MediaStore;
+import android.test.mock.MockContentProvider;
+import android.test.mock.MockContentResolver;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.matonique.database.TrackEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests de la lecture des métadonnées depuis MediaStore, avec un faux ContentProvider à la place du systeme.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MetadataProviderTest {
+
+    private FakeMediaStore mediaStore;
+    private MetadataProvider provider;
+    private File folder;
+
+    @Before
+    public void setUp() {
+        mediaStore = new FakeMediaStore();
+        MockContentResolver resolver = new MockContentResolver();
+        resolver.addProvider(MediaStore.AUTHORITY, mediaStore);
+        provider = new MetadataProvider(resolver);
+
+        folder = new File(InstrumentationRegistry.getInstrumentation().getTargetContext().getCacheDir(),
+                "metadata_provider_test");
+        assertTrue(folder.isDirectory() || folder.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        folder.delete();
+    }
+
+    @Test
+    public void mapsMediaStoreRowToTrack() throws IOException {
+        File file = writeMp3("rangee.mp3", "Titre du fichier", "Artiste du fichier");
+        Map<String, Object> row = row(file, 215000);
+        row.put(MediaStore.Audio.Media.TITLE, "Titre");
+        row.put(MediaStore.Audio.Media.ARTIST, "Artiste");
+        row.put(MediaStore.Audio.Media.ALBUM, MediaStore.UNKNOWN_STRING);
+        row.put(MediaStore.Audio.Media.YEAR, 2019);
+        row.put(MediaStore.Audio.Media.TRACK, 2003); // disque 2, piste 3
+        row.put(MediaStore.Audio.Media.COMPOSER, "Compositeur");
+        row.put(MediaStore.Audio.Media.GENRE, "Rock");
+        row.put(MediaStore.Audio.Media.AUTHOR, "Parolier");
+        row.put(MediaStore.Audio.Media.ALBUM_ARTIST, "Artiste de l'album");
+        mediaStore.rows.add(row);
+
+        TrackEntity track = provider.readAll(Arrays.asList(file)).get(file.getAbsolutePath());
+
+        assertNotNull(track);
+        assertEquals("Titre", track.getTitle());
+        assertEquals("Artiste", track.getArtist());
+        assertEquals("Unknown", track.getAlbum()); // "<unknown>" de MediaStore
+        assertEquals("2019", track.getYear());
+        assertEquals("3", track.getTrackNumber());
+        assertEquals("Compositeur", track.getComposer());
+        assertEquals(215000, track.getDurationMs());
+        assertEquals(file.length(), track.getFileSize());
+        assertEquals(file.lastModified(), track.getLastModified());
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            assertEquals("Rock", track.getGenre());
+            assertEquals("Parolier", track.getAuthor());
+            assertEquals("Artiste de l'album", track.getAlbumArtist());
+        } else {
+            // Android 10 : pas de colonnes GENRE, AUTHOR et ALBUM_ARTIST
+            assertEquals("Unknown", track.getGenre()); // pas de genre dans le faux MediaStore
+            assertEquals("Artiste du fichier", track.getAlbumArtist()); // relu dans le fichier
+        }
+    }
+
+    @Test
+    public void readsFileWhenRowIsMissing() throws IOException {
+        File file = writeMp3("absente.mp3", "Titre du fichier", "Artiste du fichier");
+
+        TrackEntity track = provider.readAll(Arrays.asList(file)).get(file.getAbsolutePath());
+
+        assertNotNull(track);
+        assertEquals("Titre du fichier", track.getTitle());
+        assertEquals("Artiste du fichier", track.getAlbumArtist());
+        assertTrue(track.getDurationMs() > 0);
+    }
+
+    @Test
+    public void readsFileWhenRowIsStaleOrIncomplete() throws IOException {
+        File stale = writeMp3("ancienne.mp3", "Titre récent", null);
+        Map<String, Object> staleRow = row(stale, 215000);
+        staleRow.put(MediaStore.Audio.Media.DATE_MODIFIED, stale.lastModified() / 1000 - 3600);
+        staleRow.put(MediaStore.Audio.Media.TITLE, "Titre d'avant");
+        mediaStore.rows.add(staleRow);
+
+        File incomplete = writeMp3("incomplete.mp3", "Titre complet", null);
+        Map<String, Object> incompleteRow = row(incomplete, 0); // pas encore analysée par le systeme
+        incompleteRow.put(MediaStore.Audio.Media.TITLE, "Titre partiel");
+        mediaStore.rows.add(incompleteRow);
+
+        Map<String, TrackEntity> tracks = provider.readAll(Arrays.asList(stale, incomplete));
+
+        assertEquals("Titre récent", tracks.get(stale.getAbsolutePath()).getTitle());
+        assertEquals("Titre complet", tracks.get(incomplete.getAbsolutePath()).getTitle());
+    }
+
+    @Test
+    public void skipsUnreadableFileWithoutRow() throws IOException {
+        File file = write("illisible.mp3", "pas un fichier audio".getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(provider.readAll(Arrays.asList(file)).isEmpty());
+    }
+
+    // -------- Faux MediaStore --------
+
+    // répond aux requetes "DATA IN (...)" avec les lignes dont le chemin est demandé
+    // les autres tables (genres d'Android 10) sont vides
+    private static class FakeMediaStore extends MockContentProvider {
+        final List<Map<String, Object>> rows = new ArrayList<>();
+
+        @Override
+        public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
+                            String sortOrder) {
+            MatrixCursor cursor = new MatrixCursor(projection);
+            if (!uri.equals(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI) || selectionArgs == null) {
+                return cursor;
+            }
+
+            List<String> paths = Arrays.asList(selectionArgs);
+            for (Map<String, Object> row : rows) {
+                if (!paths.contains(row.get(MediaStore.Audio.Media.DATA))) continue;
+                Object[] values = new Object[projection.length];
+                for (int i = 0; i < projection.length; i++) {
+                    values[i] = row.get(projection[i]);
+                }
+                cursor.addRow(values);
+            }
+            return cursor;
+        }
+
+        @Override
+        public Cursor query(Uri uri, String[] projection, Bundle queryArgs, CancellationSignal signal) {
+            if (queryArgs == null) {
+                return query(uri, projection, null, null, null);
+            }
+            return query(uri, projection,
+                    queryArgs.getString(ContentResolver.QUERY_ARG_SQL_SELECTION),
+                    queryArgs.getStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS),
+                    queryArgs.getString(ContentResolver.QUERY_ARG_SQL_SORT_ORDER));
+        }
+    }
+
+    // ligne complete par le scanner du systeme, plus récente que le fichier
+    private static Map<String, Object> row(File file, long durationMs) {
+        Map<String, Object> row = new HashMap<>();
+        row.put(MediaStore.Audio.Media._ID, (long) file.getName().hashCode());
+        row.put(MediaStore.Audio.Media.DATA, file.getAbsolutePath());
+        row.put(MediaStore.Audio.Media.DATE_MODIFIED, file.lastModified() / 1000 + 60);
+        row.put(MediaStore.Audio.Media.DURATION, durationMs);
+        return row;
+    }
+
+    // -------- Génération des fichiers --------
+
+    // mp3 avec un tag ID3v2.3 et 100 trames MPEG1 layer III de 417 octets (128 kbit/s, 44100 Hz)
+    private File writeMp3(String name, String title, String albumArtist) throws IOException {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        frames.write(id3Frame("TIT2", latin1Text(title)));
+        if (albumArtist != null) {
+            frames.write(id3Frame("TPE2", latin1Text(albumArtist)));
+        }
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write(new byte[]{'I', 'D', '3', 3, 0, 0});
+        file.write(syncSafe(frames.size()));
+        file.write(frames.toByteArray());
+
+        byte[] frame = new byte[417];
+        ByteBuffer.wrap(frame).putInt(0xFFFB9000);
+        for (int i = 0; i < 100; i++) {
+            file.write(frame);
+        }
+        return write(name, file.toByteArray());
+    }
+
+    private File write(String name, byte[] content) throws IOException {
+        File file = new File(folder, name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content);
+        }
+        return file;
+    }
+
+    private static byte[] id3Frame(String id, byte[] data) {
+        ByteBuffer frame = ByteBuffer.allocate(10 + data.length);
+        frame.put(id.getBytes(StandardCharsets.US_ASCII));
+        frame.putInt(data.length);
+        frame.putShort((short) 0);
+        frame.put(data);
+        return frame.array();
+    }
+
+    private static byte[] latin1Text(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] data = new byte[bytes.length + 1]; // encodage 0 : ISO-8859-1
+        System.arraycopy(bytes, 0, data, 1, bytes.length);
+        return data;
+    }
+
+    private static byte[] syncSafe(int value) {
+        return new byte[]{(byte) ((value >> 21) & 0x7F), (byte) ((value >> 14) & 0x7F),
+                (byte) ((value >> 7) & 0x7F), (byte) (value & 0x7F)};
+    }
+}
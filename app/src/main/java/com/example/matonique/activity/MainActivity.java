@@ -25,6 +25,7 @@ import com.example.matonique.fragments.MusicListFragment;
 import com.example.matonique.fragments.MusicPlayFragment;
 import com.example.matonique.fragments.PlaylistFragment;
 import com.example.matonique.fragments.SettingsFragment;
+import com.example.matonique.library.LibraryWatcher;
 import com.example.matonique.service.MusicPlayService;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 
@@ -68,6 +69,10 @@ public class MainActivity extends AppCompatActivity {
         BottomNavigationView bottomNav = findViewById(R.id.bottom_navigation);
         bottomNav.setOnItemSelectedListener(navListener);
 
+        // se lier au service des le démarrage : il restaure la derniere queue écoutée
+        // et les fragments (lecteur, paramètres) peuvent l'utiliser tout de suite
+        bindService(new Intent(this, MusicPlayService.class), connection, BIND_AUTO_CREATE);
+
         // Afficher le fragment d'accueil par défaut au démarrage
         if (savedInstanceState == null) {
             // verifier si on doit ouvrir le fragment MusicPlay (venant de la notification)
@@ -197,6 +202,13 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    // retour dans l'app : rattraper les changements de la bibliothèque que la surveillance a pu manquer
+    @Override
+    protected void onResume() {
+        super.onResume();
+        LibraryWatcher.getInstance(this).revalidate();
+    }
+
     public MusicPlayService getMusicService() {
         return musicService;
     }
@@ -1,5 +1,7 @@
 package com.example.matonique.adapter;
 
+import android.graphics.Bitmap;
+import android.util.LruCache;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -7,16 +9,38 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.matonique.R;
+import com.example.matonique.library.FileItemPager;
+import com.example.matonique.library.MetadataExecutor;
+import com.example.matonique.library.MusicLibrary;
 import com.example.matonique.model.FileItem;
+import com.example.matonique.model.Music;
+import com.example.matonique.utils.CoverCache;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Future;
 
 // Adapter pour afficher les fichiers et dossiers dans un RecyclerView
-public class FileExplorerAdapter extends RecyclerView.Adapter<FileExplorerAdapter.ViewHolder> {
+// chaque musique affiche son titre, son artiste, sa durée et la miniature de sa cover
+// les tags (index, ou fichier si pas encore indexé) puis la miniature (CoverCache) sont lus en arriere plan
+// sur la voie prioritaire de MetadataExecutor, la demande est liée à la ligne et annulée quand elle est recyclée :
+// un défilement rapide ne laisse pas de lectures inutiles dans la file
+// onBindViewHolder ne fait que des lectures en memoire
+// les listes sont données avec submitList : la différence avec la liste affichée est calculée
+// en arriere plan (DiffUtil) et seules les lignes ajoutées, retirées ou modifiées sont redessinées
+// pour un gros dossier ou une grosse playlist, submitPager affiche toutes les lignes tout de suite
+// et ne charge leur contenu que par pages, au moment où elles arrivent à l'écran
+public class FileExplorerAdapter extends ListAdapter<FileItem, FileExplorerAdapter.ViewHolder> {
 
     public interface OnItemClickListener {
         void onItemClick(FileItem item);
@@ -25,12 +49,42 @@ public class FileExplorerAdapter extends RecyclerView.Adapter<FileExplorerAdapte
         void onItemLongClick(FileItem item);
     }
 
-    private List<FileItem> items;
+    // meme element : meme chemin / contenu identique : meme nom et sous-titre affichés
+    private static final DiffUtil.ItemCallback<FileItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<FileItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull FileItem oldItem, @NonNull FileItem newItem) {
+            return oldItem.getPath().equals(newItem.getPath()) && oldItem.isDirectory() == newItem.isDirectory();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull FileItem oldItem, @NonNull FileItem newItem) {
+            return oldItem.getName().equals(newItem.getName())
+                    && Objects.equals(oldItem.getSubtitle(), newItem.getSubtitle());
+        }
+    };
+
     private OnItemClickListener listener;
 
-    public FileExplorerAdapter(List<FileItem> items, OnItemClickListener listener) {
-        this.items = items != null ? items : new ArrayList<>();
+    // ids stables des lignes de la liste affichée, calculés une fois par liste
+    private List<FileItem> idsList;
+    private long[] itemIds;
+
+    // mode pages : source des lignes et lignes deja chargées (null = pas encore chargée)
+    private FileItemPager pager;
+    private FileItem[] pagedItems;
+    private final Set<Integer> requestedPages = new HashSet<>();
+    private final List<Future<List<FileItem>>> pageRequests = new ArrayList<>();
+
+    // nombre max de musiques résolues gardées en memoire (les covers elles-memes sont dans CoverCache)
+    private static final int MAX_RESOLVED_TRACKS = 1000;
+
+    // musiques deja résolues (chemin -> tags), pour ne pas relire en revenant sur une ligne
+    private final LruCache<String, ResolvedTrack> resolvedTracks = new LruCache<>(MAX_RESOLVED_TRACKS);
+
+    public FileExplorerAdapter(OnItemClickListener listener) {
+        super(DIFF_CALLBACK);
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -41,13 +95,142 @@ public class FileExplorerAdapter extends RecyclerView.Adapter<FileExplorerAdapte
         return new ViewHolder(v);
     }
 
+    // afficher une liste complete (quitte le mode pages)
+    @Override
+    public void submitList(List<FileItem> list) {
+        submitList(list, null);
+    }
+
+    @Override
+    public void submitList(List<FileItem> list, Runnable commitCallback) {
+        if (pager != null) {
+            int count = pagedItems.length;
+            clearPager();
+            if (count > 0) notifyItemRangeRemoved(0, count);
+        }
+        super.submitList(list, commitCallback);
+    }
+
+    // afficher les lignes d'une source par pages
+    // si une source était deja affichée (meme vue rechargée), ses lignes restent affichées
+    // jusqu'au chargement de leur nouvelle page, et seules les lignes qui ont changé sont redessinées
+    public void submitPager(FileItemPager newPager) {
+        FileItem[] previous = pagedItems;
+        int oldCount = getItemCount();
+        if (pager == null && oldCount > 0) {
+            // on quitte le mode liste
+            super.submitList(null);
+            oldCount = 0;
+        }
+        clearPager();
+
+        pager = newPager;
+        pagedItems = new FileItem[newPager.getCount()];
+        if (previous != null) {
+            System.arraycopy(previous, 0, pagedItems, 0, Math.min(previous.length, pagedItems.length));
+        }
+
+        int newCount = pagedItems.length;
+        if (newCount > oldCount) {
+            notifyItemRangeInserted(oldCount, newCount - oldCount);
+        } else if (oldCount > newCount) {
+            notifyItemRangeRemoved(newCount, oldCount - newCount);
+        }
+        // les pages des lignes à l'écran sont redemandées au prochain affichage
+        if (Math.min(oldCount, newCount) > 0) {
+            notifyItemRangeChanged(0, Math.min(oldCount, newCount));
+        }
+    }
+
+    // ligne affichée à une position (null si sa page n'est pas encore chargée)
+    private FileItem getRow(int position) {
+        if (pager == null) {
+            return getItem(position);
+        }
+        requestPage(position / FileItemPager.PAGE_SIZE);
+        // la page suivante est demandée un peu avant d'y arriver
+        int ahead = position + FileItemPager.PAGE_SIZE / 2;
+        if (ahead < pagedItems.length) {
+            requestPage(ahead / FileItemPager.PAGE_SIZE);
+        }
+        return pagedItems[position];
+    }
+
+    // charger une page en arriere plan (une seule fois par source)
+    private void requestPage(int page) {
+        if (!requestedPages.add(page)) return;
+
+        FileItemPager source = pager;
+        int offset = page * FileItemPager.PAGE_SIZE;
+        int limit = Math.min(FileItemPager.PAGE_SIZE, pagedItems.length - offset);
+        pageRequests.add(MetadataExecutor.getInstance().submit(MetadataExecutor.LANE_VISIBLE, null,
+                () -> source.loadPage(offset, limit),
+                loaded -> onPageLoaded(source, page, offset, loaded)));
+    }
+
+    // page chargée : redessiner seulement les lignes qui ont changé
+    private void onPageLoaded(FileItemPager source, int page, int offset, List<FileItem> loaded) {
+        if (source != pager) return; // autre source affichée depuis
+        if (loaded == null) {
+            // erreur de lecture : on réessaiera au prochain affichage de la page
+            requestedPages.remove(page);
+            return;
+        }
+
+        int count = Math.min(loaded.size(), pagedItems.length - offset);
+        for (int i = 0; i < count; i++) {
+            FileItem old = pagedItems[offset + i];
+            FileItem item = loaded.get(i);
+            pagedItems[offset + i] = item;
+            if (old == null || !DIFF_CALLBACK.areItemsTheSame(old, item) || !DIFF_CALLBACK.areContentsTheSame(old, item)) {
+                notifyItemChanged(offset + i);
+            }
+        }
+    }
+
+    private void clearPager() {
+        for (Future<List<FileItem>> request : pageRequests) {
+            request.cancel(false);
+        }
+        pageRequests.clear();
+        requestedPages.clear();
+        pager = null;
+        pagedItems = null;
+    }
+
+    @Override
+    public int getItemCount() {
+        return pager != null ? pagedItems.length : super.getItemCount();
+    }
+
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        FileItem item = items.get(position);
+        FileItem item = getRow(position);
+        holder.cancelRequest();
+        if (item == null) {
+            // ligne pas encore chargée
+            holder.txtName.setText("");
+            showSubtitle(holder, null);
+            holder.imgIcon.setImageResource(R.drawable.music_file_icon);
+            holder.itemView.setOnClickListener(null);
+            holder.itemView.setOnLongClickListener(null);
+            return;
+        }
         holder.txtName.setText(item.getName());
-        holder.imgIcon.setImageResource(
-                item.isDirectory() ? R.drawable.folder_icon : R.drawable.music_file_icon
-        );
+        showSubtitle(holder, item.getSubtitle());
+
+        if (item.isDirectory()) {
+            holder.imgIcon.setImageResource(R.drawable.folder_icon);
+        } else {
+            holder.boundPath = item.getPath();
+            ResolvedTrack track = resolvedTracks.get(item.getPath());
+            if (track != null) {
+                showTrack(holder, item, track);
+            } else {
+                holder.imgIcon.setImageResource(R.drawable.music_file_icon);
+                requestTrack(holder, item);
+            }
+        }
 
         // click normal
         holder.itemView.setOnClickListener(v -> {
@@ -62,18 +245,160 @@ public class FileExplorerAdapter extends RecyclerView.Adapter<FileExplorerAdapte
     }
 
     @Override
-    public int getItemCount() {
-        return items != null ? items.size() : 0;
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        // la ligne sort de l'écran : sa lecture n'est plus utile
+        holder.cancelRequest();
+    }
+
+    // lire les tags d'une musique (depuis l'index, ou le fichier si pas encore indexée)
+    private void requestTrack(ViewHolder holder, FileItem item) {
+        String path = item.getPath();
+        MusicLibrary library = MusicLibrary.getInstance(holder.itemView.getContext());
+        holder.request = MetadataExecutor.getInstance().submit(MetadataExecutor.LANE_VISIBLE, path,
+                () -> library.getMusic(path),
+                music -> {
+                    if (music == null) return;
+                    ResolvedTrack track = new ResolvedTrack(music);
+                    resolvedTracks.put(path, track);
+                    // la ligne a pu etre réutilisée pour une autre musique
+                    if (path.equals(holder.boundPath)) {
+                        holder.request = null;
+                        showTrack(holder, item, track);
+                    }
+                });
+    }
+
+    // afficher une musique résolue : textes, puis la miniature si elle est deja en memoire
+    private void showTrack(ViewHolder holder, FileItem item, ResolvedTrack track) {
+        Music music = track.music;
+        if (item.getSubtitle() == null) {
+            // ligne lue sur le disque (pas l'index) : on remplace le nom du fichier par les tags
+            if (!"Unknown".equals(music.getTitle())) {
+                holder.txtName.setText(music.getTitle());
+            }
+            showSubtitle(holder, formatSubtitle(music));
+        }
+
+        CoverCache covers = CoverCache.getInstance(holder.itemView.getContext());
+        Bitmap cover = track.noCover ? null : covers.getFromMemory(music, CoverCache.CoverSize.LIST_ROW);
+        if (cover != null) {
+            holder.imgIcon.setImageBitmap(cover);
+            return;
+        }
+        holder.imgIcon.setImageResource(R.drawable.music_file_icon);
+        if (!track.noCover) {
+            requestCover(holder, track, covers);
+        }
+    }
+
+    // lire la miniature d'une musique (cache disque, ou extraction du fichier la premiere fois)
+    private void requestCover(ViewHolder holder, ResolvedTrack track, CoverCache covers) {
+        String path = track.music.getFilePath();
+        holder.request = MetadataExecutor.getInstance().submit(MetadataExecutor.LANE_VISIBLE, path,
+                () -> covers.getCover(track.music, CoverCache.CoverSize.LIST_ROW),
+                cover -> {
+                    if (cover == null) {
+                        // pas de cover intégrée : on garde l'icone sans redemander
+                        track.noCover = true;
+                        return;
+                    }
+                    if (path.equals(holder.boundPath)) {
+                        holder.request = null;
+                        holder.imgIcon.setImageBitmap(cover);
+                    }
+                });
+    }
+
+    private static void showSubtitle(ViewHolder holder, String subtitle) {
+        if (subtitle != null) {
+            holder.txtSubtitle.setText(subtitle);
+            holder.txtSubtitle.setVisibility(View.VISIBLE);
+        } else {
+            holder.txtSubtitle.setVisibility(View.GONE);
+        }
+    }
+
+    // "Artiste · 3:25"
+    private static String formatSubtitle(Music music) {
+        long seconds = music.getDurationMs() / 1000;
+        return music.getArtist() + " · " + String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    // id stable d'une ligne, dérivé de son chemin
+    // un meme chemin peut apparaitre plusieurs fois (playlist) : chaque occurence a son propre id
+    @Override
+    public long getItemId(int position) {
+        if (pager != null) {
+            // mode pages : la position sert d'id (elle ne change pas quand la page de la ligne est chargée)
+            return position;
+        }
+        List<FileItem> current = getCurrentList();
+        if (current != idsList) {
+            itemIds = computeItemIds(current);
+            idsList = current;
+        }
+        return itemIds[position];
+    }
+
+    private static long[] computeItemIds(List<FileItem> list) {
+        long[] ids = new long[list.size()];
+        Map<Long, Integer> occurrences = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            long id = hashPath(list.get(i).getPath());
+            Integer seen = occurrences.put(id, occurrences.getOrDefault(id, 0) + 1);
+            if (seen != null) {
+                // doublon : l'id dépend aussi du numéro d'occurence
+                id = hashPath(list.get(i).getPath() + "#" + seen);
+            }
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    // hash 64 bits (FNV-1a) : beaucoup moins de collisions que String.hashCode sur une grosse liste
+    private static long hashPath(String path) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < path.length(); i++) {
+            hash ^= path.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // musique résolue pour une ligne
+    // la cover n'est pas gardée ici : elle reste dans CoverCache qui limite la memoire utilisée
+    private static class ResolvedTrack {
+        final Music music;
+        // vrai si la musique n'a pas de cover intégrée
+        boolean noCover;
+
+        ResolvedTrack(Music music) {
+            this.music = music;
+        }
     }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
         ImageView imgIcon;
         TextView txtName;
+        TextView txtSubtitle;
+
+        // lecture en cours pour cette ligne (tags puis miniature)
+        String boundPath;
+        Future<?> request;
+
+        void cancelRequest() {
+            if (request != null) {
+                request.cancel(false);
+                request = null;
+            }
+            boundPath = null;
+        }
 
         ViewHolder(@NonNull View itemView) {
             super(itemView);
             imgIcon = itemView.findViewById(R.id.img_icon);
             txtName = itemView.findViewById(R.id.txt_name);
+            txtSubtitle = itemView.findViewById(R.id.txt_subtitle);
         }
     }
 }
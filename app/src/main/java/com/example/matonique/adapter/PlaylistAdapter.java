@@ -7,18 +7,32 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.matonique.R;
 import com.example.matonique.model.Playlist;
 
-import java.util.List;
-
 // Adapter pour afficher les playlists dans un RecyclerView
 // affiche le nom de la playlist et le nombre de musiques qu'elle contient
-public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.PlaylistViewHolder> {
+// comme FileExplorerAdapter, les listes sont comparées en arriere plan et seules les lignes modifiées sont redessinées
+public class PlaylistAdapter extends ListAdapter<Playlist, PlaylistAdapter.PlaylistViewHolder> {
+
+    // meme playlist : meme id en base / contenu identique : meme nom et meme nombre de musiques
+    private static final DiffUtil.ItemCallback<Playlist> DIFF_CALLBACK = new DiffUtil.ItemCallback<Playlist>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Playlist oldPlaylist, @NonNull Playlist newPlaylist) {
+            return oldPlaylist.getId() == newPlaylist.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Playlist oldPlaylist, @NonNull Playlist newPlaylist) {
+            return oldPlaylist.getName().equals(newPlaylist.getName())
+                    && oldPlaylist.getMusicCount() == newPlaylist.getMusicCount();
+        }
+    };
 
-    private final List<Playlist> playlists;
     private final OnPlaylistClickListener listener;
 
     // Interface pour gerer les clics sur une playlist
@@ -27,9 +41,10 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
         void onPlaylistLongClick(Playlist playlist); // pour suprimer une playlist
     }
 
-    public PlaylistAdapter(List<Playlist> playlists, OnPlaylistClickListener listener) {
-        this.playlists = playlists;
+    public PlaylistAdapter(OnPlaylistClickListener listener) {
+        super(DIFF_CALLBACK);
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -42,7 +57,7 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
 
     @Override
     public void onBindViewHolder(@NonNull PlaylistViewHolder holder, int position) {
-        Playlist playlist = playlists.get(position);
+        Playlist playlist = getItem(position);
 
         // afficher le nom de la playlist
         holder.txtName.setText(playlist.getName());
@@ -71,9 +86,10 @@ public class PlaylistAdapter extends RecyclerView.Adapter<PlaylistAdapter.Playli
         });
     }
 
+    // l'id de la playlist en base sert d'id stable
     @Override
-    public int getItemCount() {
-        return playlists.size();
+    public long getItemId(int position) {
+        return getItem(position).getId();
     }
 
     static class PlaylistViewHolder extends RecyclerView.ViewHolder {
@@ -0,0 +1,49 @@
+package com.example.matonique.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+// DAO pour acceder aux dossiers deja parcourus par le scanner
+@Dao
+public interface DirectoryDao {
+
+    // inserer ou remplacer un dossier (mise a jour de sa date de modification)
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(DirectoryEntity directory);
+
+    // recuperer un dossier par son chemin
+    @Query("SELECT * FROM directories WHERE path = :path")
+    DirectoryEntity getDirectory(String path);
+
+    // recuperer les sous-dossiers directs d'un dossier
+    @Query("SELECT * FROM directories WHERE parentPath = :parentPath ORDER BY path COLLATE NOCASE ASC")
+    List<DirectoryEntity> getChildDirectories(String parentPath);
+
+    // compter les sous-dossiers directs d'un dossier
+    @Query("SELECT COUNT(*) FROM directories WHERE parentPath = :parentPath")
+    int countChildDirectories(String parentPath);
+
+    // recuperer une page des sous-dossiers directs d'un dossier, dans l'ordre d'affichage
+    // limit = -1 pour tous les recuperer
+    @Query("SELECT * FROM directories WHERE parentPath = :parentPath ORDER BY sortKey, path LIMIT :limit OFFSET :offset")
+    List<DirectoryEntity> getChildDirectoriesPage(String parentPath, int limit, int offset);
+
+    // recuperer seulement les chemins des sous-dossiers directs d'un dossier, dans l'ordre d'affichage
+    @Query("SELECT path FROM directories WHERE parentPath = :parentPath ORDER BY sortKey, path")
+    List<String> getChildPaths(String parentPath);
+
+    // recuperer les chemins d'un dossier et de tous ses sous-dossiers, les plus courts (proches de la racine) d'abord
+    // prefix = chemin du dossier suivi de "/"
+    @Query("SELECT path FROM directories WHERE path = :path OR substr(path, 1, length(:prefix)) = :prefix "
+            + "ORDER BY length(path) ASC")
+    List<String> getPathsUnder(String path, String prefix);
+
+    // suprimer un dossier et tous ses sous-dossiers
+    // prefix = chemin du dossier suivi de "/"
+    @Query("DELETE FROM directories WHERE path = :path OR substr(path, 1, length(:prefix)) = :prefix")
+    void deleteTree(String path, String prefix);
+}
@@ -0,0 +1,70 @@
+package com.example.matonique.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+// Entité pour un dossier deja parcouru par le scanner de la bibliothèque
+// on garde la date de modification du dossier : si elle n'a pas changé,
+// la liste des fichiers du dossier est la meme et on n'a pas besoin de le relister
+@Entity(tableName = "directories", indices = {@Index(value = {"parentPath", "sortKey"})})
+public class DirectoryEntity {
+    // chemin absolu du dossier
+    @PrimaryKey
+    @NonNull
+    private String path;
+
+    // chemin du dossier parent (pour retrouver les sous-dossiers sans lister le disque)
+    private String parentPath;
+
+    // date de modification du dossier au moment du scan
+    private long lastModified;
+
+    // clé de tri du nom du dossier (voir DirectoryLister.sortKey)
+    private String sortKey;
+
+    public DirectoryEntity(@NonNull String path, String parentPath, long lastModified) {
+        this.path = path;
+        this.parentPath = parentPath;
+        this.lastModified = lastModified;
+    }
+
+    @NonNull
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(@NonNull String path) {
+        this.path = path;
+    }
+
+    public String getParentPath() {
+        return parentPath;
+    }
+
+    public void setParentPath(String parentPath) {
+        this.parentPath = parentPath;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public String getSortKey() {
+        return sortKey;
+    }
+
+    public void setSortKey(String sortKey) {
+        this.sortKey = sortKey;
+    }
+
+    // nom du dossier (dernier element du chemin)
+    public String getName() {
+        return new java.io.File(path).getName();
+    }
+}
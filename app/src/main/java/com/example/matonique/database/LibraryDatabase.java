@@ -0,0 +1,100 @@
+package com.example.matonique.database;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.room.Database;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+// Base de données Room de l'index des musiques (tracks, dossiers, recherche, groupes) et de la queue sauvegardée
+// séparée de PlaylistDatabase : tout ce qu'elle contient se reconstruit en rescannant la bibliothèque,
+// on peut donc la recréer à chaque changement de version sans perdre les playlists de l'utilisateur
+// (la queue sauvegardée est dans cette base car elle référence les musiques par leur id dans tracks)
+// singleton pour avoir qu'une seule instance dans toute l'app
+@Database(entities = {TrackEntity.class, DirectoryEntity.class, QueueItemEntity.class, TrackFtsEntity.class, TrackGroupEntity.class}, version = 4, exportSchema = false)
+public abstract class LibraryDatabase extends RoomDatabase {
+
+    private static LibraryDatabase instance;
+
+    // DAO de l'index des musiques
+    public abstract TrackDao trackDao();
+
+    // DAO des dossiers parcourus par le scanner de la bibliothèque
+    public abstract DirectoryDao directoryDao();
+
+    // DAO de la queue de lecture sauvegardée
+    public abstract QueueDao queueDao();
+
+    // DAO des groupes de musiques (artistes, albums, genres)
+    public abstract TrackGroupDao trackGroupDao();
+
+    // methode singleton pour recuperer l'instance de la base
+    public static synchronized LibraryDatabase getInstance(Context context) {
+        if (instance == null) {
+            instance = Room.databaseBuilder(
+                    context.getApplicationContext(),
+                    LibraryDatabase.class,
+                    "library_database"
+            )
+            .fallbackToDestructiveMigration() // l'index se reconstruit au prochain scan
+            .addCallback(new RoomDatabase.Callback() {
+                @Override
+                public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                    createTrackGroupTriggers(db);
+                }
+            })
+            .build();
+        }
+        return instance;
+    }
+
+    // -------- Triggers de track_groups --------
+    // chaque ajout / suppression / modification dans tracks met à jour le compteur et la durée
+    // de l'artiste, de l'album et du genre concernés (un groupe à 0 musique est supprimé)
+    // "IF NOT EXISTS" : on peut les créer à chaque ouverture, y compris apres une migration destructive
+
+    private static final String[] GROUP_COLUMNS = {"artist", "album", "genre"}; // indices = TrackGroupEntity.TYPE_*
+
+    private static void createTrackGroupTriggers(SupportSQLiteDatabase db) {
+        StringBuilder onInsert = new StringBuilder();
+        StringBuilder onDelete = new StringBuilder();
+        for (int type = 0; type < GROUP_COLUMNS.length; type++) {
+            onInsert.append(addToGroup(type, "NEW." + GROUP_COLUMNS[type], albumArtistOf(type, "NEW")));
+            onDelete.append(removeFromGroup(type, "OLD." + GROUP_COLUMNS[type], albumArtistOf(type, "OLD")));
+        }
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS track_groups_insert AFTER INSERT ON tracks BEGIN "
+                + onInsert + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS track_groups_delete AFTER DELETE ON tracks BEGIN "
+                + onDelete + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS track_groups_update "
+                + "AFTER UPDATE OF artist, album, albumArtist, genre, durationMs ON tracks BEGIN "
+                + onDelete + onInsert + "END");
+    }
+
+    // artiste de l'album d'une ligne (NEW ou OLD) : son tag d'artiste d'album, sinon son artiste
+    // (voir TrackDao.getTracksByAlbum), "" pour les groupes qui ne sont pas des albums
+    private static String albumArtistOf(int type, String row) {
+        if (type != TrackGroupEntity.TYPE_ALBUM) {
+            return "''";
+        }
+        return "COALESCE(NULLIF(" + row + ".albumArtist, ''), " + row + ".artist)";
+    }
+
+    private static String addToGroup(int type, String name, String albumArtist) {
+        String where = "WHERE type = " + type + " AND name = " + name + " AND albumArtist = " + albumArtist;
+        return "INSERT OR IGNORE INTO track_groups (type, name, albumArtist, trackCount, totalDurationMs) "
+                + "VALUES (" + type + ", " + name + ", " + albumArtist + ", 0, 0); "
+                + "UPDATE track_groups SET trackCount = trackCount + 1, totalDurationMs = totalDurationMs + NEW.durationMs "
+                + where + "; ";
+    }
+
+    private static String removeFromGroup(int type, String name, String albumArtist) {
+        String where = "WHERE type = " + type + " AND name = " + name + " AND albumArtist = " + albumArtist;
+        return "UPDATE track_groups SET trackCount = trackCount - 1, totalDurationMs = totalDurationMs - OLD.durationMs "
+                + where + "; "
+                + "DELETE FROM track_groups " + where + " AND trackCount <= 0; ";
+    }
+}
@@ -4,6 +4,7 @@ import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.Query;
+import androidx.room.Update;
 
 import java.util.List;
 
@@ -11,14 +12,38 @@ import java.util.List;
 @Dao
 public interface PlaylistDao {
 
-    // inserer une nouvelle playlist dans la base
+    // inserer une nouvelle playlist dans la base, retourne l'id généré
     @Insert
-    void insert(PlaylistEntity playlist);
+    long insert(PlaylistEntity playlist);
+
+    // mettre a jour une playlist (date du m3u apres un import...)
+    @Update
+    void update(PlaylistEntity playlist);
 
     // recuperer toutes les playlists enregistré
-    @Query("SELECT * FROM playlists ORDER BY name ASC")
+    @Query("SELECT * FROM playlists ORDER BY name COLLATE NOCASE ASC")
     List<PlaylistEntity> getAllPlaylists();
 
+    // recuperer toutes les playlists avec leur nombre de musiques, en une seule requete
+    @Query("SELECT p.id AS id, p.name AS name, p.filePath AS filePath, "
+            + "p.m3uLastModified AS m3uLastModified, p.m3uSize AS m3uSize, p.m3uWriteMode AS m3uWriteMode, "
+            + "COUNT(i.playlistId) AS musicCount "
+            + "FROM playlists p LEFT JOIN playlist_items i ON i.playlistId = p.id AND i.playable = 1 "
+            + "GROUP BY p.id ORDER BY p.name COLLATE NOCASE ASC")
+    List<PlaylistSummary> getPlaylistSummaries();
+
+    // changer l'autorisation de réécrire le m3u (PlaylistEntity.M3U_WRITE_*)
+    @Query("UPDATE playlists SET m3uWriteMode = :mode WHERE id = :playlistId")
+    void setM3uWriteMode(int playlistId, int mode);
+
+    // enregistrer la date et la taille du m3u (apres une écriture faite par l'app)
+    @Query("UPDATE playlists SET m3uLastModified = :lastModified, m3uSize = :size WHERE id = :playlistId")
+    void setM3uFileInfo(int playlistId, long lastModified, long size);
+
+    // changer les lignes de fin du m3u (sans toucher au reste de la playlist)
+    @Query("UPDATE playlists SET m3uTrailer = :trailer WHERE id = :playlistId")
+    void setM3uTrailer(int playlistId, String trailer);
+
     // recuperer une playlist par son ID
     @Query("SELECT * FROM playlists WHERE id = :playlistId")
     PlaylistEntity getPlaylistById(int playlistId);
@@ -2,13 +2,18 @@ package com.example.matonique.database;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 // Base de données Room pour sauvegarder les playlists
+// elle ne contient que des données de l'utilisateur : l'index des musiques est dans LibraryDatabase,
+// un changement de version ici doit toujours avoir sa migration
 // singleton pour avoir qu'une seule instance dans toute l'app
-@Database(entities = {PlaylistEntity.class}, version = 1, exportSchema = false)
+@Database(entities = {PlaylistEntity.class, PlaylistItemEntity.class}, version = 2, exportSchema = false)
 public abstract class PlaylistDatabase extends RoomDatabase {
 
     private static PlaylistDatabase instance;
@@ -16,6 +21,9 @@ public abstract class PlaylistDatabase extends RoomDatabase {
     // methode abstraite pour recuperer le DAO
     public abstract PlaylistDao playlistDao();
 
+    // DAO des musiques des playlists
+    public abstract PlaylistItemDao playlistItemDao();
+
     // methode singleton pour recuperer l'instance de la base
     public static synchronized PlaylistDatabase getInstance(Context context) {
         if (instance == null) {
@@ -24,10 +32,32 @@ public abstract class PlaylistDatabase extends RoomDatabase {
                     PlaylistDatabase.class,
                     "playlist_database"
             )
-            .fallbackToDestructiveMigration() // recreer la base si changement de version
+            // pas de fallbackToDestructiveMigration : une version sans migration doit planter
+            // plutot que d'effacer les playlists
+            .addMigrations(MIGRATION_1_2)
             .build();
         }
         return instance;
     }
-}
 
+    // -------- Migrations --------
+
+    // 1 -> 2 : contenu des playlists dans playlist_items, date et taille du m3u au dernier import,
+    // lignes du m3u gardées pour le réécrire sans rien perdre, autorisation de réécrire le m3u
+    // (demandée pour tous les m3u existants)
+    // les m3uLastModified à 0 font réimporter chaque m3u à la premiere lecture de la liste des playlists
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE playlists ADD COLUMN m3uLastModified INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE playlists ADD COLUMN m3uSize INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE playlists ADD COLUMN m3uHeader TEXT");
+            db.execSQL("ALTER TABLE playlists ADD COLUMN m3uTrailer TEXT");
+            db.execSQL("ALTER TABLE playlists ADD COLUMN m3uWriteMode INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("CREATE TABLE IF NOT EXISTS playlist_items (playlistId INTEGER NOT NULL, "
+                    + "position INTEGER NOT NULL, filePath TEXT, displayName TEXT, location TEXT, "
+                    + "extInf TEXT, extraLines TEXT, playable INTEGER NOT NULL DEFAULT 1, "
+                    + "PRIMARY KEY(playlistId, position))");
+        }
+    };
+}
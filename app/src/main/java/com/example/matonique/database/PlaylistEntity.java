@@ -4,9 +4,15 @@ import androidx.room.Entity;
 import androidx.room.PrimaryKey;
 
 // Entité pour sauvegarder les playlists dans la base de données
-// on sauvegarde seulement le chemin du fichier m3u
+// les musiques sont dans la table playlist_items, le fichier m3u n'est qu'un format d'import / export :
+// il n'est relu que si sa date ou sa taille a changé depuis le dernier import
 @Entity(tableName = "playlists")
 public class PlaylistEntity {
+    // l'app peut-elle réécrire le m3u apres une modification de la playlist ?
+    public static final int M3U_WRITE_ASK = 0;    // m3u importé : demander à l'utilisateur à la premiere modification
+    public static final int M3U_WRITE_ALWAYS = 1; // m3u créé par l'app, ou l'utilisateur a accepté
+    public static final int M3U_WRITE_NEVER = 2;  // les modifications restent dans l'app
+
     @PrimaryKey(autoGenerate = true)
     private int id;
 
@@ -16,6 +22,17 @@ public class PlaylistEntity {
     // nom de la playlist (extrait du nom du fichier)
     private String name;
 
+    // date et taille du fichier m3u au dernier import (ou à la derniere écriture faite par l'app)
+    private long m3uLastModified;
+    private long m3uSize;
+
+    // lignes du m3u avant la premiere musique (#EXTM3U...) et apres la derniere, null si aucune
+    private String m3uHeader;
+    private String m3uTrailer;
+
+    // M3U_WRITE_ASK, M3U_WRITE_ALWAYS ou M3U_WRITE_NEVER
+    private int m3uWriteMode;
+
     public PlaylistEntity(String filePath, String name) {
         this.filePath = filePath;
         this.name = name;
@@ -44,5 +61,44 @@ public class PlaylistEntity {
     public void setName(String name) {
         this.name = name;
     }
-}
 
+    public long getM3uLastModified() {
+        return m3uLastModified;
+    }
+
+    public void setM3uLastModified(long m3uLastModified) {
+        this.m3uLastModified = m3uLastModified;
+    }
+
+    public long getM3uSize() {
+        return m3uSize;
+    }
+
+    public void setM3uSize(long m3uSize) {
+        this.m3uSize = m3uSize;
+    }
+
+    public String getM3uHeader() {
+        return m3uHeader;
+    }
+
+    public void setM3uHeader(String m3uHeader) {
+        this.m3uHeader = m3uHeader;
+    }
+
+    public String getM3uTrailer() {
+        return m3uTrailer;
+    }
+
+    public void setM3uTrailer(String m3uTrailer) {
+        this.m3uTrailer = m3uTrailer;
+    }
+
+    public int getM3uWriteMode() {
+        return m3uWriteMode;
+    }
+
+    public void setM3uWriteMode(int m3uWriteMode) {
+        this.m3uWriteMode = m3uWriteMode;
+    }
+}
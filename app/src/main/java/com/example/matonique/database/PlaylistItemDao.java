@@ -0,0 +1,45 @@
+package com.example.matonique.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import androidx.room.Update;
+
+import java.util.List;
+
+// DAO pour les musiques des playlists
+@Dao
+public interface PlaylistItemDao {
+
+    // ajouter des musiques à une playlist
+    @Insert
+    void insertAll(List<PlaylistItemEntity> items);
+
+    // recuperer toutes les entrées d'une playlist, dans l'ordre (y compris celles que l'app ne sait pas lire)
+    @Query("SELECT * FROM playlist_items WHERE playlistId = :playlistId ORDER BY position ASC")
+    List<PlaylistItemEntity> getItems(int playlistId);
+
+    // recuperer les musiques lisibles d'une playlist, dans l'ordre
+    @Query("SELECT * FROM playlist_items WHERE playlistId = :playlistId AND playable = 1 ORDER BY position ASC")
+    List<PlaylistItemEntity> getPlayableItems(int playlistId);
+
+    // compter toutes les entrées d'une playlist
+    @Query("SELECT COUNT(*) FROM playlist_items WHERE playlistId = :playlistId")
+    int countItems(int playlistId);
+
+    // compter les musiques lisibles d'une playlist
+    @Query("SELECT COUNT(*) FROM playlist_items WHERE playlistId = :playlistId AND playable = 1")
+    int countPlayableItems(int playlistId);
+
+    // recuperer les entrées de toutes les playlists qui pointent vers un fichier
+    @Query("SELECT * FROM playlist_items WHERE filePath = :filePath")
+    List<PlaylistItemEntity> getItemsByPath(String filePath);
+
+    // mettre a jour une entrée
+    @Update
+    void update(PlaylistItemEntity item);
+
+    // vider une playlist
+    @Query("DELETE FROM playlist_items WHERE playlistId = :playlistId")
+    void deleteItems(int playlistId);
+}
@@ -0,0 +1,103 @@
+package com.example.matonique.database;
+
+import androidx.room.Entity;
+
+// Entité pour une musique d'une playlist
+// on garde le chemin de la musique (et pas son id dans l'index comme la queue) :
+// une playlist peut contenir des fichiers pas encore indexés, ou sur un stockage débranché
+// displayName : nom lu dans le #EXTINF du m3u importé (null si absent)
+// location, extInf et extraLines : lignes du m3u telles qu'elles étaient écrites, pour le réécrire à l'identique
+// (chemin relatif, durée du #EXTINF, commentaires) ; null pour une musique ajoutée depuis l'app
+// playable : faux pour une entrée que l'app ne sait pas lire (flux réseau, .ogg...) :
+// elle n'est pas affichée mais reste dans la playlist pour ne pas disparaitre du m3u
+@Entity(tableName = "playlist_items", primaryKeys = {"playlistId", "position"})
+public class PlaylistItemEntity {
+
+    // id de la playlist dans la table playlists
+    private int playlistId;
+
+    // position dans la playlist (0, 1, 2... sans trou)
+    private int position;
+
+    // chemin absolu de la musique (null pour un flux réseau)
+    private String filePath;
+
+    private String displayName;
+
+    private String location;
+    private String extInf;
+    private String extraLines;
+
+    private boolean playable = true;
+
+    public PlaylistItemEntity(int playlistId, int position, String filePath, String displayName) {
+        this.playlistId = playlistId;
+        this.position = position;
+        this.filePath = filePath;
+        this.displayName = displayName;
+    }
+
+    public int getPlaylistId() {
+        return playlistId;
+    }
+
+    public void setPlaylistId(int playlistId) {
+        this.playlistId = playlistId;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public void setDisplayName(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public String getExtInf() {
+        return extInf;
+    }
+
+    public void setExtInf(String extInf) {
+        this.extInf = extInf;
+    }
+
+    public String getExtraLines() {
+        return extraLines;
+    }
+
+    public void setExtraLines(String extraLines) {
+        this.extraLines = extraLines;
+    }
+
+    public boolean isPlayable() {
+        return playable;
+    }
+
+    public void setPlayable(boolean playable) {
+        this.playable = playable;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.matonique.database;
+
+// Résultat de la lecture de la liste des playlists : la playlist et son nombre de musiques
+// (compté en une seule requete dans playlist_items, sans les entrées que l'app ne sait pas lire)
+public class PlaylistSummary {
+    public int id;
+    public String name;
+    public String filePath;
+    public long m3uLastModified;
+    public long m3uSize;
+    public int m3uWriteMode;
+    public int musicCount;
+}
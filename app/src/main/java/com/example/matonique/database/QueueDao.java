@@ -0,0 +1,29 @@
+package com.example.matonique.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import java.util.List;
+
+// DAO pour la queue de lecture sauvegardée
+@Dao
+public interface QueueDao {
+
+    // ajouter les musiques de la queue
+    @Insert
+    void insertAll(List<QueueItemEntity> items);
+
+    // vider la queue sauvegardée
+    @Query("DELETE FROM queue_items")
+    void deleteAll();
+
+    // recuperer une liste de la queue avec les chemins des musiques, dans l'ordre
+    // chemin retrouvé dans l'index, ou gardé dans la ligne pour une musique qui n'était pas indexée
+    // les musiques qui ne sont plus dans l'index sont ignorées
+    @Query("SELECT q.position AS position, COALESCE(t.filePath, q.filePath) AS filePath FROM queue_items q " +
+            "LEFT JOIN tracks t ON t.id = q.trackId " +
+            "WHERE q.listType = :listType AND (t.id IS NOT NULL OR q.filePath IS NOT NULL) " +
+            "ORDER BY q.position ASC")
+    List<QueueItemPath> getItems(int listType);
+}
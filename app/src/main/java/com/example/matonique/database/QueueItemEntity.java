@@ -0,0 +1,63 @@
+package com.example.matonique.database;
+
+import androidx.room.Entity;
+
+// Entité pour une musique de la queue de lecture sauvegardée
+// on garde l'id de la musique dans l'index (table tracks), pas son chemin complet
+// une musique pas encore indexée (hors du dossier scanné) est gardée par son chemin, sans id
+// listType : LIST_PLAY_ORDER pour l'ordre de lecture, LIST_ORIGINAL_ORDER pour l'ordre d'avant l'aléatoire
+@Entity(tableName = "queue_items", primaryKeys = {"listType", "position"})
+public class QueueItemEntity {
+    public static final int LIST_PLAY_ORDER = 0;
+    public static final int LIST_ORIGINAL_ORDER = 1;
+
+    private int listType;
+
+    // position dans la liste au moment de la sauvegarde
+    private int position;
+
+    // id de la musique dans la table tracks, null si elle n'était pas indexée
+    private Integer trackId;
+
+    // chemin de la musique, seulement si elle n'était pas indexée (sinon on le retrouve par trackId)
+    private String filePath;
+
+    public QueueItemEntity(int listType, int position, Integer trackId, String filePath) {
+        this.listType = listType;
+        this.position = position;
+        this.trackId = trackId;
+        this.filePath = filePath;
+    }
+
+    public int getListType() {
+        return listType;
+    }
+
+    public void setListType(int listType) {
+        this.listType = listType;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    public Integer getTrackId() {
+        return trackId;
+    }
+
+    public void setTrackId(Integer trackId) {
+        this.trackId = trackId;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+}
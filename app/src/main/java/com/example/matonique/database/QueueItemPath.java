@@ -0,0 +1,7 @@
+package com.example.matonique.database;
+
+// Résultat de la lecture de la queue sauvegardée : position et chemin (retrouvé dans l'index ou gardé tel quel)
+public class QueueItemPath {
+    public int position;
+    public String filePath;
+}
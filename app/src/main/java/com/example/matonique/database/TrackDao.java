@@ -0,0 +1,114 @@
+package com.example.matonique.database;
+
+import androidx.room.Dao;
+import androidx.room.Delete;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Update;
+
+import java.util.List;
+
+// DAO pour acceder à l'index des musiques de la bibliothèque
+@Dao
+public interface TrackDao {
+
+    // inserer une nouvelle musique dans l'index, retourne l'id généré
+    // retourne -1 si ce chemin est deja indexé (inséré entre temps par un autre thread)
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insert(TrackEntity track);
+
+    // mettre a jour une musique deja indexée (on garde son id)
+    @Update
+    void update(TrackEntity track);
+
+    // recuperer une musique par son chemin de fichier
+    @Query("SELECT * FROM tracks WHERE filePath = :filePath")
+    TrackEntity getTrackByPath(String filePath);
+
+    // recuperer une musique par son ID
+    @Query("SELECT * FROM tracks WHERE id = :trackId")
+    TrackEntity getTrackById(int trackId);
+
+    // recuperer les musiques correspondant à une liste de chemins
+    // ATTENTION : SQLite limite le nombre de parametres, envoyer des lots de quelques centaines
+    @Query("SELECT * FROM tracks WHERE filePath IN (:filePaths)")
+    List<TrackEntity> getTracksByPaths(List<String> filePaths);
+
+    // parmi une liste de chemins, recuperer ceux qui sont dans l'index
+    @Query("SELECT filePath FROM tracks WHERE filePath IN (:filePaths)")
+    List<String> getExistingPaths(List<String> filePaths);
+
+    // recuperer toutes les musiques d'un dossier (sans les sous-dossiers), dans l'ordre d'affichage
+    @Query("SELECT * FROM tracks WHERE folderPath = :folderPath ORDER BY sortKey, fileName")
+    List<TrackEntity> getTracksInFolder(String folderPath);
+
+    // recuperer seulement les chemins des musiques d'un dossier, dans l'ordre d'affichage
+    @Query("SELECT filePath FROM tracks WHERE folderPath = :folderPath ORDER BY sortKey, fileName")
+    List<String> getPathsInFolder(String folderPath);
+
+    // recuperer seulement les noms de fichier des musiques d'un dossier, dans l'ordre d'affichage
+    @Query("SELECT fileName FROM tracks WHERE folderPath = :folderPath ORDER BY sortKey, fileName")
+    List<String> getFileNamesInFolder(String folderPath);
+
+    // compter les musiques d'un dossier
+    @Query("SELECT COUNT(*) FROM tracks WHERE folderPath = :folderPath")
+    int countTracksInFolder(String folderPath);
+
+    // recuperer une page des musiques d'un dossier, dans l'ordre d'affichage
+    @Query("SELECT * FROM tracks WHERE folderPath = :folderPath ORDER BY sortKey, fileName LIMIT :limit OFFSET :offset")
+    List<TrackEntity> getTracksInFolderPage(String folderPath, int limit, int offset);
+
+    // recuperer les musiques d'un artiste, album par album dans l'ordre des pistes
+    // CAST : trackNumber est un texte ("2", "02" ou "2/12"), on le trie comme un nombre
+    @Query("SELECT * FROM tracks WHERE artist = :artist "
+            + "ORDER BY album COLLATE NOCASE ASC, CAST(trackNumber AS INTEGER) ASC, fileName COLLATE NOCASE ASC")
+    List<TrackEntity> getTracksByArtist(String artist);
+
+    // recuperer les musiques d'un album dans l'ordre des pistes
+    // albumArtist : artiste de l'album, ou de la musique quand le tag est absent (meme clé que track_groups)
+    @Query("SELECT * FROM tracks WHERE album = :album AND COALESCE(NULLIF(albumArtist, ''), artist) = :albumArtist "
+            + "ORDER BY CAST(trackNumber AS INTEGER) ASC, fileName COLLATE NOCASE ASC")
+    List<TrackEntity> getTracksByAlbum(String album, String albumArtist);
+
+    // recuperer les musiques d'un genre, par artiste puis album
+    @Query("SELECT * FROM tracks WHERE genre = :genre "
+            + "ORDER BY artist COLLATE NOCASE ASC, album COLLATE NOCASE ASC, CAST(trackNumber AS INTEGER) ASC")
+    List<TrackEntity> getTracksByGenre(String genre);
+
+    // recuperer les chemins de toute la bibliothèque (pour lire tout en aléatoire)
+    @Query("SELECT filePath FROM tracks ORDER BY folderPath, fileName COLLATE NOCASE ASC")
+    List<String> getAllPaths();
+
+    // rechercher des musiques dans la table plein texte (titre, artiste, album, dossier, nom de fichier)
+    // query : expression MATCH de FTS4, ex: "beat"* "ann"* (voir MusicLibrary.buildSearchQuery)
+    // le rowid de tracks_fts est l'id de la musique dans tracks
+    @Query("SELECT tracks.* FROM tracks JOIN tracks_fts ON tracks.id = tracks_fts.rowid "
+            + "WHERE tracks_fts MATCH :query "
+            + "ORDER BY tracks.title COLLATE NOCASE ASC LIMIT :limit OFFSET :offset")
+    List<TrackEntity> search(String query, int limit, int offset);
+
+    // recuperer les musiques ayant une empreinte de contenu donnée
+    @Query("SELECT * FROM tracks WHERE contentHash = :contentHash")
+    List<TrackEntity> getTracksByHash(String contentHash);
+
+    // recuperer les musiques dont le contenu est present plusieurs fois, groupées par empreinte
+    @Query("SELECT * FROM tracks WHERE contentHash IN "
+            + "(SELECT contentHash FROM tracks WHERE contentHash IS NOT NULL GROUP BY contentHash HAVING COUNT(*) > 1) "
+            + "ORDER BY contentHash, filePath")
+    List<TrackEntity> getDuplicateTracks();
+
+    // suprimer une musique de l'index par son chemin
+    // (par chemin et pas par id : une musique déplacée garde son id avec un nouveau chemin)
+    @Query("DELETE FROM tracks WHERE filePath = :filePath")
+    void deleteByPath(String filePath);
+
+    // suprimer une musique de l'index
+    @Delete
+    void delete(TrackEntity track);
+
+    // suprimer toutes les musiques d'un dossier et de ses sous-dossiers
+    // prefix = chemin du dossier suivi de "/"
+    @Query("DELETE FROM tracks WHERE folderPath = :folderPath OR substr(folderPath, 1, length(:prefix)) = :prefix")
+    void deleteTracksUnder(String folderPath, String prefix);
+}
@@ -0,0 +1,215 @@
+package com.example.matonique.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+// Entité de l'index des musiques de la bibliothèque
+// on garde les métadonnées déja extraites pour ne pas relancer MediaMetadataRetriever à chaque fois
+// une entrée est valide tant que la taille et la date de modification du fichier n'ont pas changé
+@Entity(tableName = "tracks", indices = {
+        @Index(value = "filePath", unique = true),
+        @Index(value = {"folderPath", "sortKey"}),
+        @Index(value = "artist"),
+        @Index(value = "album"),
+        @Index(value = "genre"),
+        @Index(value = "contentHash")
+})
+public class TrackEntity {
+    @PrimaryKey(autoGenerate = true)
+    private int id;
+
+    // chemin absolu du fichier audio
+    @NonNull
+    private String filePath;
+
+    // dossier parent et nom du fichier, pour lister un dossier sans passer par le systeme de fichier
+    private String folderPath;
+    private String fileName;
+    // clé de tri du nom de fichier (voir DirectoryLister.sortKey), pour lister un dossier par pages dans l'ordre
+    private String sortKey;
+
+    // taille et date de modification du fichier au moment de l'extraction
+    private long fileSize;
+    private long lastModified;
+
+    // empreinte partielle du contenu (voir ContentHasher), pour retrouver un fichier déplacé
+    // et détecter les doublons, null si pas encore calculée
+    private String contentHash;
+
+    // métadonnées extraites du fichier
+    // artist, album et genre valent "Unknown" si absents (ils servent de clé dans track_groups)
+    // albumArtist : artiste de l'album (TPE2, ALBUMARTIST...), null si absent ; un album est groupé
+    // par son nom et son artiste d'album, ou son artiste à défaut
+    private String title;
+    private String artist;
+    private String album;
+    private String albumArtist;
+    private String genre;
+    private String year;
+    private String trackNumber;
+    private String composer;
+    private String author;
+    private long durationMs;
+
+    public TrackEntity(@NonNull String filePath, long fileSize, long lastModified) {
+        this.filePath = filePath;
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+
+        java.io.File file = new java.io.File(filePath);
+        this.folderPath = file.getParent();
+        this.fileName = file.getName();
+    }
+
+    // verifier si l'entrée correspond toujours au fichier sur le disque
+    public boolean isUpToDate(long fileSize, long lastModified) {
+        return this.fileSize == fileSize && this.lastModified == lastModified;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    @NonNull
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public void setFilePath(@NonNull String filePath) {
+        this.filePath = filePath;
+    }
+
+    public String getFolderPath() {
+        return folderPath;
+    }
+
+    public void setFolderPath(String folderPath) {
+        this.folderPath = folderPath;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getSortKey() {
+        return sortKey;
+    }
+
+    public void setSortKey(String sortKey) {
+        this.sortKey = sortKey;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getArtist() {
+        return artist;
+    }
+
+    public void setArtist(String artist) {
+        this.artist = artist;
+    }
+
+    public String getAlbum() {
+        return album;
+    }
+
+    public void setAlbum(String album) {
+        this.album = album;
+    }
+
+    public String getAlbumArtist() {
+        return albumArtist;
+    }
+
+    public void setAlbumArtist(String albumArtist) {
+        this.albumArtist = albumArtist;
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+
+    public void setGenre(String genre) {
+        this.genre = genre;
+    }
+
+    public String getYear() {
+        return year;
+    }
+
+    public void setYear(String year) {
+        this.year = year;
+    }
+
+    public String getTrackNumber() {
+        return trackNumber;
+    }
+
+    public void setTrackNumber(String trackNumber) {
+        this.trackNumber = trackNumber;
+    }
+
+    public String getComposer() {
+        return composer;
+    }
+
+    public void setComposer(String composer) {
+        this.composer = composer;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.matonique.database;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+// Table de recherche plein texte sur l'index des musiques
+// table FTS4 "external content" : elle ne stocke que l'index des mots, le contenu reste dans tracks
+// Room crée les triggers qui la tiennent à jour quand tracks change (insert / update / delete)
+// unicode61 ignore la casse et les accents (remove_diacritics) : "eleve" trouve "Élève"
+// NOTE : remove_diacritics=2 serait plus complet mais demande SQLite 3.27 (Android 11+), minSdk est 29
+@Fts4(contentEntity = TrackEntity.class,
+        tokenizer = FtsOptions.TOKENIZER_UNICODE61,
+        tokenizerArgs = {"remove_diacritics=1"})
+@Entity(tableName = "tracks_fts")
+public class TrackFtsEntity {
+
+    // colonnes indexées, mêmes noms que dans TrackEntity
+    private String title;
+    private String artist;
+    private String album;
+    private String folderPath;
+    private String fileName;
+
+    public TrackFtsEntity(String title, String artist, String album, String folderPath, String fileName) {
+        this.title = title;
+        this.artist = artist;
+        this.album = album;
+        this.folderPath = folderPath;
+        this.fileName = fileName;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getArtist() {
+        return artist;
+    }
+
+    public void setArtist(String artist) {
+        this.artist = artist;
+    }
+
+    public String getAlbum() {
+        return album;
+    }
+
+    public void setAlbum(String album) {
+        this.album = album;
+    }
+
+    public String getFolderPath() {
+        return folderPath;
+    }
+
+    public void setFolderPath(String folderPath) {
+        this.folderPath = folderPath;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+}
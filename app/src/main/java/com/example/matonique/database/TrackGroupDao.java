@@ -0,0 +1,16 @@
+package com.example.matonique.database;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+
+import java.util.List;
+
+// DAO pour les groupes de musiques (artistes, albums, genres)
+// pas d'insert ici : la table est remplie par les triggers sur tracks
+@Dao
+public interface TrackGroupDao {
+
+    // recuperer tous les groupes d'un type, triés par nom
+    @Query("SELECT * FROM track_groups WHERE type = :type ORDER BY name COLLATE NOCASE ASC, albumArtist COLLATE NOCASE ASC")
+    List<TrackGroupEntity> getGroups(int type);
+}
@@ -0,0 +1,77 @@
+package com.example.matonique.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+// Entité d'un groupe de musiques de l'index (un artiste, un album ou un genre)
+// le nombre de musiques et la durée totale sont tenus à jour par des triggers sur la table tracks
+// (voir LibraryDatabase) : afficher la liste des artistes ne fait aucun GROUP BY sur tracks
+// un album est identifié par son nom ET son artiste d'album : deux albums "Greatest Hits"
+// de deux artistes sont deux groupes
+@Entity(tableName = "track_groups", primaryKeys = {"type", "name", "albumArtist"})
+public class TrackGroupEntity {
+    public static final int TYPE_ARTIST = 0;
+    public static final int TYPE_ALBUM = 1;
+    public static final int TYPE_GENRE = 2;
+
+    private int type;
+
+    // valeur du tag (artiste, album ou genre), "Unknown" si absent
+    @NonNull
+    private String name;
+
+    // pour un album : artiste de l'album (ou de la musique à défaut), "" pour les artistes et les genres
+    @NonNull
+    private String albumArtist;
+
+    private int trackCount;
+    private long totalDurationMs;
+
+    public TrackGroupEntity(int type, @NonNull String name, @NonNull String albumArtist) {
+        this.type = type;
+        this.name = name;
+        this.albumArtist = albumArtist;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public void setType(int type) {
+        this.type = type;
+    }
+
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    public void setName(@NonNull String name) {
+        this.name = name;
+    }
+
+    @NonNull
+    public String getAlbumArtist() {
+        return albumArtist;
+    }
+
+    public void setAlbumArtist(@NonNull String albumArtist) {
+        this.albumArtist = albumArtist;
+    }
+
+    public int getTrackCount() {
+        return trackCount;
+    }
+
+    public void setTrackCount(int trackCount) {
+        this.trackCount = trackCount;
+    }
+
+    public long getTotalDurationMs() {
+        return totalDurationMs;
+    }
+
+    public void setTotalDurationMs(long totalDurationMs) {
+        this.totalDurationMs = totalDurationMs;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.matonique.fragments;
+
+import android.app.Activity;
+import android.app.AlertDialog;
+import android.content.Context;
+import android.widget.Toast;
+
+import com.example.matonique.library.PlaylistStore;
+import com.example.matonique.model.Playlist;
+
+import java.util.List;
+
+// Dialogue "Ajouter à une playlist", partagé par la page de lecture et l'explorateur
+// la liste des playlists vient de la base, les musiques à ajouter sont lues en arriere plan
+// (ex: toutes celles d'un dossier) et ajoutées en une seule modification (PlaylistEditor)
+public class AddToPlaylistDialog {
+
+    // fournit les chemins des musiques à ajouter, appelé hors du thread principal
+    public interface PathsLoader {
+        List<String> loadPaths();
+    }
+
+    private AddToPlaylistDialog() {
+    }
+
+    public static void show(Activity activity, PathsLoader loader) {
+        PlaylistStore store = new PlaylistStore(activity);
+        Context appContext = activity.getApplicationContext();
+
+        new Thread(() -> {
+            List<Playlist> playlists = store.getPlaylists();
+
+            activity.runOnUiThread(() -> {
+                if (activity.isFinishing() || activity.isDestroyed()) return;
+
+                if (playlists.isEmpty()) {
+                    Toast.makeText(appContext, "Aucune playlist disponible", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+
+                String[] names = new String[playlists.size()];
+                for (int i = 0; i < names.length; i++) {
+                    names[i] = playlists.get(i).getName();
+                }
+
+                new AlertDialog.Builder(activity)
+                        .setTitle("Ajouter à une playlist")
+                        .setItems(names, (dialog, which) -> {
+                            Playlist playlist = playlists.get(which);
+                            M3UWriteDialog.confirmThen(activity, store, playlist,
+                                    () -> addToPlaylist(activity, store, playlist, loader));
+                        })
+                        .setNegativeButton("Annuler", null)
+                        .show();
+            });
+        }).start();
+    }
+
+    private static void addToPlaylist(Activity activity, PlaylistStore store, Playlist playlist, PathsLoader loader) {
+        Context appContext = activity.getApplicationContext();
+
+        new Thread(() -> {
+            List<String> paths = loader.loadPaths();
+            if (!paths.isEmpty()) {
+                store.edit(playlist.getId()).add(paths).commit();
+            }
+
+            String message;
+            if (paths.isEmpty()) {
+                message = "Aucune musique à ajouter";
+            } else if (paths.size() == 1) {
+                message = "Ajouté à \"" + playlist.getName() + "\"";
+            } else {
+                message = paths.size() + " musiques ajoutées à \"" + playlist.getName() + "\"";
+            }
+            activity.runOnUiThread(() -> Toast.makeText(appContext, message, Toast.LENGTH_SHORT).show());
+        }).start();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.matonique.fragments;
+
+import android.app.Activity;
+import android.app.AlertDialog;
+
+import com.example.matonique.database.PlaylistEntity;
+import com.example.matonique.library.PlaylistStore;
+import com.example.matonique.model.Playlist;
+
+import java.io.File;
+
+// Dialogue affiché avant la premiere modification d'une playlist importée :
+// son m3u n'a pas été créé par l'app, on demande avant de le réécrire
+// la réponse est gardée dans la base, la question n'est posée qu'une fois par playlist
+public class M3UWriteDialog {
+
+    private M3UWriteDialog() {
+    }
+
+    // lancer la modification, apres avoir demandé si besoin (edit est lancé sur le thread principal)
+    public static void confirmThen(Activity activity, PlaylistStore store, Playlist playlist, Runnable edit) {
+        if (playlist.getM3uWriteMode() != PlaylistEntity.M3U_WRITE_ASK) {
+            edit.run();
+            return;
+        }
+
+        new AlertDialog.Builder(activity)
+                .setTitle("Modifier le fichier m3u ?")
+                .setMessage("La playlist \"" + playlist.getName() + "\" vient du fichier "
+                        + new File(playlist.getFilePath()).getName()
+                        + ". Reporter aussi les modifications dans ce fichier ?")
+                .setPositiveButton("Modifier le fichier",
+                        (dialog, which) -> saveChoice(activity, store, playlist, PlaylistEntity.M3U_WRITE_ALWAYS, edit))
+                .setNegativeButton("Seulement dans l'app",
+                        (dialog, which) -> saveChoice(activity, store, playlist, PlaylistEntity.M3U_WRITE_NEVER, edit))
+                .setNeutralButton("Annuler", null)
+                .show();
+    }
+
+    // le choix est enregistré avant la modification : c'est lui que lit l'écriture du m3u
+    private static void saveChoice(Activity activity, PlaylistStore store, Playlist playlist, int mode, Runnable edit) {
+        playlist.setM3uWriteMode(mode);
+        new Thread(() -> {
+            store.setM3uWriteMode(playlist.getId(), mode);
+            activity.runOnUiThread(edit);
+        }).start();
+    }
+}
@@ -5,11 +5,21 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Parcelable;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.LruCache;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.ImageButton;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -24,27 +34,70 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.matonique.adapter.FileExplorerAdapter;
 import com.example.matonique.R;
+import com.example.matonique.database.TrackGroupEntity;
+import com.example.matonique.library.DirectoryCache;
+import com.example.matonique.library.FileItemPager;
+import com.example.matonique.library.MusicLibrary;
 import com.example.matonique.model.FileItem;
+import com.example.matonique.service.LibraryScanService;
+import com.example.matonique.utils.DirectoryLister;
+import com.example.matonique.utils.SectionIndex;
+import com.example.matonique.views.FastScrollBar;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 // Fragment gerant l'exploration des fichiers musicaux et l'affichage sous forme de liste dans un RecyclerView
 public class MusicListFragment extends Fragment
         implements FileExplorerAdapter.OnItemClickListener {
 
     private RecyclerView recyclerView;
+    private FastScrollBar fastScrollBar; // lettres pour le défilement rapide des longues listes
     private FileExplorerAdapter adapter;
     private List<FileItem> items = new ArrayList<>();
     private TextView txtCurrentPath;
     private TextView txtEmpty; // Texte affiché quand le dossier est vide
     private Button buttonBack;
     private ImageButton buttonHome; // pour retourner au dossier Music
+    private Button buttonShuffleAll; // pour lire toute la bibliothèque en aléatoire
+    private EditText editSearch; // recherche dans l'index de la bibliothèque
+    private Spinner spinnerBrowseMode; // dossiers, artistes, albums ou genres
 
     private File currentDirectory;
 
+    // vue affichée (dossier, groupe, recherche...) : une liste d'une autre vue n'est pas comparée à celle affichée
+    // et on remet la position de défilement où on avait quitté cette vue
+    private static final String VIEW_SEARCH = "search";
+    // au dela de ce nombre de lignes, un dossier de l'index est chargé par pages
+    private static final int PAGED_FOLDER_THRESHOLD = 500;
+    private static final int MAX_SCROLL_STATES = 64;
+    private final LruCache<String, Parcelable> scrollStates = new LruCache<>(MAX_SCROLL_STATES);
+    private String shownViewKey;
+
+    // modes de navigation (meme ordre que R.array.browse_modes)
+    private static final int BROWSE_FOLDERS = 0;
+    private static final int BROWSE_ARTISTS = 1;
+    private static final int BROWSE_ALBUMS = 2;
+    private static final int BROWSE_GENRES = 3;
+    private int browseMode = BROWSE_FOLDERS;
+    private String openGroup; // clé de l'artiste / album / genre ouvert, null pour la liste des groupes
+    private String openGroupName; // nom affiché du groupe ouvert
+
+    // recherche : on attend une courte pause dans la frappe avant de lancer la requete
+    // seule la premiere page de resultats est chargée, la requete FTS reste rapide meme sur une grosse bibliothèque
+    private static final int SEARCH_PAGE_SIZE = 50;
+    private static final long SEARCH_DELAY_MS = 150;
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private final Runnable searchRunnable = this::runSearch;
+    private String searchText = ""; // texte recherché, vide quand on explore les dossiers
+    private int searchGeneration = 0; // pour ignorer les resultats d'une recherche dépassée
+
+    // recharger le dossier affiché quand le scan de la bibliothèque l'a modifié
+    private final MusicLibrary.OnLibraryChangeListener libraryChangeListener = this::onLibraryChanged;
+
     // demande de permission MANAGE_EXTERNAL_STORAGE
     private final ActivityResultLauncher<Intent> manageStorageLauncher =
             registerForActivityResult(new ActivityResultContracts.StartActivityForResult(), result -> {
@@ -54,6 +107,7 @@ public class MusicListFragment extends Fragment
                         if (!musicDir.exists()) {
                             musicDir = Environment.getExternalStorageDirectory();
                         }
+                        LibraryScanService.start(requireContext(), musicDir);
                         loadDirectory(musicDir);
                     } else {
                                                 android.util.Log.e("MusicListFragment", "MANAGE_EXTERNAL_STORAGE refusé");
@@ -72,6 +126,7 @@ public class MusicListFragment extends Fragment
                         musicDir = Environment.getExternalStorageDirectory();
 
                     }
+                    LibraryScanService.start(requireContext(), musicDir);
                     loadDirectory(musicDir);
                 } else {
                                         android.util.Log.e("MusicListFragment", "Permission refusée par l'utilisateur");
@@ -111,27 +166,73 @@ public class MusicListFragment extends Fragment
         txtEmpty = view.findViewById(R.id.txt_empty);
         buttonBack = view.findViewById(R.id.buttonBack);
         buttonHome = view.findViewById(R.id.buttonHome);
+        buttonShuffleAll = view.findViewById(R.id.buttonShuffleAll);
+        editSearch = view.findViewById(R.id.edit_search);
+        spinnerBrowseMode = view.findViewById(R.id.spinner_browse_mode);
 
         // config du RecyclerView
         recyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
 
         if (adapter == null) {
-            adapter = new FileExplorerAdapter(items, this);
+            adapter = new FileExplorerAdapter(this);
         }
         recyclerView.setAdapter(adapter);
 
+        fastScrollBar = view.findViewById(R.id.fast_scroll_bar);
+        fastScrollBar.attachTo(recyclerView, view.findViewById(R.id.txt_section_bubble));
+
         // config listeners
         buttonBack.setOnClickListener(v -> navigateUp());
         buttonHome.setOnClickListener(v -> navigateToMusicDir());
+        buttonShuffleAll.setOnClickListener(v -> openFragment(MusicPlayFragment.newShuffleAllInstance()));
+        ArrayAdapter<CharSequence> modesAdapter = ArrayAdapter.createFromResource(
+                requireContext(), R.array.browse_modes, android.R.layout.simple_spinner_item);
+        modesAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerBrowseMode.setAdapter(modesAdapter);
+        spinnerBrowseMode.setSelection(browseMode, false);
+        spinnerBrowseMode.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                onBrowseModeSelected(position);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) { }
+        });
+        editSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                onSearchTextChanged(s.toString().trim());
+            }
+        });
+
+        MusicLibrary.getInstance(requireContext()).addOnLibraryChangeListener(libraryChangeListener);
 
         // On ne charge pas ici, on attend onResume() pour éviter les conflits de permissions
-        if (currentDirectory != null) {
-            // met à jour l'affichage avec répertoire existant
-            txtCurrentPath.setText(currentDirectory.getAbsolutePath());
-            loadDirectory(currentDirectory);
+        if (currentDirectory != null || browseMode != BROWSE_FOLDERS) {
+            // met à jour l'affichage avec la vue deja ouverte
+            reloadCurrentView();
         }
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        searchHandler.removeCallbacks(searchRunnable);
+        MusicLibrary.getInstance(requireContext()).removeOnLibraryChangeListener(libraryChangeListener);
+        // la position sera remise depuis scrollStates quand la vue sera recréée
+        saveScrollState();
+        shownViewKey = null;
+    }
+
     @Override
     public void onResume() {
         super.onResume();
@@ -209,6 +310,9 @@ public class MusicListFragment extends Fragment
             musicDir = Environment.getExternalStorageDirectory();
         }
         android.util.Log.d("MusicListFragment", "Répertoire à charger: " + musicDir.getAbsolutePath());
+
+        // mettre a jour l'index de la bibliothèque en arriere plan (incrémental)
+        LibraryScanService.start(requireContext(), musicDir);
         loadDirectory(musicDir);
     }
 
@@ -217,61 +321,324 @@ public class MusicListFragment extends Fragment
         currentDirectory = directory;
 
         // on verifie que les vues sont initialisées avant de les utiliser
-        if (txtCurrentPath != null) {
+        if (txtCurrentPath != null && !isSearching() && browseMode == BROWSE_FOLDERS) {
             txtCurrentPath.setText(directory.getAbsolutePath());
         }
 
         android.util.Log.d("MusicListFragment", "loadDirectory appelé pour: " + directory.getAbsolutePath());
-        android.util.Log.d("MusicListFragment", "Le répertoire existe: " + directory.exists());
-        android.util.Log.d("MusicListFragment", "Le répertoire est accessible en lecture: " + directory.canRead());
+
+        // dossier deja listé et pas modifié depuis : affichage immédiat, sans thread
+        DirectoryCache cache = DirectoryCache.getInstance();
+        List<FileItem> cachedItems = cache.get(directory);
+        if (cachedItems != null) {
+            if (!isSearching() && browseMode == BROWSE_FOLDERS) {
+                showDirectory(directory, cachedItems, cache.getSections(directory));
+            }
+            return;
+        }
+
+        MusicLibrary library = MusicLibrary.getInstance(requireContext());
 
         new Thread(() -> {
-            List<FileItem> newItems = new ArrayList<>();
-            File[] files = directory.listFiles();
-
-            if (files != null) {
-                Arrays.sort(files, (f1, f2) -> {
-                    if (f1.isDirectory() && !f2.isDirectory()) return -1;
-                    if (!f1.isDirectory() && f2.isDirectory()) return 1;
-                    return f1.getName().compareToIgnoreCase(f2.getName());
+            // lire la date AVANT de lister : un changement pendant le listing invalidera le cache
+            long lastModified = directory.lastModified();
+
+            // d'abord depuis l'index de la bibliothèque, sinon on liste le disque
+            FileItemPager pager = library.getFolderPager(directory);
+            if (pager != null && pager.getCount() > PAGED_FOLDER_THRESHOLD) {
+                // gros dossier : chargé par pages pendant le défilement (seules ses sections sont gardées en cache)
+                SectionIndex cachedSections = cache.getSections(directory);
+                if (cachedSections == null) {
+                    cachedSections = library.getFolderSections(directory);
+                    cache.putSections(directory, lastModified, cachedSections);
+                }
+
+                SectionIndex pagerSections = cachedSections;
+                if (getActivity() == null) return;
+                getActivity().runOnUiThread(() -> {
+                    if (!directory.equals(currentDirectory) || isSearching() || browseMode != BROWSE_FOLDERS) return;
+                    showPager(pager, folderViewKey(directory), pagerSections);
                 });
+                return;
+            }
+
+            List<FileItem> newItems = pager != null ? pager.loadPage(0, pager.getCount()) : listDirectory(directory);
+            cache.put(directory, lastModified, newItems);
+            SectionIndex sections = cache.getSections(directory);
+
+            List<FileItem> loadedItems = newItems;
+            if (getActivity() == null) return;
+            getActivity().runOnUiThread(() -> {
+                // l'utilisateur a pu changer de dossier, de mode ou lancer une recherche pendant le chargement
+                if (!directory.equals(currentDirectory) || isSearching() || browseMode != BROWSE_FOLDERS) return;
+
+                showDirectory(directory, loadedItems, sections);
+            });
+        }).start();
+    }
+
+    // afficher le listing d'un dossier
+    private void showDirectory(File directory, List<FileItem> directoryItems, SectionIndex sections) {
+        showItems(directoryItems, folderViewKey(directory), sections);
+    }
+
+    private static String folderViewKey(File directory) {
+        return "folder:" + directory.getAbsolutePath();
+    }
+
+    // lister un dossier directement sur le disque (dossier pas encore indexé)
+    private List<FileItem> listDirectory(File directory) {
+        return DirectoryLister.list(directory);
+    }
+
+    // -------- Artistes / albums / genres --------
+
+    private void onBrowseModeSelected(int mode) {
+        if (mode == browseMode) return;
+        clearSearch();
+        browseMode = mode;
+        openGroup = null;
+        reloadCurrentView();
+    }
+
+    // recharger ce qui est affiché (dossier, liste des groupes ou groupe ouvert)
+    private void reloadCurrentView() {
+        updateHeader();
+        if (isSearching()) {
+            runSearch();
+        } else if (browseMode == BROWSE_FOLDERS) {
+            if (currentDirectory != null) {
+                loadDirectory(currentDirectory);
+            }
+        } else if (openGroup != null) {
+            loadGroup(openGroup, openGroupName);
+        } else {
+            loadGroups();
+        }
+    }
+
+    // afficher la liste des artistes / albums / genres avec leur nombre de musiques
+    // tout vient de la table track_groups, aucun tag n'est relu
+    private void loadGroups() {
+        int mode = browseMode;
+        openGroup = null;
+        updateHeader();
+        MusicLibrary library = MusicLibrary.getInstance(requireContext());
+
+        new Thread(() -> {
+            List<FileItem> groups = library.getGroupListing(toGroupType(mode));
+            // les groupes sont triés par nom
+            List<String> names = new ArrayList<>(groups.size());
+            for (FileItem group : groups) {
+                names.add(group.getName());
+            }
+            SectionIndex sections = SectionIndex.build(names);
+
+            if (getActivity() == null) return;
+            getActivity().runOnUiThread(() -> {
+                if (browseMode != mode || openGroup != null || isSearching()) return;
+                showItems(groups, "groups:" + mode, sections);
+            });
+        }).start();
+    }
+
+    // afficher les musiques d'un artiste / album / genre
+    // key : clé du groupe (voir MusicLibrary.getGroupListing), name : nom affiché
+    private void loadGroup(String key, String name) {
+        int mode = browseMode;
+        openGroup = key;
+        openGroupName = name;
+        updateHeader();
+        MusicLibrary library = MusicLibrary.getInstance(requireContext());
+
+        new Thread(() -> {
+            List<FileItem> tracks = library.getGroupTracks(toGroupType(mode), key);
+
+            if (getActivity() == null) return;
+            getActivity().runOnUiThread(() -> {
+                if (browseMode != mode || !key.equals(openGroup) || isSearching()) return;
+                showItems(tracks, "group:" + mode + ":" + key, null);
+            });
+        }).start();
+    }
+
+    // type de groupe de l'index correspondant à un mode de navigation
+    private static int toGroupType(int mode) {
+        switch (mode) {
+            case BROWSE_ARTISTS:
+                return TrackGroupEntity.TYPE_ARTIST;
+            case BROWSE_ALBUMS:
+                return TrackGroupEntity.TYPE_ALBUM;
+            default:
+                return TrackGroupEntity.TYPE_GENRE;
+        }
+    }
 
-                for (File file : files) {
-                    if (file.isDirectory()) {
-                        newItems.add(new FileItem(
-                                file.getAbsolutePath(),
-                                file.getName(),
-                                true
-                        ));
-                    } else if (isMusicFile(file)) {
-                        newItems.add(new FileItem(
-                                file.getAbsolutePath(),
-                                file.getName(),
-                                false
-                        ));
+    // titre au dessus de la liste : chemin du dossier, texte recherché ou groupe ouvert
+    private void updateHeader() {
+        if (txtCurrentPath == null) return;
+
+        if (isSearching()) {
+            txtCurrentPath.setText("Recherche : " + searchText);
+        } else if (browseMode == BROWSE_FOLDERS) {
+            txtCurrentPath.setText(currentDirectory != null ? currentDirectory.getAbsolutePath() : "/");
+        } else {
+            String modeName = getResources().getStringArray(R.array.browse_modes)[browseMode];
+            txtCurrentPath.setText(openGroup != null ? modeName + " / " + openGroupName : modeName);
+        }
+    }
+
+    // remplacer les elements affichés
+    // viewKey identifie la vue : une nouvelle liste de la meme vue (scan, recherche affinée) est comparée
+    // à celle affichée et seules les lignes modifiées sont redessinées
+    // sections : lettres du défilement rapide, null si la liste n'est pas triée par nom
+    private void showItems(List<FileItem> newItems, String viewKey, SectionIndex sections) {
+        boolean newView = !viewKey.equals(shownViewKey);
+        if (newView) {
+            // autre vue : rien à comparer, on vide la liste (l'ajout de la nouvelle est alors immédiat)
+            saveScrollState();
+            adapter.submitList(null);
+            shownViewKey = viewKey;
+        }
+
+        // submitList ignore une liste deja soumise : toujours une nouvelle instance
+        items = new ArrayList<>(newItems);
+        adapter.submitList(items, () -> {
+            if (newView && viewKey.equals(shownViewKey)) {
+                restoreScrollState(viewKey);
+            }
+        });
+        fastScrollBar.setSections(sections);
+        toggleEmptyView(items.isEmpty());
+    }
+
+    // afficher une vue chargée par pages (gros dossier)
+    // les lignes sont toutes là tout de suite, leur contenu arrive page par page pendant le défilement
+    private void showPager(FileItemPager pager, String viewKey, SectionIndex sections) {
+        boolean newView = !viewKey.equals(shownViewKey);
+        if (newView) {
+            saveScrollState();
+            adapter.submitList(null);
+            shownViewKey = viewKey;
+        }
+
+        items = new ArrayList<>();
+        adapter.submitPager(pager);
+        if (newView) {
+            restoreScrollState(viewKey);
+        }
+        fastScrollBar.setSections(sections);
+        toggleEmptyView(pager.getCount() == 0);
+    }
+
+    // garder la position de défilement de la vue affichée
+    private void saveScrollState() {
+        if (shownViewKey == null || VIEW_SEARCH.equals(shownViewKey) || recyclerView == null) return;
+
+        Parcelable state = recyclerView.getLayoutManager().onSaveInstanceState();
+        if (state != null) {
+            scrollStates.put(shownViewKey, state);
+        }
+    }
+
+    // remettre la position où on avait quitté une vue (ou le haut)
+    private void restoreScrollState(String viewKey) {
+        if (recyclerView == null) return;
+
+        Parcelable state = scrollStates.get(viewKey);
+        if (state != null) {
+            recyclerView.getLayoutManager().onRestoreInstanceState(state);
+        } else {
+            recyclerView.scrollToPosition(0);
+        }
+    }
+
+    // appelé (depuis le thread du scanner) quand des dossiers de la bibliothèque ont changé
+    private void onLibraryChanged(Set<String> changedFolders) {
+        if (browseMode != BROWSE_FOLDERS) {
+            // les groupes ont pu changer : on recharge la vue (lecture de l'index seulement)
+            if (getActivity() != null) {
+                getActivity().runOnUiThread(() -> {
+                    if (isAdded() && !isSearching()) {
+                        reloadCurrentView();
                     }
-                }
+                });
             }
+            return;
+        }
+
+        File directory = currentDirectory;
+        if (directory == null || !changedFolders.contains(directory.getAbsolutePath())) return;
 
-            requireActivity().runOnUiThread(() -> {
-                items.clear();
-                items.addAll(newItems);
-                adapter.notifyDataSetChanged();
-                toggleEmptyView();
+        if (getActivity() != null) {
+            getActivity().runOnUiThread(() -> {
+                if (isAdded() && directory.equals(currentDirectory)) {
+                    loadDirectory(directory);
+                }
+            });
+        }
+    }
+
+    // -------- Recherche --------
+
+    private boolean isSearching() {
+        return !searchText.isEmpty();
+    }
+
+    // appelé à chaque modification du champ de recherche
+    private void onSearchTextChanged(String text) {
+        if (text.equals(searchText)) return;
+        searchText = text;
+        searchHandler.removeCallbacks(searchRunnable);
+
+        if (isSearching()) {
+            searchHandler.postDelayed(searchRunnable, SEARCH_DELAY_MS);
+        } else {
+            // recherche effacée : on revient à la vue explorée
+            searchGeneration++;
+            reloadCurrentView();
+        }
+    }
+
+    // lancer la recherche dans l'index (hors du thread principal)
+    private void runSearch() {
+        int generation = ++searchGeneration;
+        String text = searchText;
+        MusicLibrary library = MusicLibrary.getInstance(requireContext());
+
+        new Thread(() -> {
+            List<FileItem> results = library.search(text, SEARCH_PAGE_SIZE, 0);
+
+            if (getActivity() == null) return;
+            getActivity().runOnUiThread(() -> {
+                // le texte a changé depuis : une autre recherche est en cours
+                if (generation != searchGeneration || !isAdded()) return;
+
+                updateHeader();
+                showItems(results, VIEW_SEARCH, null);
             });
         }).start();
     }
 
-    // Renvoie true si le fichier est un fichier musical supporté
-    // fichiers supportés : .mp3, .m4a, .flac, .wav
-    private boolean isMusicFile(File file) {
-        String name = file.getName().toLowerCase();
-        return name.endsWith(".mp3") || name.endsWith(".m4a") ||
-                name.endsWith(".flac") || name.endsWith(".wav");
+    // quitter la recherche sans recharger (la navigation charge elle meme le dossier)
+    private void clearSearch() {
+        if (!isSearching()) return;
+        searchText = "";
+        searchGeneration++;
+        searchHandler.removeCallbacks(searchRunnable);
+        editSearch.setText("");
     }
 
     // naviguer vers le repertoire parent
     private void navigateUp() {
+        clearSearch();
+        if (browseMode != BROWSE_FOLDERS) {
+            // dans un groupe : retour à la liste des groupes
+            if (openGroup != null) {
+                loadGroups();
+            }
+            return;
+        }
         if (currentDirectory != null && currentDirectory.getParent() != null) {
             loadDirectory(currentDirectory.getParentFile());
         }
@@ -280,6 +647,10 @@ public class MusicListFragment extends Fragment
     // naviguer vers le dossier Music
     // listener du bouton Home 🏠
     private void navigateToMusicDir() {
+        clearSearch();
+        browseMode = BROWSE_FOLDERS;
+        openGroup = null;
+        spinnerBrowseMode.setSelection(BROWSE_FOLDERS);
         File musicDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_MUSIC);
         if (!musicDir.exists()) {
             musicDir = Environment.getExternalStorageDirectory();
@@ -288,13 +659,19 @@ public class MusicListFragment extends Fragment
     }
 
     // afficher ou cacher le message de dossier vide
-    private void toggleEmptyView() {
+    private void toggleEmptyView(boolean isEmpty) {
         // on verifie que les vues sont initialisées
         if (txtEmpty == null || recyclerView == null) {
             return;
         }
 
-        boolean isEmpty = items.isEmpty();
+        if (isSearching()) {
+            txtEmpty.setText("Aucun résultat");
+        } else if (browseMode == BROWSE_FOLDERS) {
+            txtEmpty.setText("Aucun fichier dans ce dossier");
+        } else {
+            txtEmpty.setText("Bibliothèque vide ou pas encore indexée");
+        }
         txtEmpty.setVisibility(isEmpty ? View.VISIBLE : View.GONE);
         recyclerView.setVisibility(isEmpty ? View.GONE : View.VISIBLE);
     }
@@ -303,21 +680,56 @@ public class MusicListFragment extends Fragment
     @Override
     public void onItemClick(FileItem item) {
         if (item.isDirectory()) {
-            loadDirectory(new File(item.getPath()));
+            if (browseMode == BROWSE_FOLDERS) {
+                loadDirectory(new File(item.getPath()));
+            } else {
+                loadGroup(item.getPath(), item.getName());
+            }
+        } else if (!isSearching() && openGroup != null) {
+            // musique d'un artiste / album / genre : tout le groupe devient la queue de lecture
+            ArrayList<String> groupPaths = new ArrayList<>();
+            for (FileItem groupItem : items) {
+                groupPaths.add(groupItem.getPath());
+            }
+            openFragment(MusicPlayFragment.newInstance(item.getPath(), groupPaths));
         } else {
             // On crée et affiche le MusicPlayFragment pour jouer la musique sélectionnée
-            MusicPlayFragment fragment = MusicPlayFragment.newInstance(item.getPath());
-
-            requireActivity().getSupportFragmentManager()
-                    .beginTransaction()
-                    .replace(R.id.fragment_container, fragment)
-                    .addToBackStack(null)
-                    .commit();
+            openFragment(MusicPlayFragment.newInstance(item.getPath()));
         }
     }
 
+    // afficher un fragment à la place de l'explorateur
+    private void openFragment(Fragment fragment) {
+        requireActivity().getSupportFragmentManager()
+                .beginTransaction()
+                .replace(R.id.fragment_container, fragment)
+                .addToBackStack(null)
+                .commit();
+    }
+
+    // appui long : ajouter la musique, toutes les musiques du dossier ou du groupe à une playlist
+    // (les musiques d'un dossier sont ajoutées en une seule modification de la playlist)
     @Override
     public void onItemLongClick(FileItem item) {
+        MusicLibrary library = MusicLibrary.getInstance(requireContext());
+        int mode = browseMode;
+
+        AddToPlaylistDialog.show(requireActivity(), () -> {
+            if (!item.isDirectory()) {
+                return Collections.singletonList(item.getPath());
+            }
+            if (mode != BROWSE_FOLDERS) {
+                List<String> groupPaths = new ArrayList<>();
+                for (FileItem track : library.getGroupTracks(toGroupType(mode), item.getPath())) {
+                    groupPaths.add(track.getPath());
+                }
+                return groupPaths;
+            }
+            // musiques du dossier (sans les sous-dossiers), depuis l'index sinon le disque
+            File directory = new File(item.getPath());
+            List<String> folderPaths = library.getFolderTrackPaths(directory);
+            return folderPaths != null ? folderPaths : DirectoryLister.listTrackPaths(directory);
+        });
     }
 
 }
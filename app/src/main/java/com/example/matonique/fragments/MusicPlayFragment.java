@@ -1,6 +1,5 @@
 package com.example.matonique.fragments;
 
-import android.app.AlertDialog;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
@@ -24,11 +23,15 @@ import androidx.fragment.app.Fragment;
 
 import com.example.matonique.R;
 import com.example.matonique.activity.MainActivity;
+import com.example.matonique.library.MetadataExecutor;
+import com.example.matonique.library.MusicLibrary;
 import com.example.matonique.model.Music;
 import com.example.matonique.sensor.ShakeDetector;
 import com.example.matonique.service.MusicPlayService;
+import com.example.matonique.utils.CoverCache;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Locale;
 
 
@@ -55,7 +58,7 @@ public class MusicPlayFragment extends Fragment {
     private boolean lastPlayingState = false;
     private boolean lastHasPrevious = false;
     private boolean lastHasNext = false;
-    private ImageButton btnLoop, btnAddPlaylist;
+    private ImageButton btnLoop, btnShuffle, btnAddPlaylist;
 
 
     // uttile pour la détection de quand on secoue le téléphone
@@ -143,6 +146,15 @@ public class MusicPlayFragment extends Fragment {
         return fragment;
     }
 
+    // Méthode factory pour lancer toute la bibliothèque en aléatoire
+    public static MusicPlayFragment newShuffleAllInstance() {
+        MusicPlayFragment fragment = new MusicPlayFragment();
+        Bundle args = new Bundle();
+        args.putBoolean("SHUFFLE_ALL", true);
+        fragment.setArguments(args);
+        return fragment;
+    }
+
     // Méthode factory pour créer une instance vide (synchronisation avec service)
     public static MusicPlayFragment newInstance() {
         return new MusicPlayFragment();
@@ -158,17 +170,6 @@ public class MusicPlayFragment extends Fragment {
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
-        // Vérifier si on a un nouveau fichier dans les arguments
-        String filePath = null;
-        if (getArguments() != null) {
-            filePath = getArguments().getString("FILE_PATH");
-        }
-
-        if (filePath != null) {
-            // musique trouvé : instancier
-            music = new Music(filePath);
-        }
-
         // --- on declare les listeners ---
 
         // Listener de secousse du telephone
@@ -196,10 +197,14 @@ public class MusicPlayFragment extends Fragment {
 
         setupUI(view);
 
-        // Si nouvelle musique, démarrer le service
-        if (music != null && getArguments() != null && getArguments().containsKey("FILE_PATH")) {
-            startMusicService();
+        // Si nouvelle musique, la charger puis démarrer le service
+        if (getArguments() != null && getArguments().getString("FILE_PATH") != null) {
+            String filePath = getArguments().getString("FILE_PATH");
             getArguments().remove("FILE_PATH");
+            loadMusicAndStartService(filePath);
+        } else if (getArguments() != null && getArguments().getBoolean("SHUFFLE_ALL")) {
+            getArguments().remove("SHUFFLE_ALL");
+            startShuffleAllService();
         } else {
             // Se connecter au service existant
             bindToExistingService();
@@ -226,11 +231,34 @@ public class MusicPlayFragment extends Fragment {
                 updateUI();
                 updateNavigationButtons();
                 updatePlayPauseButton();
-                updateLoopButton(musicService.isLooping());
+                updateLoopButton(musicService.isLooping() || musicService.isRepeatAll());
+                updateShuffleButton(musicService.isShuffleEnabled());
             }
         }
     }
 
+    // charger la musique depuis l'index de la bibliothèque sur la voie prioritaire du pool de métadonnées
+    // puis démarrer le service sur le thread principal
+    private void loadMusicAndStartService(String filePath) {
+        MusicLibrary library = MusicLibrary.getInstance(requireContext());
+
+        MetadataExecutor.getInstance().submit(MetadataExecutor.LANE_VISIBLE, filePath,
+                () -> library.getMusic(filePath),
+                result -> {
+                    if (!isAdded()) return;
+
+                    if (result == null) {
+                        android.util.Log.e("MusicPlayFragment", "Impossible de charger la musique: " + filePath);
+                        Toast.makeText(requireContext(), "Fichier audio invalide ou corrompu", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+
+                    music = result;
+                    updateUI();
+                    startMusicService();
+                });
+    }
+
     // Se connecter à un service existant sans en créer un nouveau
     private void bindToExistingService() {
         Intent serviceIntent = new Intent(requireContext(), MusicPlayService.class);
@@ -317,39 +345,45 @@ public class MusicPlayFragment extends Fragment {
         });
 
         btnLoop = view.findViewById(R.id.btn_repeat);
+        btnShuffle = view.findViewById(R.id.btn_shuffle);
         btnAddPlaylist = view.findViewById(R.id.btn_add_playlist);
 
         btnLoop.setOnClickListener(v -> {
             if (isBound && musicService != null) {
-                boolean newLoopState = !musicService.isLooping(); // inverse l'état
-                musicService.setLooping(newLoopState); // applique l'état
-                updateLoopButton(newLoopState); // met à jour l'UI
+                // on passe de : pas de répétition -> toute la queue -> une seule musique -> pas de répétition
+                String message;
+                if (musicService.isLooping()) {
+                    musicService.setLooping(false);
+                    message = "Répétition désactivée";
+                } else if (musicService.isRepeatAll()) {
+                    musicService.setRepeatAll(false);
+                    musicService.setLooping(true);
+                    message = "Répéter la musique";
+                } else {
+                    musicService.setRepeatAll(true);
+                    message = "Répéter toute la file";
+                }
+                Toast.makeText(requireContext(), message, Toast.LENGTH_SHORT).show();
+                updateLoopButton(musicService.isLooping() || musicService.isRepeatAll()); // met à jour l'UI
+                updateNavigationButtons();
             }
         });
 
-        btnAddPlaylist.setOnClickListener(v -> {
-            if (!isBound || musicService == null || music == null) return;
-
-            String[] playlists = musicService.getAvailablePlaylists();
-
-            if (playlists.length == 0) {
-                Toast.makeText(requireContext(), "Aucune playlist disponible", Toast.LENGTH_SHORT).show();
-                return;
+        btnShuffle.setOnClickListener(v -> {
+            if (isBound && musicService != null) {
+                boolean newShuffleState = !musicService.isShuffleEnabled(); // inverse l'état
+                musicService.setShuffle(newShuffleState);
+                updateShuffleButton(newShuffleState);
+                updateNavigationButtons();
             }
+        });
+
+        // ajouter la musique en cours à une playlist de la base
+        btnAddPlaylist.setOnClickListener(v -> {
+            if (music == null) return;
 
-            new AlertDialog.Builder(requireContext())
-                    .setTitle("Ajouter à une playlist")
-                    .setItems(playlists, (dialog, which) -> {
-                        String selectedPlaylist = playlists[which];
-                        musicService.addToPlaylist(music, selectedPlaylist);
-                        Toast.makeText(
-                                requireContext(),
-                                "Ajouté à \"" + selectedPlaylist + "\"",
-                                Toast.LENGTH_SHORT
-                        ).show();
-                    })
-                    .setNegativeButton("Annuler", null)
-                    .show();
+            String path = music.getFilePath();
+            AddToPlaylistDialog.show(requireActivity(), () -> Collections.singletonList(path));
         });
     }
 
@@ -361,12 +395,15 @@ public class MusicPlayFragment extends Fragment {
         txtArtist.setText(music.getArtist());
         txtAlbum.setText(music.getAlbum());
 
-        // Utiliser getCoverOrLoad() pour recharger la cover si elle est null (cas du Parcelable)
-        Bitmap cover = music.getCoverOrLoad();
+        // cover à la taille de la page de lecture : directement si elle est en memoire,
+        // sinon placeholder puis chargement depuis le cache disque / le fichier en arriere plan
+        CoverCache coverCache = CoverCache.getInstance(requireContext());
+        Bitmap cover = coverCache.getFromMemory(music, CoverCache.CoverSize.PLAYER);
         if (cover != null) {
             imgCover.setImageBitmap(cover);
         } else {
             imgCover.setImageResource(R.drawable.music_placeholder);
+            loadCover(coverCache, music);
         }
 
         // seulement si le service est connecté
@@ -379,6 +416,21 @@ public class MusicPlayFragment extends Fragment {
         }
     }
 
+    // charger la cover d'une musique dans un thread separé puis l'afficher
+    private void loadCover(CoverCache coverCache, Music musicToLoad) {
+        new Thread(() -> {
+            Bitmap cover = coverCache.getCover(musicToLoad, CoverCache.CoverSize.PLAYER);
+            if (cover == null || getActivity() == null) return;
+
+            getActivity().runOnUiThread(() -> {
+                // la musique affichée a pu changer pendant le chargement
+                if (music == musicToLoad && imgCover != null) {
+                    imgCover.setImageBitmap(cover);
+                }
+            });
+        }).start();
+    }
+
     // Methode qui met a jour l'icon du bouton play/pause selon si le service de musique est en train de jouer une musique
     private void updatePlayPauseButton() {
         if (isBound && musicService != null) {
@@ -460,6 +512,16 @@ public class MusicPlayFragment extends Fragment {
         return String.format(Locale.FRANCE, "%d:%02d", minutes, remainingSeconds);
     }
 
+    // lancer le service sur toute la bibliothèque en aléatoire
+    // la premiere musique est choisie par le service, l'UI se met à jour via le listener
+    private void startShuffleAllService() {
+        Intent serviceIntent = new Intent(requireContext(), MusicPlayService.class);
+        serviceIntent.setAction(MusicPlayService.ACTION_PLAY_ALL_SHUFFLED);
+        requireContext().startService(serviceIntent);
+
+        requireContext().bindService(serviceIntent, connection, android.content.Context.BIND_AUTO_CREATE);
+    }
+
     private void startMusicService() {
         Intent serviceIntent = new Intent(requireContext(), MusicPlayService.class);
         serviceIntent.putExtra("MUSIC", music);
@@ -510,4 +572,10 @@ public class MusicPlayFragment extends Fragment {
 
         btnLoop.setAlpha(isLooping ? 1f : 0.4f); // simple et clair
     }
+
+    private void updateShuffleButton(boolean isShuffle) {
+        if (btnShuffle == null) return;
+
+        btnShuffle.setAlpha(isShuffle ? 1f : 0.4f);
+    }
 }
@@ -25,21 +25,23 @@ import com.example.matonique.adapter.FileExplorerAdapter;
 import com.example.matonique.R;
 import com.example.matonique.activity.MainActivity;
 import com.example.matonique.adapter.PlaylistAdapter;
-import com.example.matonique.database.PlaylistDao;
-import com.example.matonique.database.PlaylistDatabase;
-import com.example.matonique.database.PlaylistEntity;
+import com.example.matonique.library.MusicLibrary;
+import com.example.matonique.library.PlaylistEditor;
+import com.example.matonique.library.PlaylistStore;
 import com.example.matonique.model.FileItem;
 import com.example.matonique.model.Playlist;
 import com.example.matonique.utils.M3UParser;
+import com.example.matonique.utils.SectionIndex;
+import com.example.matonique.views.FastScrollBar;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 // Fragment pour gerer les playlists
 // permet d'afficher les playlists sauvegardé dans la base de donnée
-// et de parcourir les fichiers pour trouver de nouvelles playlists au format m3u
+// et de parcourir les fichiers pour importer de nouvelles playlists au format m3u
 public class PlaylistFragment extends Fragment implements PlaylistAdapter.OnPlaylistClickListener, FileExplorerAdapter.OnItemClickListener {
 
     // enum pour savoir quel mode d'affichage on est (liste des playlists ou contenu d'une playlist)
@@ -50,13 +52,20 @@ public class PlaylistFragment extends Fragment implements PlaylistAdapter.OnPlay
     }
 
     private RecyclerView recyclerView;
+    private FastScrollBar fastScrollBar; // lettres pour le défilement rapide de la liste des playlists
     private TextView txtEmpty;
     private Button btnViewPlaylists;
     private Button btnFindPlaylist;
     private Button btnAddMusic;
     private ViewMode currentMode = ViewMode.PLAYLISTS_LIST;
     private Playlist currentPlaylist; // playlist actuellement affichée
-    private PlaylistDao playlistDao;
+    private PlaylistStore playlistStore;
+
+    // un seul adapter par mode, gardés pour toute la vie du fragment :
+    // les mises à jour ne redessinent que les lignes modifiées
+    private PlaylistAdapter playlistsAdapter;
+    private FileExplorerAdapter contentAdapter;
+    private int shownPlaylistId = -1; // playlist dont le contenu est dans contentAdapter
 
     // launcher pour ouvrir le file picker
     private final ActivityResultLauncher<Intent> filePickerLauncher = registerForActivityResult(
@@ -70,8 +79,7 @@ public class PlaylistFragment extends Fragment implements PlaylistAdapter.OnPlay
                         if (currentMode == ViewMode.FILE_BROWSER) {
                             handleM3UFileSelected(uri);
                         } else if (currentMode == ViewMode.PLAYLIST_CONTENT && currentPlaylist != null) {
-                            addMusicToPlaylist(currentPlaylist.getFilePath(), path);
-                            showPlaylistContent(currentPlaylist);
+                            addMusicToPlaylist(currentPlaylist, path);
                         }
                     }
                 }
@@ -88,8 +96,8 @@ public class PlaylistFragment extends Fragment implements PlaylistAdapter.OnPlay
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
-        // initialiser la base de donnée
-        playlistDao = PlaylistDatabase.getInstance(requireContext()).playlistDao();
+        // initialiser l'accès aux playlists de la base
+        playlistStore = new PlaylistStore(requireContext());
     }
 
     @Override
@@ -107,6 +115,12 @@ public class PlaylistFragment extends Fragment implements PlaylistAdapter.OnPlay
         btnAddMusic = view.findViewById(R.id.btn_add_music);
 
         recyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
+        fastScrollBar = view.findViewById(R.id.fast_scroll_bar);
+        fastScrollBar.attachTo(recyclerView, view.findViewById(R.id.txt_section_bubble));
+        if (playlistsAdapter == null) {
+            playlistsAdapter = new PlaylistAdapter(this);
+            contentAdapter = new FileExplorerAdapter(this);
+        }
 
         // bouton "Ajouter musique" invisible par défaut
         btnAddMusic.setVisibility(View.GONE);
@@ -139,29 +153,53 @@ public class PlaylistFragment extends Fragment implements PlaylistAdapter.OnPlay
         btnAddMusic.setVisibility(View.GONE);
 
         // charger les playlists depuis la base dans un thread separer
+        // une seule requete avec le nombre de musiques, les m3u ne sont relus que s'ils ont changé
         new Thread(() -> {
-            List<PlaylistEntity> entities = playlistDao.getAllPlaylists();
-            List<Playlist> playlists = new ArrayList<>();
-
-            // convertir les entités en objets Playlist et parser les fichiers m3u
-            for (PlaylistEntity entity : entities) {
-                Playlist playlist = new Playlist(entity.getId(), entity.getName(), entity.getFilePath());
-                List<String> musicPaths = M3UParser.parsePlaylist(entity.getFilePath());
-                playlist.setMusicPaths(musicPaths);
-                playlists.add(playlist);
+            List<Playlist> playlists = playlistStore.getPlaylists();
+            List<String> names = new ArrayList<>(playlists.size());
+            for (Playlist playlist : playlists) {
+                names.add(playlist.getName());
             }
+            // les playlists sont triées par nom
+            SectionIndex sections = SectionIndex.build(names);
 
             // mettre a jour l'UI sur le thread principal
             if (getActivity() != null) {
                 getActivity().runOnUiThread(() -> {
-                    PlaylistAdapter adapter = new PlaylistAdapter(playlists, this);
-                    recyclerView.setAdapter(adapter);
+                    // l'utilisateur a pu ouvrir une playlist pendant le chargement
+                    if (currentMode != ViewMode.PLAYLISTS_LIST || getView() == null) return;
+
+                    playlistsAdapter.submitList(playlists);
+                    showAdapter(playlistsAdapter);
+                    fastScrollBar.setSections(sections);
                     toggleEmptyView(playlists.isEmpty());
                 });
             }
         }).start();
     }
 
+    // ouvrir une playlist (elle devient la playlist courante) : lire ses musiques dans la base puis les afficher
+    // son m3u est d'abord réimporté s'il a été modifié par une autre appli (un seul stat sinon)
+    // l'existence des fichiers n'est pas vérifiée ici : elle l'est page par page à l'affichage du contenu
+    // et en une vérification groupée au lancement de la lecture
+    private void openPlaylist(Playlist playlist) {
+        currentMode = ViewMode.PLAYLIST_CONTENT;
+        currentPlaylist = playlist;
+
+        new Thread(() -> {
+            playlistStore.syncM3U(playlist.getId());
+            playlistStore.loadItems(playlist);
+
+            if (getActivity() == null) return;
+            getActivity().runOnUiThread(() -> {
+                if (getView() == null) return;
+                // l'utilisateur a pu revenir à la liste ou ouvrir une autre playlist pendant le chargement
+                if (currentMode != ViewMode.PLAYLIST_CONTENT || currentPlaylist != playlist) return;
+                showPlaylistContent(playlist);
+            });
+        }).start();
+    }
+
     // afficher le contenu d'une playlist (les musiques qu'elle contient)
     private void showPlaylistContent(Playlist playlist) {
         currentMode = ViewMode.PLAYLIST_CONTENT;
@@ -170,19 +208,28 @@ public class PlaylistFragment extends Fragment implements PlaylistAdapter.OnPlay
         // afficher le bouton "Ajouter musique"
         btnAddMusic.setVisibility(View.VISIBLE);
 
-        // creer une liste d'items pour le FileExplorerAdapter
-        List<FileItem> items = new ArrayList<>();
-        for (String musicPath : playlist.getMusicPaths()) {
-            File file = new File(musicPath);
-            if (file.exists()) {
-                items.add(new FileItem(musicPath, file.getName(), false));
-            }
+        // reutiliser le FileExplorerAdapter pour afficher les musiques
+        // les lignes sont chargées par pages depuis l'index pendant le défilement :
+        // ouvrir une grosse playlist ne coute pas plus cher qu'une petite
+        List<String> paths = playlist.getMusicPaths() != null ? playlist.getMusicPaths() : new ArrayList<>();
+        if (playlist.getId() != shownPlaylistId) {
+            // autre playlist : rien à comparer avec le contenu précédent
+            contentAdapter.submitList(null);
+            shownPlaylistId = playlist.getId();
         }
+        MusicLibrary library = MusicLibrary.getInstance(requireContext());
+        contentAdapter.submitPager(library.getPathsPager(paths, playlist.getDisplayNames()));
+        showAdapter(contentAdapter);
+        // le contenu garde l'ordre choisi par l'utilisateur : pas de sections par lettre
+        fastScrollBar.setSections(null);
+        toggleEmptyView(paths.isEmpty());
+    }
 
-        // reutiliser le FileExplorerAdapter pour afficher les musiques
-        FileExplorerAdapter adapter = new FileExplorerAdapter(items, this);
-        recyclerView.setAdapter(adapter);
-        toggleEmptyView(items.isEmpty());
+    // brancher un adapter sur la liste s'il n'y est pas deja (changer d'adapter recrée toutes les lignes)
+    private void showAdapter(RecyclerView.Adapter<?> adapter) {
+        if (recyclerView.getAdapter() != adapter) {
+            recyclerView.setAdapter(adapter);
+        }
     }
 
     // ouvrir le navigateur de fichier pour trouver une playlist m3u
@@ -209,16 +256,17 @@ public class PlaylistFragment extends Fragment implements PlaylistAdapter.OnPlay
         // convertir l'URI en chemin de fichier
         String filePath = getFilePathFromUri(uri);
 
-        if (filePath == null || !filePath.toLowerCase().endsWith(".m3u")) {
+        if (filePath == null || !M3UParser.isPlaylistFile(filePath)) {
             Toast.makeText(requireContext(), "Veuillez sélectionner un fichier M3U", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        // verifier si la playlist existe deja dans la base
+        // importer le m3u dans la base (sauf s'il l'est deja)
         new Thread(() -> {
-            int count = playlistDao.playlistExists(filePath);
+            String name = M3UParser.extractPlaylistName(filePath);
+            Playlist imported = playlistStore.importM3U(filePath, name);
 
-            if (count > 0) {
+            if (imported == null) {
                 if (getActivity() != null) {
                     getActivity().runOnUiThread(() ->
                             Toast.makeText(requireContext(), "Cette playlist existe déjà", Toast.LENGTH_SHORT).show()
@@ -227,11 +275,6 @@ public class PlaylistFragment extends Fragment implements PlaylistAdapter.OnPlay
                 return;
             }
 
-            // sauvegarder la playlist dans la base
-            String name = M3UParser.extractPlaylistName(filePath);
-            PlaylistEntity entity = new PlaylistEntity(filePath, name);
-            playlistDao.insert(entity);
-
             // rafraichir la liste des playlists
             if (getActivity() != null) {
                 getActivity().runOnUiThread(() -> {
@@ -319,7 +362,7 @@ public class PlaylistFragment extends Fragment implements PlaylistAdapter.OnPlay
     @Override
     public void onPlaylistClick(Playlist playlist) {
         // afficher le contenu de la playlist
-        showPlaylistContent(playlist);
+        openPlaylist(playlist);
     }
 
     @Override
@@ -336,16 +379,13 @@ public class PlaylistFragment extends Fragment implements PlaylistAdapter.OnPlay
     // suprimer une playlist de la base de donnée
     private void deletePlaylist(Playlist playlist) {
         new Thread(() -> {
-            PlaylistEntity entity = playlistDao.getPlaylistById(playlist.getId());
-            if (entity != null) {
-                playlistDao.delete(entity);
+            playlistStore.deletePlaylist(playlist.getId());
 
-                if (getActivity() != null) {
-                    getActivity().runOnUiThread(() -> {
-                        Toast.makeText(requireContext(), "Playlist supprimée", Toast.LENGTH_SHORT).show();
-                        showPlaylistsList();
-                    });
-                }
+            if (getActivity() != null) {
+                getActivity().runOnUiThread(() -> {
+                    Toast.makeText(requireContext(), "Playlist supprimée", Toast.LENGTH_SHORT).show();
+                    showPlaylistsList();
+                });
             }
         }).start();
     }
@@ -357,22 +397,31 @@ public class PlaylistFragment extends Fragment implements PlaylistAdapter.OnPlay
         if (currentMode == ViewMode.PLAYLIST_CONTENT && currentPlaylist != null) {
 
             // ne **pas réajouter** la musique ici (c'était le bug précédent)
-            ArrayList<String> playlistPaths = new ArrayList<>(currentPlaylist.getMusicPaths());
+            List<String> entries = new ArrayList<>(currentPlaylist.getMusicPaths());
+            MusicLibrary library = MusicLibrary.getInstance(requireContext());
 
-            // creer un nouveau MusicPlayFragment avec la musique et la playlist
-            MusicPlayFragment fragment = MusicPlayFragment.newInstance(item.getPath(), playlistPaths);
+            new Thread(() -> {
+                // les fichiers manquants sont retirés de la queue (vérification groupée dans l'index)
+                ArrayList<String> playlistPaths = new ArrayList<>(library.filterExistingPaths(entries));
 
-            // remplacer le fragment actuel par le MusicPlayFragment
-            if (getActivity() != null) {
-                getActivity().getSupportFragmentManager().beginTransaction()
-                        .replace(R.id.fragment_container, fragment)
-                        .commit();
+                if (getActivity() == null) return;
+                getActivity().runOnUiThread(() -> {
+                    if (!isAdded()) return;
 
-                // mettre a jour la navbar
-                if (getActivity() instanceof MainActivity) {
-                    ((MainActivity) getActivity()).setSelectedNavItem(R.id.nav_playing);
-                }
-            }
+                    // creer un nouveau MusicPlayFragment avec la musique et la playlist
+                    MusicPlayFragment fragment = MusicPlayFragment.newInstance(item.getPath(), playlistPaths);
+
+                    // remplacer le fragment actuel par le MusicPlayFragment
+                    getActivity().getSupportFragmentManager().beginTransaction()
+                            .replace(R.id.fragment_container, fragment)
+                            .commit();
+
+                    // mettre a jour la navbar
+                    if (getActivity() instanceof MainActivity) {
+                        ((MainActivity) getActivity()).setSelectedNavItem(R.id.nav_playing);
+                    }
+                });
+            }).start();
         }
     }
 
@@ -399,8 +448,7 @@ public class PlaylistFragment extends Fragment implements PlaylistAdapter.OnPlay
                 boolean fileCreated = m3uFile.createNewFile();
                 android.util.Log.d("PLAYLIST", "Fichier créé: " + fileCreated + " -> " + m3uFile.getAbsolutePath());
 
-                PlaylistEntity entity = new PlaylistEntity(m3uFile.getAbsolutePath(), name);
-                playlistDao.insert(entity);
+                playlistStore.createPlaylist(m3uFile.getAbsolutePath(), name);
 
                 requireActivity().runOnUiThread(() -> {
                     Toast.makeText(requireContext(), "Playlist créée", Toast.LENGTH_SHORT).show();
@@ -435,79 +483,47 @@ public class PlaylistFragment extends Fragment implements PlaylistAdapter.OnPlay
                 .show();
     }
 
-    // ajouter une musique dans une playlist à partir du chemin de la playlist et du chemin de la musique
-    private void addMusicToPlaylist(String playlistPath, String musicPath) {
-        try {
-            FileWriter writer = new FileWriter(playlistPath, true); // append = true
-            writer.append(musicPath).append("\n");
-            writer.close();
-
-            requireActivity().runOnUiThread(() ->
-                    Toast.makeText(requireContext(), "Musique ajoutée", Toast.LENGTH_SHORT).show()
-            );
-            // mise à jour du model de playlist déja instancié qui n'est pas à jour avec le fichier que l'on viens de réécrire
-            // lire toutes les lignes
-            List<String> lines = new ArrayList<>();
-            java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.FileReader(playlistPath));
-            String line;
-            while ((line = reader.readLine()) != null) {
-                //ajoute toutes lesl ignes à la liste
-                lines.add(line);
-            }
-            currentPlaylist.setMusicPaths(lines);
-
-        } catch (Exception e) {
-            e.printStackTrace();
-            requireActivity().runOnUiThread(() ->
-                    Toast.makeText(requireContext(), "Erreur ajout musique", Toast.LENGTH_SHORT).show()
-            );
+    // ajouter une musique à une playlist (une modification groupée, le m3u est réécrit en arriere plan)
+    private void addMusicToPlaylist(Playlist playlist, String musicPath) {
+        if (musicPath == null) {
+            Toast.makeText(requireContext(), "Erreur ajout musique", Toast.LENGTH_SHORT).show();
+            return;
         }
+        editPlaylist(playlist, playlistStore.edit(playlist.getId()).add(Collections.singletonList(musicPath)),
+                "Musique ajoutée");
     }
 
-    private void removeMusicFromPlaylist(String playlistPath, String musicPath) {
-        try {
-            File playlistFile = new File(playlistPath);
-            if (!playlistFile.exists()) return;
-
-            // lire toutes les lignes
-            List<String> lines = new ArrayList<>();
-            java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.FileReader(playlistFile));
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (!line.equals(musicPath)) { // garder tout sauf la musique à supprimer
-                    lines.add(line);
-                }
-            }
-            reader.close();
-
-            // réécrire le fichier
-            FileWriter writer = new FileWriter(playlistFile, false); // false = overwrite
-            for (String l : lines) {
-                writer.append(l).append("\n");
-            }
-            writer.close();
-
-            // mettre à jour l'objet currentPlaylist
-            if (currentPlaylist != null) {
-                currentPlaylist.setMusicPaths(lines);
-            }
+    // retirer toutes les occurences d'une musique d'une playlist
+    private void removeMusicFromPlaylist(Playlist playlist, String musicPath) {
+        editPlaylist(playlist, playlistStore.edit(playlist.getId()).remove(musicPath), "Musique supprimée");
+    }
 
-            // rafraîchir l'affichage
-            if (getActivity() != null) {
-                getActivity().runOnUiThread(() -> {
-                    showPlaylistContent(currentPlaylist);
-                    Toast.makeText(requireContext(), "Musique supprimée", Toast.LENGTH_SHORT).show();
-                });
-            }
+    // appliquer une modification en arriere plan puis réafficher la playlist depuis la base
+    // pour un m3u importé, on demande d'abord si l'app peut le réécrire
+    private void editPlaylist(Playlist playlist, PlaylistEditor editor, String doneMessage) {
+        M3UWriteDialog.confirmThen(requireActivity(), playlistStore, playlist,
+                () -> commitEdit(playlist, editor, doneMessage));
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            if (getActivity() != null) {
-                getActivity().runOnUiThread(() ->
-                        Toast.makeText(requireContext(), "Erreur suppression musique", Toast.LENGTH_SHORT).show()
-                );
-            }
-        }
+    private void commitEdit(Playlist playlist, PlaylistEditor editor, String doneMessage) {
+        new Thread(() -> {
+            int count = editor.commit();
+
+            if (getActivity() == null) return;
+            getActivity().runOnUiThread(() -> {
+                if (!isAdded()) return;
+                if (count < 0) {
+                    // playlist suprimée entre temps
+                    Toast.makeText(requireContext(), "Playlist introuvable", Toast.LENGTH_SHORT).show();
+                    showPlaylistsList();
+                    return;
+                }
+                Toast.makeText(requireContext(), doneMessage, Toast.LENGTH_SHORT).show();
+                if (currentMode == ViewMode.PLAYLIST_CONTENT && currentPlaylist == playlist) {
+                    openPlaylist(playlist);
+                }
+            });
+        }).start();
     }
 
     @Override
@@ -516,7 +532,7 @@ public class PlaylistFragment extends Fragment implements PlaylistAdapter.OnPlay
             new AlertDialog.Builder(requireContext())
                     .setTitle("Supprimer la musique")
                     .setMessage("Voulez-vous vraiment supprimer \"" + item.getName() + "\" de la playlist ?")
-                    .setPositiveButton("Supprimer", (dialog, which) -> removeMusicFromPlaylist(currentPlaylist.getFilePath(), item.getPath()))
+                    .setPositiveButton("Supprimer", (dialog, which) -> removeMusicFromPlaylist(currentPlaylist, item.getPath()))
                     .setNegativeButton("Annuler", null)
                     .show();
         }
@@ -1,11 +1,13 @@
 package com.example.matonique.fragments;
 
+import android.app.AlertDialog;
 import android.media.audiofx.Equalizer;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
+import android.widget.Button;
 import android.widget.Spinner;
 import android.widget.Switch;
 import android.widget.Toast;
@@ -16,8 +18,12 @@ import androidx.fragment.app.Fragment;
 
 import com.example.matonique.R;
 import com.example.matonique.activity.MainActivity;
+import com.example.matonique.library.MusicLibrary;
 import com.example.matonique.service.MusicPlayService;
 
+import java.io.File;
+import java.util.List;
+
 /**
  * Fragment pour les paramètres de l'application.
  * Exemple : égaliseur basique avec presets uniquement.
@@ -27,6 +33,7 @@ public class SettingsFragment extends Fragment {
     private Spinner spinnerEqualizerPreset;
     private Equalizer equalizer;
     private Switch switchCrossfade;
+    private Button buttonDuplicates;
 
     public SettingsFragment() {
         // Required empty public constructor
@@ -54,6 +61,7 @@ public class SettingsFragment extends Fragment {
 
         spinnerEqualizerPreset = view.findViewById(R.id.spinner_eq_preset);
         switchCrossfade = view.findViewById(R.id.switch_crossfade);
+        buttonDuplicates = view.findViewById(R.id.button_duplicates);
 
         // ======== ÉGALISEUR ========
         ArrayAdapter<CharSequence> adapter = ArrayAdapter.createFromResource(
@@ -107,6 +115,47 @@ public class SettingsFragment extends Fragment {
                         Toast.LENGTH_SHORT).show();
             }
         });
+
+        // ======== DOUBLONS ========
+        buttonDuplicates.setOnClickListener(v -> showDuplicatesReport());
+    }
+
+    // afficher les fichiers en double de la bibliothèque (meme empreinte de contenu dans l'index)
+    private void showDuplicatesReport() {
+        MusicLibrary library = MusicLibrary.getInstance(requireContext());
+        buttonDuplicates.setEnabled(false);
+
+        new Thread(() -> {
+            List<List<String>> groups = library.getDuplicateGroups();
+
+            StringBuilder report = new StringBuilder();
+            int extraCopies = 0;
+            for (List<String> group : groups) {
+                for (String path : group) {
+                    report.append(new File(path).getName()).append('\n')
+                            .append("   ").append(new File(path).getParent()).append('\n');
+                }
+                report.append('\n');
+                extraCopies += group.size() - 1;
+            }
+            int copies = extraCopies;
+
+            if (getActivity() == null) return;
+            getActivity().runOnUiThread(() -> {
+                if (!isAdded()) return;
+                buttonDuplicates.setEnabled(true);
+
+                if (groups.isEmpty()) {
+                    Toast.makeText(requireContext(), "Aucun doublon trouvé", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                new AlertDialog.Builder(requireContext())
+                        .setTitle(copies + " fichier(s) en double")
+                        .setMessage(report.toString().trim())
+                        .setPositiveButton("OK", null)
+                        .show();
+            });
+        }).start();
     }
 
     @Override
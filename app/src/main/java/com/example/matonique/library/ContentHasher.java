@@ -0,0 +1,193 @@
+package com.example.matonique.library;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// Empreinte partielle du contenu d'un fichier audio
+// on ne lit pas tout le fichier : taille + trois blocs (début, milieu, fin) du son, soit 48 Ko au plus
+// seul le son compte, pas les tags : un fichier retaggé garde son empreinte
+// (tags ID3v2 au début, APEv2 et ID3v1 à la fin, blocs de métadonnées FLAC, atomes autour de mdat en MP4)
+// deux fichiers avec la meme empreinte sont considérés comme identiques :
+// - pour retrouver une musique déplacée ou renommée (elle garde son id dans l'index)
+// - pour le rapport des doublons dans les paramètres
+public class ContentHasher {
+
+    private static final int BLOCK_SIZE = 16 * 1024;
+
+    private static final int ID3V2_HEADER_SIZE = 10;
+    private static final int ID3V1_SIZE = 128;
+    private static final int APE_FOOTER_SIZE = 32;
+    private static final long APE_PREAMBLE = 0x4150455441474558L; // "APETAGEX"
+
+    // calculer l'empreinte d'un fichier, null si le fichier est illisible
+    public static String hash(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long[] audio = findAudio(channel);
+            long start = audio[0];
+            long size = audio[1] - audio[0];
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(ByteBuffer.allocate(8).putLong(0, size));
+
+            ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+            if (size <= 3L * BLOCK_SIZE) {
+                // petit fichier : on lit tout
+                readBlock(channel, start, (int) size, block, digest);
+            } else {
+                readBlock(channel, start, BLOCK_SIZE, block, digest);
+                readBlock(channel, start + size / 2 - BLOCK_SIZE / 2, BLOCK_SIZE, block, digest);
+                readBlock(channel, start + size - BLOCK_SIZE, BLOCK_SIZE, block, digest);
+            }
+            return toHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            android.util.Log.w("ContentHasher", "Empreinte impossible: " + file.getAbsolutePath() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // -------- Zone du son --------
+
+    // début et fin (exclue) du son dans le fichier, sans les tags
+    // un format non reconnu ou un tag abimé laisse le fichier entier
+    private static long[] findAudio(FileChannel channel) throws IOException {
+        long start = 0;
+        long end = channel.size();
+
+        // mp4 / m4a : le son est dans l'atome mdat, les tags dans moov (avant ou apres)
+        ByteBuffer header = read(channel, 0, ID3V2_HEADER_SIZE);
+        if (header != null && header.getInt(4) == fourCC("ftyp")) {
+            long[] mdat = findMdat(channel);
+            return mdat != null ? mdat : new long[]{start, end};
+        }
+
+        // tag ID3v2 au début (aussi devant certains FLAC)
+        if (header != null && header.get(0) == 'I' && header.get(1) == 'D' && header.get(2) == '3') {
+            long tagSize = ID3V2_HEADER_SIZE + syncSafe(header, 6);
+            if ((header.get(5) & 0x10) != 0) {
+                tagSize += ID3V2_HEADER_SIZE; // pied de tag
+            }
+            if (tagSize < end) {
+                start = tagSize;
+            }
+        }
+
+        // blocs de métadonnées FLAC (commentaires, images...) entre "fLaC" et les trames
+        ByteBuffer marker = read(channel, start, 4);
+        if (marker != null && marker.getInt(0) == fourCC("fLaC")) {
+            long position = start + 4;
+            ByteBuffer blockHeader;
+            while ((blockHeader = read(channel, position, 4)) != null) {
+                int value = blockHeader.getInt(0);
+                position += 4 + (value & 0xFFFFFF);
+                if ((value & 0x80000000) != 0) {
+                    // dernier bloc
+                    if (position < end) {
+                        start = position;
+                    }
+                    break;
+                }
+            }
+        }
+
+        // tag ID3v1 à la fin
+        ByteBuffer id3v1 = read(channel, end - ID3V1_SIZE, 3);
+        if (id3v1 != null && id3v1.get(0) == 'T' && id3v1.get(1) == 'A' && id3v1.get(2) == 'G') {
+            end -= ID3V1_SIZE;
+        }
+
+        // tag APEv2 à la fin (avant l'ID3v1 s'il y en a un), repéré par son pied de 32 octets
+        ByteBuffer ape = read(channel, end - APE_FOOTER_SIZE, APE_FOOTER_SIZE);
+        if (ape != null && ape.getLong(0) == APE_PREAMBLE) {
+            ape.order(ByteOrder.LITTLE_ENDIAN);
+            long tagSize = ape.getInt(12) & 0xFFFFFFFFL; // éléments + pied
+            if ((ape.getInt(20) & 0x80000000) != 0) {
+                tagSize += APE_FOOTER_SIZE; // en-tete, de la meme taille que le pied
+            }
+            if (end - tagSize > start) {
+                end -= tagSize;
+            }
+        }
+
+        return end > start ? new long[]{start, end} : new long[]{0, channel.size()};
+    }
+
+    // parcourir les atomes de premier niveau d'un mp4 pour trouver mdat, null s'il n'y en a pas
+    private static long[] findMdat(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        long position = 0;
+        ByteBuffer atom;
+        while ((atom = read(channel, position, 8)) != null) {
+            long size = atom.getInt(0) & 0xFFFFFFFFL;
+            int headerSize = 8;
+            if (size == 1) {
+                // taille sur 64 bits apres le type
+                ByteBuffer largeSize = read(channel, position + 8, 8);
+                if (largeSize == null) return null;
+                size = largeSize.getLong(0);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = fileSize - position; // jusqu'à la fin du fichier
+            }
+            if (size < headerSize) return null; // atome abimé
+
+            if (atom.getInt(4) == fourCC("mdat")) {
+                return new long[]{position + headerSize, Math.min(position + size, fileSize)};
+            }
+            position += size;
+        }
+        return null;
+    }
+
+    // lire length octets à une position, null si le fichier n'a pas assez d'octets à cet endroit
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        if (position < 0 || position + length > channel.size()) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return null;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // taille d'un tag ID3v2 : 4 octets de 7 bits
+    private static int syncSafe(ByteBuffer buffer, int offset) {
+        return (buffer.get(offset) & 0x7F) << 21 | (buffer.get(offset + 1) & 0x7F) << 14
+                | (buffer.get(offset + 2) & 0x7F) << 7 | (buffer.get(offset + 3) & 0x7F);
+    }
+
+    private static int fourCC(String type) {
+        return type.charAt(0) << 24 | type.charAt(1) << 16 | type.charAt(2) << 8 | type.charAt(3);
+    }
+
+    // ajouter length octets à partir de position dans l'empreinte
+    private static void readBlock(FileChannel channel, long position, int length, ByteBuffer block,
+                                  MessageDigest digest) throws IOException {
+        long end = position + length;
+        while (position < end) {
+            block.clear();
+            block.limit((int) Math.min(block.capacity(), end - position));
+            int read = channel.read(block, position);
+            if (read < 0) break;
+            block.flip();
+            digest.update(block);
+            position += read;
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
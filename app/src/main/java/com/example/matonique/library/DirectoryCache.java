@@ -0,0 +1,123 @@
+package com.example.matonique.library;
+
+import android.util.LruCache;
+
+import com.example.matonique.model.FileItem;
+import com.example.matonique.utils.SectionIndex;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Cache en memoire des listings de dossiers deja triés (explorateur et queue de lecture)
+// un listing est valide tant que la date de modification du dossier n'a pas changé :
+// on ne fait qu'un stat du dossier au lieu de le relister et de le retrier
+// le nombre de dossiers gardés est limité, les moins récemment ouverts sont oubliés
+// on garde aussi les sections (lettres) du dossier pour le défilement rapide, calculées une fois avec le listing
+// pour un gros dossier chargé par pages, seules les sections sont gardées
+// ATTENTION : le listing contient les lignes affichées (MusicListFragment.loadDirectory garde les pages
+// de pager.loadPage), avec les titres et sous-titres lus dans l'index, pas seulement les noms
+// un fichier retaggé sans changer de nom ne modifie pas la date du dossier : ces lignes ne restent
+// à jour que parce que MusicLibrary.notifyLibraryChanged appelle invalidate() pour les dossiers modifiés
+// ne pas retirer cette invalidation
+public class DirectoryCache {
+
+    private static final int MAX_DIRECTORIES = 32;
+
+    private static DirectoryCache instance;
+
+    // chemin du dossier -> listing (LruCache est synchronisé, accessible depuis tous les threads)
+    private final LruCache<String, Entry> listings = new LruCache<>(MAX_DIRECTORIES);
+
+    private DirectoryCache() {
+    }
+
+    // methode singleton pour recuperer le cache
+    public static synchronized DirectoryCache getInstance() {
+        if (instance == null) {
+            instance = new DirectoryCache();
+        }
+        return instance;
+    }
+
+    // listing d'un dossier (sous-dossiers puis musiques), null s'il n'est pas en cache ou a changé
+    // la liste retournée n'est pas modifiable
+    public List<FileItem> get(File directory) {
+        Entry entry = getEntry(directory);
+        return entry != null ? entry.items : null;
+    }
+
+    // sections d'un dossier, null si elles ne sont pas en cache ou si le dossier a changé
+    public SectionIndex getSections(File directory) {
+        Entry entry = getEntry(directory);
+        return entry != null ? entry.sections : null;
+    }
+
+    private Entry getEntry(File directory) {
+        String path = directory.getAbsolutePath();
+        Entry entry = listings.get(path);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.lastModified != directory.lastModified()) {
+            // dossier modifié (ou supprimé) depuis le listing
+            listings.remove(path);
+            return null;
+        }
+        return entry;
+    }
+
+    // chemins des musiques d'un dossier dans l'ordre du listing, null s'il n'est pas en cache ou a changé
+    public List<String> getTrackPaths(File directory) {
+        List<FileItem> items = get(directory);
+        if (items == null) {
+            return null;
+        }
+
+        List<String> paths = new ArrayList<>(items.size());
+        for (FileItem item : items) {
+            if (!item.isDirectory()) {
+                paths.add(item.getPath());
+            }
+        }
+        return paths;
+    }
+
+    // garder le listing d'un dossier et calculer ses sections (à appeler hors du thread principal)
+    // lastModified : date du dossier lue AVANT de le lister (un changement pendant le listing invalidera l'entrée)
+    public void put(File directory, long lastModified, List<FileItem> items) {
+        if (lastModified == 0) return; // dossier inexistant ou illisible
+
+        // les sections suivent l'ordre du listing : le nom du fichier, pas le titre affiché
+        List<String> names = new ArrayList<>(items.size());
+        for (FileItem item : items) {
+            names.add(new File(item.getPath()).getName());
+        }
+        listings.put(directory.getAbsolutePath(), new Entry(lastModified,
+                Collections.unmodifiableList(new ArrayList<>(items)), SectionIndex.build(names)));
+    }
+
+    // garder seulement les sections d'un gros dossier chargé par pages
+    public void putSections(File directory, long lastModified, SectionIndex sections) {
+        if (lastModified == 0) return;
+        listings.put(directory.getAbsolutePath(), new Entry(lastModified, null, sections));
+    }
+
+    // oublier le listing d'un dossier (son contenu a changé dans l'index)
+    public void invalidate(String path) {
+        listings.remove(path);
+    }
+
+    private static class Entry {
+        final long lastModified;
+        final List<FileItem> items; // null pour un dossier chargé par pages
+        final SectionIndex sections;
+
+        Entry(long lastModified, List<FileItem> items, SectionIndex sections) {
+            this.lastModified = lastModified;
+            this.items = items;
+            this.sections = sections;
+        }
+    }
+}
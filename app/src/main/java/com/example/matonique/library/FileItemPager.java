@@ -0,0 +1,21 @@
+package com.example.matonique.library;
+
+import com.example.matonique.model.FileItem;
+
+import java.util.List;
+
+// Source de lignes chargées par pages (gros dossier, grosse playlist)
+// le nombre de lignes est connu dès le départ, les lignes elles memes ne sont lues
+// qu'au moment où elles vont etre affichées (voir FileExplorerAdapter.submitPager)
+public interface FileItemPager {
+
+    // nombre de lignes chargées par page
+    int PAGE_SIZE = 100;
+
+    // nombre total de lignes (deja connu, sans acces à la base ni au disque)
+    int getCount();
+
+    // charger les lignes [offset, offset + limit)
+    // ATTENTION : à appeler hors du thread principal
+    List<FileItem> loadPage(int offset, int limit);
+}
@@ -0,0 +1,182 @@
+package com.example.matonique.library;
+
+import android.content.Context;
+
+import com.example.matonique.database.DirectoryEntity;
+import com.example.matonique.database.TrackEntity;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Scanner incrémental de la bibliothèque musicale
+// parcourt les dossiers à partir d'une racine et enregistre le resultat dans l'index
+// on garde la date de modification de chaque dossier : si elle n'a pas changé,
+// on ne relist pas le dossier et on descend directement dans ses sous-dossiers connus
+// NOTE : un fichier retaggé sans changer de nom ne modifie pas la date du dossier,
+// il sera quand meme remis à jour par MusicLibrary.getMusic() (taille + date du fichier)
+// les suppressions sont appliquées à la fin du scan : un fichier déplacé vers un dossier scanné
+// plus tard peut ainsi retrouver son ancienne entrée grace à son empreinte (ContentHasher)
+public class LibraryScanner {
+
+    // un seul scan à la fois dans l'app (service de scan et surveillance des dossiers)
+    private static final Object SCAN_LOCK = new Object();
+
+    private final MusicLibrary library;
+
+    public LibraryScanner(Context context) {
+        library = MusicLibrary.getInstance(context);
+    }
+
+    // scanner une racine de la bibliothèque
+    // retourne l'ensemble des dossiers dont le contenu a changé
+    // ATTENTION : à appeler hors du thread principal
+    public Set<String> scan(File root) {
+        synchronized (SCAN_LOCK) {
+            return scanTree(root, false);
+        }
+    }
+
+    // rescanner un dossier signalé comme modifié (LibraryWatcher)
+    // le dossier est relisté meme si sa date n'a pas changé (un fichier réécrit ne la change pas),
+    // ses sous-dossiers sont parcourus comme pour un scan normal
+    public Set<String> rescan(File directory) {
+        synchronized (SCAN_LOCK) {
+            return scanTree(directory, true);
+        }
+    }
+
+    private Set<String> scanTree(File root, boolean forceRoot) {
+        Set<String> changedFolders = new HashSet<>();
+
+        if (!root.isDirectory()) {
+            // la racine n'existe plus : on oublie tout ce qu'elle contenait
+            library.removeFolderTree(root.getAbsolutePath());
+            return changedFolders;
+        }
+
+        // les genres MediaStore (Android 10) sont rechargés une fois par scan
+        library.getMetadataProvider().clearCache();
+
+        Deque<File> pending = new ArrayDeque<>();
+        pending.push(root);
+
+        // ce qui a disparu du disque, retiré de l'index à la fin
+        List<String> removedTrackPaths = new ArrayList<>();
+        List<String> removedFolders = new ArrayList<>();
+
+        while (!pending.isEmpty()) {
+            File directory = pending.pop();
+            String path = directory.getAbsolutePath();
+
+            // lire la date AVANT de lister : un changement pendant le listing sera vu au prochain scan
+            long lastModified = directory.lastModified();
+            DirectoryEntity known = library.getDirectoryDao().getDirectory(path);
+
+            boolean forced = forceRoot && directory == root;
+            if (known != null && known.getLastModified() == lastModified && !forced) {
+                // dossier inchangé : descendre dans les sous-dossiers deja connus
+                for (DirectoryEntity child : library.getDirectoryDao().getChildDirectories(path)) {
+                    pending.push(new File(child.getPath()));
+                }
+                continue;
+            }
+
+            // une erreur sur un dossier ne doit pas arreter le scan du reste de l'arbre :
+            // le dossier n'est pas enregistré dans l'index et sera relisté au prochain scan
+            try {
+                if (scanDirectory(directory, lastModified, pending, removedTrackPaths, removedFolders)) {
+                    changedFolders.add(path);
+                }
+            } catch (RuntimeException e) {
+                android.util.Log.e("LibraryScanner", "Erreur pendant le scan de " + path + ": " + e.getMessage(), e);
+            }
+        }
+
+        if (!removedTrackPaths.isEmpty() || !removedFolders.isEmpty()) {
+            library.applyRemovals(removedTrackPaths, removedFolders);
+        }
+
+        if (!changedFolders.isEmpty()) {
+            library.notifyLibraryChanged(changedFolders);
+        }
+        return changedFolders;
+    }
+
+    // lister un dossier nouveau ou modifié et mettre a jour l'index
+    // les sous-dossiers trouvés sont ajoutés à la pile pending,
+    // les musiques et dossiers disparus à removedTrackPaths et removedFolders
+    // retourne false si le dossier est illisible
+    private boolean scanDirectory(File directory, long lastModified, Deque<File> pending,
+                                  List<String> removedTrackPaths, List<String> removedFolders) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            android.util.Log.w("LibraryScanner", "Dossier illisible: " + directory.getAbsolutePath());
+            return false;
+        }
+
+        String path = directory.getAbsolutePath();
+
+        // ce que l'index connait deja de ce dossier
+        Map<String, TrackEntity> knownTracks = new HashMap<>();
+        for (TrackEntity track : library.getTrackDao().getTracksInFolder(path)) {
+            knownTracks.put(track.getFilePath(), track);
+        }
+        Set<String> knownFolders = new HashSet<>();
+        for (DirectoryEntity child : library.getDirectoryDao().getChildDirectories(path)) {
+            knownFolders.add(child.getPath());
+        }
+
+        // fichiers nouveaux ou modifiés, avec leur entrée actuelle dans l'index (null si nouveau)
+        Map<File, TrackEntity> filesToRead = new HashMap<>();
+        for (File file : files) {
+            if (file.isDirectory()) {
+                // ignorer les dossiers cachés (.thumbnails, .trash...)
+                if (file.getName().startsWith(".")) continue;
+
+                knownFolders.remove(file.getAbsolutePath());
+                pending.push(file);
+            } else if (MusicLibrary.isMusicFile(file.getName())) {
+                TrackEntity known = knownTracks.remove(file.getAbsolutePath());
+                if (known != null && known.isUpToDate(file.length(), file.lastModified())) {
+                    continue;
+                }
+
+                filesToRead.put(file, known);
+            }
+        }
+
+        // lire les tags de tous les fichiers du dossier en un seul lot (MediaStore puis fichiers inconnus)
+        List<TrackEntity> tracksToSave = new ArrayList<>();
+        if (!filesToRead.isEmpty()) {
+            Map<String, TrackEntity> read = library.readMetadata(new ArrayList<>(filesToRead.keySet()));
+            for (Map.Entry<File, TrackEntity> entry : filesToRead.entrySet()) {
+                TrackEntity track = read.get(entry.getKey().getAbsolutePath());
+                if (track == null) continue; // fichier illisible
+
+                TrackEntity known = entry.getValue();
+                if (known != null) {
+                    track.setId(known.getId());
+                }
+                // empreinte calculée seulement pour les fichiers nouveaux ou modifiés (quelques Ko lus)
+                track.setContentHash(ContentHasher.hash(entry.getKey()));
+                tracksToSave.add(track);
+            }
+        }
+
+        // ce qui reste dans knownTracks et knownFolders n'existe plus sur le disque
+        library.applyFolderChanges(new DirectoryEntity(path, directory.getParent(), lastModified), tracksToSave);
+        removedTrackPaths.addAll(knownTracks.keySet());
+        removedFolders.addAll(knownFolders);
+
+        android.util.Log.d("LibraryScanner", "Dossier scanné: " + path + " (" + tracksToSave.size()
+                + " indexées, " + knownTracks.size() + " retirées)");
+        return true;
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.matonique.library;
+
+import android.content.Context;
+import android.os.FileObserver;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Surveillance des racines de la bibliothèque pour garder l'index à jour sans rescanner tout
+// un FileObserver (inotify) par dossier indexé : aucun thread ne tourne tant que rien ne change
+// les évènements sont regroupés : on attend une courte pause (copie en cours, plusieurs fichiers...)
+// puis on rescanne seulement les dossiers touchés avec LibraryScanner.rescan
+// si on n'a pas pu surveiller tous les dossiers, un évènement rescanne toute la racine concernée
+// (scan incrémental : seuls les dossiers modifiés sont relistés)
+// ce que les observers ne voient pas est rattrapé par revalidate(), au retour dans l'app :
+// - les évènements perdus par le noyau : IN_Q_OVERFLOW arrive avec wd=-1, aucun FileObserver
+//   de dossier ne le reçoit, on ne peut pas le détecter ici
+// - un startWatching qui échoue (limite de surveillance atteinte par d'autres apps) : FileObserver ne le signale pas
+public class LibraryWatcher {
+
+    // évènements qui modifient le contenu d'un dossier
+    private static final int WATCH_MASK = FileObserver.CREATE | FileObserver.DELETE
+            | FileObserver.MOVED_FROM | FileObserver.MOVED_TO | FileObserver.CLOSE_WRITE
+            | FileObserver.DELETE_SELF | FileObserver.MOVE_SELF;
+
+    // attente sans nouvel évènement avant de rescanner, et attente max pendant une longue copie
+    private static final long SETTLE_DELAY_MS = 1500;
+    private static final long MAX_DELAY_MS = 5000;
+
+    // on garde de la marge sur la limite du systeme (partagée avec les autres apps de l'utilisateur)
+    private static final int DEFAULT_MAX_WATCHES = 8192;
+
+    // délai minimum entre deux revalidations (l'activité peut etre reprise souvent)
+    private static final long REVALIDATE_INTERVAL_MS = 60_000;
+
+    private static LibraryWatcher instance;
+
+    private final MusicLibrary library;
+    private final LibraryScanner scanner;
+    private final Handler handler;
+    private final int maxWatches;
+
+    // observers actifs par chemin de dossier (on garde une référence sinon ils sont libérés)
+    private final Map<String, DirectoryObserver> observers = new HashMap<>();
+    private final Set<String> roots = new LinkedHashSet<>();
+    // racines dont tous les dossiers n'ont pas pu etre surveillés
+    private final Set<String> partialRoots = new HashSet<>();
+
+    // dossiers modifiés en attente de rescan (accédés seulement sur le thread du handler)
+    private final Set<String> dirtyFolders = new HashSet<>();
+    private final Set<String> dirtyRoots = new HashSet<>();
+    private long firstDirtyTime = 0;
+    private long lastRevalidateTime = 0;
+
+    private final Runnable flushRunnable = this::flush;
+
+    private LibraryWatcher(Context context) {
+        library = MusicLibrary.getInstance(context);
+        scanner = new LibraryScanner(context);
+        maxWatches = readMaxWatches() / 2;
+
+        HandlerThread thread = new HandlerThread("LibraryWatcher");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    // methode singleton pour recuperer le surveillant
+    public static synchronized LibraryWatcher getInstance(Context context) {
+        if (instance == null) {
+            instance = new LibraryWatcher(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // surveiller une racine de la bibliothèque (à appeler apres un scan, l'index doit connaitre ses dossiers)
+    // sans effet si elle est deja surveillée, à part la mise a jour des dossiers surveillés
+    public void watch(File root) {
+        handler.post(() -> {
+            roots.add(root.getAbsolutePath());
+            syncObservers();
+        });
+    }
+
+    // revalider l'index contre le disque : chaque racine surveillée est rescannée en incrémental,
+    // seuls les dossiers dont la date ne correspond plus à l'index sont relistés
+    // à appeler au retour dans l'app (onResume), sans effet si la derniere revalidation est trop récente
+    public void revalidate() {
+        handler.post(() -> {
+            long now = SystemClock.uptimeMillis();
+            if (roots.isEmpty()) return;
+            if (lastRevalidateTime != 0 && now - lastRevalidateTime < REVALIDATE_INTERVAL_MS) return;
+            lastRevalidateTime = now;
+            dirtyRoots.addAll(roots);
+            scheduleFlush();
+        });
+    }
+
+    // -------- Observers --------
+
+    // aligner les observers sur les dossiers de l'index (nouveaux dossiers, dossiers supprimés)
+    // ATTENTION : sur le thread du handler
+    private void syncObservers() {
+        Set<String> wanted = new HashSet<>();
+        partialRoots.clear();
+
+        for (String root : roots) {
+            List<String> folders = library.getIndexedFoldersUnder(new File(root));
+            for (String folder : folders) {
+                if (wanted.size() >= maxWatches) {
+                    // plus de surveillance possible : cette racine sera rescannée en entier
+                    partialRoots.add(root);
+                    break;
+                }
+                wanted.add(folder);
+            }
+        }
+
+        // arreter les observers des dossiers disparus
+        observers.keySet().removeIf(path -> {
+            if (wanted.contains(path)) return false;
+            observers.get(path).stopWatching();
+            return true;
+        });
+
+        for (String path : wanted) {
+            if (observers.containsKey(path)) continue;
+            DirectoryObserver observer = new DirectoryObserver(new File(path));
+            observer.startWatching();
+            observers.put(path, observer);
+        }
+
+        if (!partialRoots.isEmpty()) {
+            android.util.Log.w("LibraryWatcher", "Limite de surveillance atteinte (" + maxWatches
+                    + " dossiers), rescan complet pour: " + partialRoots);
+        }
+        android.util.Log.d("LibraryWatcher", observers.size() + " dossier(s) surveillé(s)");
+    }
+
+    // appelé sur le thread des FileObserver : on passe sur le thread du handler
+    private void onDirectoryEvent(String path, int event) {
+        handler.post(() -> {
+            String folder = path;
+            if ((event & (FileObserver.DELETE_SELF | FileObserver.MOVE_SELF)) != 0) {
+                // le dossier lui meme a disparu : c'est son parent qu'il faut rescanner
+                // (sauf pour une racine, qu'on rescanne pour l'oublier)
+                String parent = new File(path).getParent();
+                if (parent != null && findRoot(parent) != null) {
+                    folder = parent;
+                }
+            }
+
+            dirtyFolders.add(folder);
+            // racine surveillée partiellement : les sous-dossiers non surveillés ont pu changer aussi
+            String root = findRoot(folder);
+            if (root != null && partialRoots.contains(root)) dirtyRoots.add(root);
+            scheduleFlush();
+        });
+    }
+
+    // attendre que les évènements se calment avant de rescanner
+    private void scheduleFlush() {
+        long now = SystemClock.uptimeMillis();
+        if (firstDirtyTime == 0) {
+            firstDirtyTime = now;
+        }
+        handler.removeCallbacks(flushRunnable);
+        long delay = Math.min(SETTLE_DELAY_MS, firstDirtyTime + MAX_DELAY_MS - now);
+        handler.postDelayed(flushRunnable, Math.max(0, delay));
+    }
+
+    // rescanner les dossiers modifiés puis mettre à jour les observers
+    private void flush() {
+        firstDirtyTime = 0;
+        Set<String> folders = new HashSet<>(dirtyFolders);
+        Set<String> rootsToScan = new HashSet<>(dirtyRoots);
+        dirtyFolders.clear();
+        dirtyRoots.clear();
+
+        long startTime = SystemClock.uptimeMillis();
+        try {
+            for (String root : rootsToScan) {
+                scanner.scan(new File(root));
+            }
+            for (String folder : folders) {
+                // hors bibliothèque, ou deja couvert par le scan de sa racine
+                String root = findRoot(folder);
+                if (root == null || rootsToScan.contains(root)) continue;
+                scanner.rescan(new File(folder));
+            }
+        } catch (Exception e) {
+            android.util.Log.e("LibraryWatcher", "Erreur pendant le rescan: " + e.getMessage(), e);
+        }
+        android.util.Log.d("LibraryWatcher", (folders.size() + rootsToScan.size()) + " dossier(s) rescanné(s) en "
+                + (SystemClock.uptimeMillis() - startTime) + "ms");
+
+        syncObservers();
+    }
+
+    // racine surveillée contenant un dossier
+    private String findRoot(String folder) {
+        for (String root : roots) {
+            if (folder.equals(root) || folder.startsWith(root + "/")) {
+                return root;
+            }
+        }
+        return null;
+    }
+
+    // nombre max de dossiers surveillables par utilisateur (limite du noyau)
+    private static int readMaxWatches() {
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/sys/fs/inotify/max_user_watches"))) {
+            return Integer.parseInt(reader.readLine().trim());
+        } catch (IOException | RuntimeException e) {
+            return DEFAULT_MAX_WATCHES;
+        }
+    }
+
+    // observer d'un dossier : signale au surveillant tout changement de son contenu
+    private class DirectoryObserver extends FileObserver {
+        private final String path;
+
+        DirectoryObserver(File directory) {
+            super(directory, WATCH_MASK);
+            path = directory.getAbsolutePath();
+        }
+
+        @Override
+        public void onEvent(int event, String name) {
+            // fichiers temporaires ou cachés (.pending-..., .trashed-...) : le dossier sera vu au prochain vrai changement
+            if (name != null && name.startsWith(".")) return;
+            onDirectoryEvent(path, event);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.matonique.library;
+
+import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Pool de threads partagé pour la lecture des métadonnées (tags, index)
+// deux voies de priorité :
+// - LANE_VISIBLE    : lignes affichées à l'écran, toujours servies en premier
+// - LANE_BACKGROUND : le reste (scan de la bibliothèque...)
+// dans une meme voie les demandes sont servies dans l'ordre d'arrivée
+// une demande annulée (ligne sortie de l'écran) est retirée de la file
+// le nombre de threads suit le nombre de coeurs, et les fichiers sur stockage amovible (carte SD, USB)
+// sont limités à quelques lectures en parallele : ces supports s'effondrent en accès aléatoires
+public class MetadataExecutor {
+
+    public static final int LANE_VISIBLE = 0;
+    public static final int LANE_BACKGROUND = 1;
+
+    // lectures simultanées max sur un stockage amovible
+    private static final int REMOVABLE_PARALLELISM = 2;
+    private static final int MAX_THREADS = 4;
+
+    // Interface pour recevoir le resultat d'une demande sur le thread principal
+    // pas appelée si la demande a été annulée, result est null en cas d'erreur
+    public interface ResultListener<T> {
+        void onResult(T result);
+    }
+
+    private static MetadataExecutor instance;
+
+    private final ThreadPoolExecutor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Semaphore removableStorage = new Semaphore(REMOVABLE_PARALLELISM);
+    // dossier -> sur stockage amovible ou non (evite de redemander au systeme pour chaque fichier)
+    private final Map<String, Boolean> removableFolders = new ConcurrentHashMap<>();
+
+    // vrai sur les threads du pool (pour ne pas attendre le pool depuis le pool)
+    private static final ThreadLocal<Boolean> WORKER = ThreadLocal.withInitial(() -> false);
+
+    private MetadataExecutor() {
+        int threads = Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), MAX_THREADS));
+        AtomicInteger threadCount = new AtomicInteger();
+
+        executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), runnable -> new Thread(() -> {
+                    android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_BACKGROUND);
+                    WORKER.set(true);
+                    runnable.run();
+                }, "MetadataExecutor-" + threadCount.incrementAndGet()));
+        // les threads s'arretent quand il n'y a rien à faire
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    // methode singleton pour recuperer le pool
+    public static synchronized MetadataExecutor getInstance() {
+        if (instance == null) {
+            instance = new MetadataExecutor();
+        }
+        return instance;
+    }
+
+    // lancer une lecture de métadonnées
+    // path : fichier lu (pour limiter les lectures sur stockage amovible)
+    // listener : appelé sur le thread principal avec le resultat (peut etre null)
+    // retourne la demande, à annuler avec cancel(false) quand le resultat n'est plus utile
+    public <T> Future<T> submit(int lane, String path, Callable<T> work, ResultListener<T> listener) {
+        PriorityTask<T> task = new PriorityTask<>(lane, sequence.incrementAndGet(), gate(path, work), listener);
+        executor.execute(task);
+        return task;
+    }
+
+    // lancer une lecture dont on attendra le resultat avec Future.get()
+    public <T> Future<T> submit(int lane, String path, Callable<T> work) {
+        return submit(lane, path, work, null);
+    }
+
+    // vrai si on est sur un thread du pool : attendre une autre demande pourrait bloquer tous les threads
+    public boolean isWorkerThread() {
+        return WORKER.get();
+    }
+
+    // limiter le nombre de lectures en parallele sur un stockage amovible
+    private <T> Callable<T> gate(String path, Callable<T> work) {
+        if (path == null || !isOnRemovableStorage(path)) {
+            return work;
+        }
+        return () -> {
+            removableStorage.acquire();
+            try {
+                return work.call();
+            } finally {
+                removableStorage.release();
+            }
+        };
+    }
+
+    private boolean isOnRemovableStorage(String path) {
+        File file = new File(path);
+        String folder = file.getParent();
+        if (folder == null) return false;
+
+        Boolean removable = removableFolders.get(folder);
+        if (removable == null) {
+            try {
+                removable = Environment.isExternalStorageRemovable(file);
+            } catch (IllegalArgumentException e) {
+                // chemin hors des volumes connus du systeme
+                removable = false;
+            }
+            removableFolders.put(folder, removable);
+        }
+        return removable;
+    }
+
+    // tache du pool, triée par voie puis par ordre d'arrivée
+    private class PriorityTask<T> extends FutureTask<T> implements Comparable<PriorityTask<?>> {
+        private final int lane;
+        private final long order;
+        private final ResultListener<T> listener;
+
+        PriorityTask(int lane, long order, Callable<T> work, ResultListener<T> listener) {
+            super(work);
+            this.lane = lane;
+            this.order = order;
+            this.listener = listener;
+        }
+
+        @Override
+        public int compareTo(PriorityTask<?> other) {
+            if (lane != other.lane) {
+                return Integer.compare(lane, other.lane);
+            }
+            return Long.compare(order, other.order);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                // libérer la place dans la file tout de suite
+                executor.remove(this);
+            }
+            return cancelled;
+        }
+
+        @Override
+        protected void done() {
+            if (listener == null || isCancelled()) return;
+
+            T result;
+            try {
+                result = get();
+            } catch (ExecutionException | InterruptedException e) {
+                android.util.Log.w("MetadataExecutor", "Lecture échouée: " + e.getMessage());
+                result = null;
+            }
+
+            T delivered = result;
+            mainHandler.post(() -> {
+                // la demande a pu etre annulée entre temps (ligne recyclée)
+                if (!isCancelled()) {
+                    listener.onResult(delivered);
+                }
+            });
+        }
+    }
+}
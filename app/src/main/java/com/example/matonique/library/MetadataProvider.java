@@ -0,0 +1,341 @@
+package com.example.matonique.library;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.media.MediaMetadataRetriever;
+import android.net.Uri;
+import android.os.Build;
+import android.provider.MediaStore;
+
+import com.example.matonique.database.TrackEntity;
+import com.example.matonique.model.Music;
+import com.example.matonique.utils.TagReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+// Fournisseur de métadonnées pour l'index de la bibliothèque
+// le systeme indexe deja les fichiers audio dans MediaStore : on lui demande les tags par lots de chemins
+// (une requete pour des centaines de fichiers) au lieu d'ouvrir chaque fichier avec MediaMetadataRetriever
+// les fichiers que MediaStore ne connait pas (ou dont son entrée est plus ancienne que le fichier)
+// sont lus avec TagReader (zone des tags seulement), MediaMetadataRetriever ne sert qu'en dernier recours
+// Android 10 n'a pas les colonnes AUTHOR et ALBUM_ARTIST : ces deux tags sont alors relus dans le fichier
+// le ContentResolver est passé au constructeur pour pouvoir brancher un faux ContentProvider
+public class MetadataProvider {
+
+    // nombre de chemins par requete IN (SQLite limite le nombre de parametres)
+    private static final int BATCH_SIZE = 500;
+
+    private static final Uri AUDIO_URI = MediaStore.Audio.Media.EXTERNAL_CONTENT_URI;
+
+    private final ContentResolver resolver;
+
+    // genres par id MediaStore, pour Android 10 qui n'a pas la colonne GENRE (chargé une fois par scan)
+    private Map<Long, String> legacyGenres;
+
+    public MetadataProvider(ContentResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    // oublier les données mises en cache (à appeler au début d'un scan)
+    public synchronized void clearCache() {
+        legacyGenres = null;
+    }
+
+    // lire les métadonnées d'un lot de fichiers audio
+    // retourne une entité par chemin lisible, les fichiers illisibles sont absents de la map
+    // ATTENTION : à appeler hors du thread principal
+    public Map<String, TrackEntity> readAll(List<File> files) {
+        Map<String, TrackEntity> tracks = new HashMap<>(files.size() * 2);
+
+        for (int start = 0; start < files.size(); start += BATCH_SIZE) {
+            queryMediaStore(files.subList(start, Math.min(start + BATCH_SIZE, files.size())), tracks);
+        }
+
+        if (!hasExtendedColumns() && !tracks.isEmpty()) {
+            // Android 10 : compléter l'auteur et l'artiste de l'album des musiques trouvées dans MediaStore
+            List<File> known = new ArrayList<>(tracks.size());
+            for (File file : files) {
+                if (tracks.containsKey(file.getAbsolutePath())) {
+                    known.add(file);
+                }
+            }
+            // copie lue par les threads du pool pendant que tracks est rempli par celui-ci
+            Map<String, TrackEntity> found = new HashMap<>(tracks);
+            readEach(known, tracks, file -> readMissingColumns(file, found.get(file.getAbsolutePath())));
+        }
+
+        // fichiers inconnus de MediaStore : on lit les tags directement
+        List<File> unknown = new ArrayList<>();
+        for (File file : files) {
+            if (!tracks.containsKey(file.getAbsolutePath())) {
+                unknown.add(file);
+            }
+        }
+        if (unknown.isEmpty()) {
+            return tracks;
+        }
+
+        readEach(unknown, tracks, MetadataProvider::readFromFile);
+
+        android.util.Log.d("MetadataProvider", unknown.size() + "/" + files.size() + " fichiers lus directement");
+        return tracks;
+    }
+
+    // lire chaque fichier avec reader et ranger le résultat dans tracks (null : fichier illisible, ignoré)
+    // plusieurs fichiers : lus en parallele sur la voie de fond du pool
+    private static void readEach(List<File> files, Map<String, TrackEntity> tracks,
+                                 Function<File, TrackEntity> reader) {
+        MetadataExecutor executor = MetadataExecutor.getInstance();
+        if (files.size() == 1 || executor.isWorkerThread()) {
+            for (File file : files) {
+                putIfReadable(tracks, file, reader.apply(file));
+            }
+            return;
+        }
+
+        List<Future<TrackEntity>> reads = new ArrayList<>(files.size());
+        for (File file : files) {
+            reads.add(executor.submit(MetadataExecutor.LANE_BACKGROUND, file.getAbsolutePath(),
+                    () -> reader.apply(file)));
+        }
+        for (int i = 0; i < files.size(); i++) {
+            try {
+                putIfReadable(tracks, files.get(i), reads.get(i).get());
+            } catch (ExecutionException e) {
+                android.util.Log.w("MetadataProvider", "Lecture échouée: " + files.get(i).getName());
+            } catch (InterruptedException e) {
+                // scan interrompu : on annule le reste
+                for (Future<TrackEntity> read : reads) {
+                    read.cancel(false);
+                }
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private static void putIfReadable(Map<String, TrackEntity> tracks, File file, TrackEntity track) {
+        if (track != null) {
+            tracks.put(file.getAbsolutePath(), track);
+        }
+    }
+
+    // lire les tags d'un fichier : TagReader, puis MediaMetadataRetriever si le format
+    // n'est pas reconnu ou si la durée n'a pas pu etre lue
+    // retourne null si le fichier est illisible
+    static TrackEntity readFromFile(File file) {
+        try {
+            TagReader.Tags tags = TagReader.read(file);
+            if (tags != null && tags.getDurationMs() > 0) {
+                TrackEntity track = new TrackEntity(file.getAbsolutePath(), file.length(), file.lastModified());
+                track.setTitle(valueOrUnknown(tags.getTitle()));
+                track.setArtist(MusicLibrary.groupName(tags.getArtist()));
+                track.setAlbum(MusicLibrary.groupName(tags.getAlbum()));
+                track.setAlbumArtist(MusicLibrary.tagValue(tags.getAlbumArtist()));
+                track.setGenre(MusicLibrary.groupName(tags.getGenre()));
+                track.setYear(tags.getYear());
+                track.setTrackNumber(tags.getTrackNumber());
+                track.setComposer(tags.getComposer());
+                track.setAuthor(tags.getAuthor());
+                track.setDurationMs(tags.getDurationMs());
+                return track;
+            }
+        } catch (IOException | RuntimeException e) {
+            android.util.Log.w("MetadataProvider", "TagReader: " + file.getName() + ": " + e.getMessage());
+        }
+        return readWithRetriever(file);
+    }
+
+    // lire les tags d'un fichier avec MediaMetadataRetriever, null si le fichier est illisible
+    private static TrackEntity readWithRetriever(File file) {
+        try {
+            Music music = new Music(file.getAbsolutePath());
+            return MusicLibrary.toEntity(music, file.length(), file.lastModified());
+        } catch (RuntimeException e) {
+            android.util.Log.w("MetadataProvider", "Fichier ignoré: " + file.getAbsolutePath());
+            return null;
+        }
+    }
+
+    // Android 10 : relire dans le fichier les tags que MediaStore ne donne pas (auteur, artiste de l'album)
+    // TagReader (zone des tags seulement), MediaMetadataRetriever si le format n'est pas reconnu
+    // retourne track complété (inchangé si le fichier est illisible)
+    static TrackEntity readMissingColumns(File file, TrackEntity track) {
+        try {
+            TagReader.Tags tags = TagReader.read(file);
+            if (tags != null) {
+                track.setAuthor(tags.getAuthor());
+                track.setAlbumArtist(MusicLibrary.tagValue(tags.getAlbumArtist()));
+                return track;
+            }
+        } catch (IOException | RuntimeException e) {
+            android.util.Log.w("MetadataProvider", "TagReader: " + file.getName() + ": " + e.getMessage());
+        }
+
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try {
+            retriever.setDataSource(file.getAbsolutePath());
+            track.setAuthor(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_AUTHOR));
+            track.setAlbumArtist(MusicLibrary.tagValue(
+                    retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_ALBUMARTIST)));
+        } catch (RuntimeException e) {
+            android.util.Log.w("MetadataProvider", "Tags non lus: " + file.getName() + ": " + e.getMessage());
+        } finally {
+            try {
+                retriever.release();
+            } catch (IOException e) {
+                android.util.Log.w("MetadataProvider", "Erreur release du retriever", e);
+            }
+        }
+        return track;
+    }
+
+    // -------- MediaStore --------
+
+    // colonnes GENRE, AUTHOR et ALBUM_ARTIST, ajoutées à MediaStore dans Android 11
+    private static boolean hasExtendedColumns() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R;
+    }
+
+    // chercher un lot de fichiers dans MediaStore, les entrées utilisables sont ajoutées à tracks
+    private void queryMediaStore(List<File> files, Map<String, TrackEntity> tracks) {
+        Map<String, File> filesByPath = new HashMap<>(files.size() * 2);
+        StringBuilder selection = new StringBuilder(MediaStore.Audio.Media.DATA).append(" IN (");
+        String[] args = new String[files.size()];
+        for (int i = 0; i < files.size(); i++) {
+            String path = files.get(i).getAbsolutePath();
+            filesByPath.put(path, files.get(i));
+            args[i] = path;
+            selection.append(i == 0 ? "?" : ",?");
+        }
+        selection.append(')');
+
+        boolean hasGenreColumn = hasExtendedColumns();
+        List<String> projection = new ArrayList<>();
+        projection.add(MediaStore.Audio.Media._ID);
+        projection.add(MediaStore.Audio.Media.DATA);
+        projection.add(MediaStore.Audio.Media.DATE_MODIFIED);
+        projection.add(MediaStore.Audio.Media.TITLE);
+        projection.add(MediaStore.Audio.Media.ARTIST);
+        projection.add(MediaStore.Audio.Media.ALBUM);
+        projection.add(MediaStore.Audio.Media.YEAR);
+        projection.add(MediaStore.Audio.Media.TRACK);
+        projection.add(MediaStore.Audio.Media.COMPOSER);
+        projection.add(MediaStore.Audio.Media.DURATION);
+        if (hasGenreColumn) {
+            projection.add(MediaStore.Audio.Media.GENRE);
+            projection.add(MediaStore.Audio.Media.AUTHOR);
+            projection.add(MediaStore.Audio.Media.ALBUM_ARTIST);
+        }
+
+        try (Cursor cursor = resolver.query(AUDIO_URI, projection.toArray(new String[0]),
+                selection.toString(), args, null)) {
+            if (cursor == null) return;
+
+            int idColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media._ID);
+            int dataColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATA);
+            int modifiedColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATE_MODIFIED);
+            int titleColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.TITLE);
+            int artistColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ARTIST);
+            int albumColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ALBUM);
+            int yearColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.YEAR);
+            int trackColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.TRACK);
+            int composerColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.COMPOSER);
+            int durationColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DURATION);
+            int genreColumn = hasGenreColumn ? cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.GENRE) : -1;
+            int authorColumn = hasGenreColumn ? cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.AUTHOR) : -1;
+            int albumArtistColumn = hasGenreColumn ? cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ALBUM_ARTIST) : -1;
+
+            while (cursor.moveToNext()) {
+                File file = filesByPath.get(cursor.getString(dataColumn));
+                if (file == null) continue;
+
+                // entrée pas encore complétée par le scanner du systeme, ou fichier modifié depuis
+                long durationMs = cursor.getLong(durationColumn);
+                long storeModified = cursor.getLong(modifiedColumn); // en secondes
+                if (durationMs <= 0 || storeModified < file.lastModified() / 1000) continue;
+
+                TrackEntity track = new TrackEntity(file.getAbsolutePath(), file.length(), file.lastModified());
+                track.setTitle(valueOrUnknown(textValue(cursor, titleColumn)));
+                track.setArtist(MusicLibrary.groupName(textValue(cursor, artistColumn)));
+                track.setAlbum(MusicLibrary.groupName(textValue(cursor, albumColumn)));
+                track.setComposer(textValue(cursor, composerColumn));
+                track.setDurationMs(durationMs);
+
+                int year = cursor.getInt(yearColumn);
+                track.setYear(year > 0 ? String.valueOf(year) : null);
+
+                // TRACK contient numéro de disque * 1000 + numéro de piste
+                int trackNumber = cursor.getInt(trackColumn) % 1000;
+                track.setTrackNumber(trackNumber > 0 ? String.valueOf(trackNumber) : null);
+
+                String genre;
+                if (hasGenreColumn) {
+                    genre = textValue(cursor, genreColumn);
+                    track.setAuthor(textValue(cursor, authorColumn));
+                    track.setAlbumArtist(MusicLibrary.tagValue(textValue(cursor, albumArtistColumn)));
+                } else {
+                    genre = getLegacyGenres().get(cursor.getLong(idColumn));
+                }
+                track.setGenre(MusicLibrary.groupName(genre));
+
+                tracks.put(file.getAbsolutePath(), track);
+            }
+        } catch (RuntimeException e) {
+            // permission refusée ou MediaStore indisponible : tout passera par MediaMetadataRetriever
+            android.util.Log.w("MetadataProvider", "MediaStore indisponible: " + e.getMessage());
+        }
+    }
+
+    // Android 10 : les genres sont dans une table à part, on charge d'un coup l'association id -> genre
+    private synchronized Map<Long, String> getLegacyGenres() {
+        if (legacyGenres != null) {
+            return legacyGenres;
+        }
+
+        legacyGenres = new HashMap<>();
+        String[] genreProjection = {MediaStore.Audio.Genres._ID, MediaStore.Audio.Genres.NAME};
+        try (Cursor genres = resolver.query(MediaStore.Audio.Genres.EXTERNAL_CONTENT_URI,
+                genreProjection, null, null, null)) {
+            if (genres == null) return legacyGenres;
+
+            while (genres.moveToNext()) {
+                long genreId = genres.getLong(0);
+                String name = genres.getString(1);
+
+                Uri membersUri = MediaStore.Audio.Genres.Members.getContentUri("external", genreId);
+                try (Cursor members = resolver.query(membersUri,
+                        new String[]{MediaStore.Audio.Genres.Members.AUDIO_ID}, null, null, null)) {
+                    if (members == null) continue;
+                    while (members.moveToNext()) {
+                        legacyGenres.put(members.getLong(0), name);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            android.util.Log.w("MetadataProvider", "Genres MediaStore indisponibles: " + e.getMessage());
+        }
+        return legacyGenres;
+    }
+
+    // MediaStore met "<unknown>" quand un tag est absent
+    private static String textValue(Cursor cursor, int column) {
+        String value = cursor.getString(column);
+        if (value == null || value.isEmpty() || MediaStore.UNKNOWN_STRING.equals(value)) {
+            return null;
+        }
+        return value;
+    }
+
+    private static String valueOrUnknown(String value) {
+        return value != null ? value : "Unknown";
+    }
+}
@@ -0,0 +1,562 @@
+package com.example.matonique.library;
+
+import android.content.Context;
+
+import com.example.matonique.database.DirectoryDao;
+import com.example.matonique.database.DirectoryEntity;
+import com.example.matonique.database.LibraryDatabase;
+import com.example.matonique.database.TrackDao;
+import com.example.matonique.database.TrackEntity;
+import com.example.matonique.database.TrackGroupDao;
+import com.example.matonique.database.TrackGroupEntity;
+import com.example.matonique.model.FileItem;
+import com.example.matonique.model.Music;
+import com.example.matonique.utils.DirectoryLister;
+import com.example.matonique.utils.SectionIndex;
+
+import java.io.File;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Point d'accès à l'index des musiques de la bibliothèque
+// les objets Music sont construits depuis la base quand le fichier n'a pas changé
+// MediaMetadataRetriever n'est lancé que pour les fichiers nouveaux ou modifiés
+// ATTENTION : toutes les methodes accedent à la base, il faut les appeler hors du thread principal
+public class MusicLibrary {
+
+    // Interface pour etre notifié quand le contenu de la bibliothèque change (apres un scan)
+    // ATTENTION : appelé depuis un thread d'arriere plan
+    public interface OnLibraryChangeListener {
+        void onLibraryChanged(Set<String> changedFolders);
+    }
+
+    private static MusicLibrary instance;
+
+    // nombre de chemins par requete IN (SQLite limite le nombre de parametres)
+    private static final int LOOKUP_BATCH_SIZE = 500;
+
+    private final LibraryDatabase database;
+    private final TrackDao trackDao;
+    private final DirectoryDao directoryDao;
+    private final TrackGroupDao trackGroupDao;
+    private final MetadataProvider metadataProvider;
+    private final PlaylistStore playlistStore;
+    private final List<OnLibraryChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    private MusicLibrary(Context context) {
+        database = LibraryDatabase.getInstance(context);
+        trackDao = database.trackDao();
+        directoryDao = database.directoryDao();
+        trackGroupDao = database.trackGroupDao();
+        metadataProvider = new MetadataProvider(context.getContentResolver());
+        playlistStore = new PlaylistStore(context);
+    }
+
+    // methode singleton pour recuperer l'instance de la bibliothèque
+    public static synchronized MusicLibrary getInstance(Context context) {
+        if (instance == null) {
+            instance = new MusicLibrary(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // Renvoie true si le fichier est un fichier musical supporté
+    // fichiers supportés : .mp3, .m4a, .flac, .wav
+    public static boolean isMusicFile(String fileName) {
+        String name = fileName.toLowerCase();
+        return name.endsWith(".mp3") || name.endsWith(".m4a") ||
+                name.endsWith(".flac") || name.endsWith(".wav");
+    }
+
+    // recuperer une musique à partir de son chemin
+    // utilise l'index si la taille et la date de modification n'ont pas changé
+    // sinon on relit les tags (MediaStore, ou le fichier s'il n'y est pas) et on met a jour l'index
+    // lance une RuntimeException si le fichier est invalide (comme le constructeur de Music)
+    public Music getMusic(String filePath) {
+        File file = new File(filePath);
+        long fileSize = file.length();
+        long lastModified = file.lastModified();
+
+        TrackEntity track = trackDao.getTrackByPath(filePath);
+        if (track != null && track.isUpToDate(fileSize, lastModified)) {
+            return new Music(track);
+        }
+
+        // fichier inconnu ou modifié : on relit ses tags
+        android.util.Log.d("MusicLibrary", "Indexation de: " + filePath);
+        TrackEntity updated = metadataProvider.readAll(Collections.singletonList(file)).get(file.getAbsolutePath());
+        if (updated == null) {
+            throw new RuntimeException("Fichier audio invalide ou corrompu: " + file.getName());
+        }
+        updated.setContentHash(ContentHasher.hash(file));
+        updated.setSortKey(DirectoryLister.sortKey(updated.getFileName(), DirectoryLister.newCollator()));
+
+        if (track != null) {
+            // on garde le meme id pour ne pas casser les références vers cette musique
+            updated.setId(track.getId());
+            trackDao.update(updated);
+        } else {
+            long id = trackDao.insert(updated);
+            if (id == -1) {
+                // indexée entre temps par un autre thread (prefetch, explorateur...) : on met a jour sa ligne
+                TrackEntity existing = trackDao.getTrackByPath(filePath);
+                if (existing != null) {
+                    updated.setId(existing.getId());
+                    trackDao.update(updated);
+                }
+            } else {
+                updated.setId((int) id);
+            }
+        }
+
+        return new Music(updated);
+    }
+
+    // lire les métadonnées d'un lot de fichiers sans toucher à la base
+    // retourne une entité par chemin, les fichiers illisibles sont absents
+    Map<String, TrackEntity> readMetadata(List<File> files) {
+        return metadataProvider.readAll(files);
+    }
+
+    MetadataProvider getMetadataProvider() {
+        return metadataProvider;
+    }
+
+    // appliquer en une seule transaction le resultat du scan d'un dossier
+    // un nouveau fichier dont l'empreinte correspond à une musique indexée dont le fichier n'existe plus
+    // est un déplacement : il reprend l'id de l'ancienne entrée (la queue reste valide)
+    // et les playlists qui contenaient l'ancien chemin pointent vers le nouveau
+    void applyFolderChanges(DirectoryEntity directory, List<TrackEntity> tracksToSave) {
+        // clés de tri des noms (listing par pages dans l'ordre d'affichage)
+        Collator collator = DirectoryLister.newCollator();
+        directory.setSortKey(DirectoryLister.sortKey(directory.getName(), collator));
+        for (TrackEntity track : tracksToSave) {
+            track.setSortKey(DirectoryLister.sortKey(track.getFileName(), collator));
+        }
+
+        // ancien chemin -> nouveau chemin des musiques déplacées
+        Map<String, String> movedPaths = new HashMap<>();
+        database.runInTransaction(() -> {
+            movedPaths.clear(); // transaction rejouée
+            for (TrackEntity track : tracksToSave) {
+                if (track.getId() == 0) {
+                    // le listing du dossier a pu etre indexé entre temps par getMusic() (explorateur, lecture)
+                    TrackEntity existing = trackDao.getTrackByPath(track.getFilePath());
+                    if (existing != null) {
+                        track.setId(existing.getId());
+                    }
+                }
+                if (track.getId() == 0 && track.getContentHash() != null) {
+                    TrackEntity moved = findMovedTrack(track.getContentHash());
+                    if (moved != null) {
+                        android.util.Log.d("MusicLibrary", "Musique déplacée: " + moved.getFilePath() + " -> " + track.getFilePath());
+                        track.setId(moved.getId());
+                        movedPaths.put(moved.getFilePath(), track.getFilePath());
+                    }
+                }
+
+                if (track.getId() != 0) {
+                    trackDao.update(track);
+                } else {
+                    trackDao.insert(track);
+                }
+            }
+            directoryDao.insert(directory);
+        });
+
+        // les playlists sont dans une autre base : mises à jour une fois l'index enregistré
+        for (Map.Entry<String, String> move : movedPaths.entrySet()) {
+            playlistStore.movePath(move.getKey(), move.getValue());
+        }
+    }
+
+    // retirer de l'index les musiques et dossiers qui n'existent plus
+    // appelé à la fin du scan, apres les ajouts : les fichiers déplacés ont deja repris leur entrée
+    void applyRemovals(Collection<String> removedTrackPaths, Collection<String> removedFolders) {
+        database.runInTransaction(() -> {
+            for (String path : removedTrackPaths) {
+                trackDao.deleteByPath(path);
+            }
+            for (String folder : removedFolders) {
+                removeFolderTree(folder);
+            }
+        });
+    }
+
+    // chercher une entrée de l'index avec cette empreinte dont le fichier a disparu
+    private TrackEntity findMovedTrack(String contentHash) {
+        for (TrackEntity candidate : trackDao.getTracksByHash(contentHash)) {
+            if (!new File(candidate.getFilePath()).exists()) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    // recuperer les fichiers en double dans la bibliothèque (meme empreinte de contenu)
+    // chaque liste contient les chemins d'un meme contenu
+    public List<List<String>> getDuplicateGroups() {
+        List<List<String>> groups = new ArrayList<>();
+        String currentHash = null;
+        List<String> current = null;
+        for (TrackEntity track : trackDao.getDuplicateTracks()) {
+            if (!track.getContentHash().equals(currentHash)) {
+                currentHash = track.getContentHash();
+                current = new ArrayList<>();
+                groups.add(current);
+            }
+            current.add(track.getFilePath());
+        }
+        return groups;
+    }
+
+    // retirer de l'index un dossier, ses sous-dossiers et toutes leurs musiques
+    void removeFolderTree(String folderPath) {
+        String prefix = folderPath + "/";
+        trackDao.deleteTracksUnder(folderPath, prefix);
+        directoryDao.deleteTree(folderPath, prefix);
+    }
+
+    TrackDao getTrackDao() {
+        return trackDao;
+    }
+
+    DirectoryDao getDirectoryDao() {
+        return directoryDao;
+    }
+
+    // lister un dossier depuis l'index (sous-dossiers en premier puis musiques)
+    // retourne null si le dossier n'est pas indexé ou a changé depuis le dernier scan
+    public List<FileItem> getFolderListing(File directory) {
+        if (!isFolderUpToDate(directory)) {
+            return null;
+        }
+        String path = directory.getAbsolutePath();
+        return loadFolderPage(path, directoryDao.countChildDirectories(path), 0, -1);
+    }
+
+    // lister un dossier de l'index par pages, dans le meme ordre que getFolderListing
+    // retourne null si le dossier n'est pas indexé ou a changé depuis le dernier scan
+    public FileItemPager getFolderPager(File directory) {
+        if (!isFolderUpToDate(directory)) {
+            return null;
+        }
+
+        String path = directory.getAbsolutePath();
+        int folderCount = directoryDao.countChildDirectories(path);
+        int count = folderCount + trackDao.countTracksInFolder(path);
+        return new FileItemPager() {
+            @Override
+            public int getCount() {
+                return count;
+            }
+
+            @Override
+            public List<FileItem> loadPage(int offset, int limit) {
+                return loadFolderPage(path, folderCount, offset, limit);
+            }
+        };
+    }
+
+    // sections (lettres) d'un dossier de l'index, dans le meme ordre que getFolderPager
+    // seuls les noms sont lus, pas les lignes completes
+    // retourne null si le dossier n'est pas indexé ou a changé depuis le dernier scan
+    public SectionIndex getFolderSections(File directory) {
+        if (!isFolderUpToDate(directory)) {
+            return null;
+        }
+
+        String path = directory.getAbsolutePath();
+        List<String> names = new ArrayList<>();
+        for (String childPath : directoryDao.getChildPaths(path)) {
+            names.add(new File(childPath).getName());
+        }
+        names.addAll(trackDao.getFileNamesInFolder(path));
+        return SectionIndex.build(names);
+    }
+
+    // lignes [offset, offset + limit) d'un dossier : d'abord les sous-dossiers, puis les musiques
+    // limit = -1 pour tout recuperer à partir de offset
+    private List<FileItem> loadFolderPage(String path, int folderCount, int offset, int limit) {
+        List<FileItem> items = new ArrayList<>(limit > 0 ? limit : folderCount);
+        if (offset < folderCount) {
+            for (DirectoryEntity child : directoryDao.getChildDirectoriesPage(path, limit, offset)) {
+                items.add(new FileItem(child.getPath(), child.getName(), true));
+            }
+        }
+
+        if (limit < 0 || items.size() < limit) {
+            int trackLimit = limit < 0 ? -1 : limit - items.size();
+            int trackOffset = Math.max(0, offset - folderCount);
+            for (TrackEntity track : trackDao.getTracksInFolderPage(path, trackLimit, trackOffset)) {
+                items.add(new FileItem(track.getFilePath(), getTrackTitle(track), false, formatTrackSubtitle(track)));
+            }
+        }
+        return items;
+    }
+
+    // recuperer les chemins des musiques d'un dossier depuis l'index, dans l'ordre d'affichage
+    // retourne null si le dossier n'est pas indexé ou a changé depuis le dernier scan
+    public List<String> getFolderTrackPaths(File directory) {
+        if (!isFolderUpToDate(directory)) {
+            return null;
+        }
+        return trackDao.getPathsInFolder(directory.getAbsolutePath());
+    }
+
+    // lire une liste de chemins (contenu d'une playlist) par pages
+    // les noms viennent de displayNames (#EXTINF) ou de l'index, l'existence des fichiers n'est vérifiée
+    // que page par page : un fichier manquant reste à sa place avec le sous-titre "Fichier introuvable"
+    public FileItemPager getPathsPager(List<String> paths, Map<String, String> displayNames) {
+        return new FileItemPager() {
+            @Override
+            public int getCount() {
+                return paths.size();
+            }
+
+            @Override
+            public List<FileItem> loadPage(int offset, int limit) {
+                List<String> pagePaths = paths.subList(offset, Math.min(offset + limit, paths.size()));
+                Map<String, TrackEntity> tracks = new HashMap<>();
+                for (TrackEntity track : trackDao.getTracksByPaths(pagePaths)) {
+                    tracks.put(track.getFilePath(), track);
+                }
+
+                List<FileItem> items = new ArrayList<>(pagePaths.size());
+                for (String path : pagePaths) {
+                    TrackEntity track = tracks.get(path);
+                    String name = displayNames.get(path);
+                    String subtitle;
+                    if (track != null) {
+                        if (name == null) name = getTrackTitle(track);
+                        subtitle = formatTrackSubtitle(track);
+                    } else {
+                        // pas dans l'index : seul cas où on regarde le disque
+                        if (name == null) name = new File(path).getName();
+                        subtitle = new File(path).isFile() ? null : "Fichier introuvable";
+                    }
+                    items.add(new FileItem(path, name, false, subtitle));
+                }
+                return items;
+            }
+        };
+    }
+
+    // garder seulement les chemins de musiques qui existent, dans le meme ordre
+    // les chemins sont vérifiés par lots dans l'index (tenu à jour par le scanner),
+    // seuls ceux qui n'y sont pas sont vérifiés sur le disque
+    public List<String> filterExistingPaths(List<String> paths) {
+        Set<String> indexed = new HashSet<>(paths.size() * 2);
+        for (int start = 0; start < paths.size(); start += LOOKUP_BATCH_SIZE) {
+            List<String> batch = paths.subList(start, Math.min(start + LOOKUP_BATCH_SIZE, paths.size()));
+            indexed.addAll(trackDao.getExistingPaths(batch));
+        }
+
+        List<String> existing = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            if (indexed.contains(path) || new File(path).isFile()) {
+                existing.add(path);
+            }
+        }
+        return existing;
+    }
+
+    // rechercher des musiques dans l'index par titre, artiste, album ou chemin
+    // chaque mot tapé est cherché en début de mot (prefixe), sans tenir compte des accents ni de la casse
+    // retourne une page de resultats (limit à partir de offset), liste vide si rien à chercher
+    public List<FileItem> search(String text, int limit, int offset) {
+        List<FileItem> results = new ArrayList<>();
+        String query = buildSearchQuery(text);
+        if (query == null) {
+            return results;
+        }
+
+        for (TrackEntity track : trackDao.search(query, limit, offset)) {
+            results.add(new FileItem(track.getFilePath(), getTrackTitle(track), false, formatTrackSubtitle(track)));
+        }
+        return results;
+    }
+
+    // convertir le texte tapé en expression MATCH : "mot1"* "mot2"* (tous les mots doivent etre présents)
+    // les mots sont mis entre guillemets pour que AND / OR / NOT tapés ne soient pas des opérateurs
+    static String buildSearchQuery(String text) {
+        if (text == null) return null;
+
+        StringBuilder query = new StringBuilder();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) continue;
+            if (query.length() > 0) query.append(' ');
+            query.append('"').append(word).append("\"*");
+        }
+        return query.length() > 0 ? query.toString() : null;
+    }
+
+    // sous-titre d'une musique de l'index : "Artiste · 3:25"
+    public static String formatTrackSubtitle(TrackEntity track) {
+        long seconds = track.getDurationMs() / 1000;
+        return track.getArtist() + " · " + String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    // titre affiché pour une musique de l'index (l'artiste est dans le sous-titre)
+    // le nom du fichier si le tag titre n'est pas connu
+    public static String getTrackTitle(TrackEntity track) {
+        String title = track.getTitle();
+        return title == null || title.equals("Unknown") ? track.getFileName() : title;
+    }
+
+    // nom affiché pour une musique de l'index : "Titre - Artiste" si les tags sont connus
+    private static String getTrackDisplayName(TrackEntity track) {
+        String title = track.getTitle();
+        if (title == null || title.equals("Unknown")) {
+            return track.getFileName();
+        }
+        String artist = track.getArtist();
+        if (artist == null || artist.equals("Unknown")) {
+            return title;
+        }
+        return title + " - " + artist;
+    }
+
+    // -------- Artistes / albums / genres --------
+
+    // séparateur entre l'artiste et le nom dans la clé d'un album (caractère absent des tags)
+    private static final char ALBUM_KEY_SEPARATOR = '\u001F';
+
+    // lister les groupes d'un type (TrackGroupEntity.TYPE_*) avec leur nombre de musiques et leur durée
+    // lit seulement la table track_groups, aucun tag n'est relu
+    public List<FileItem> getGroupListing(int type) {
+        // la base ne trie que sans la casse : les accents et les nombres sont triés ici, comme les fichiers
+        // (tri stable : les albums de meme nom restent dans l'ordre de leur artiste)
+        List<TrackGroupEntity> groups = new ArrayList<>(trackGroupDao.getGroups(type));
+        DirectoryLister.sortByName(groups, TrackGroupEntity::getName);
+        List<FileItem> items = new ArrayList<>(groups.size());
+        for (TrackGroupEntity group : groups) {
+            String subtitle = group.getTrackCount() + (group.getTrackCount() > 1 ? " titres" : " titre")
+                    + " · " + formatTotalDuration(group.getTotalDurationMs());
+            // le "chemin" d'un groupe est sa clé (son nom, plus l'artiste pour un album),
+            // le fragment sait dans quel type il navigue
+            String key = group.getName();
+            if (type == TrackGroupEntity.TYPE_ALBUM) {
+                key = group.getAlbumArtist() + ALBUM_KEY_SEPARATOR + group.getName();
+                subtitle = group.getAlbumArtist() + " · " + subtitle;
+            }
+            items.add(new FileItem(key, group.getName(), true, subtitle));
+        }
+        return items;
+    }
+
+    // lister les musiques d'un groupe depuis l'index (albums dans l'ordre des pistes)
+    // key : chemin de l'élément de getGroupListing
+    public List<FileItem> getGroupTracks(int type, String key) {
+        List<TrackEntity> tracks;
+        switch (type) {
+            case TrackGroupEntity.TYPE_ARTIST:
+                tracks = trackDao.getTracksByArtist(key);
+                break;
+            case TrackGroupEntity.TYPE_ALBUM:
+                int separator = key.indexOf(ALBUM_KEY_SEPARATOR);
+                tracks = separator >= 0
+                        ? trackDao.getTracksByAlbum(key.substring(separator + 1), key.substring(0, separator))
+                        : new ArrayList<>();
+                break;
+            default:
+                tracks = trackDao.getTracksByGenre(key);
+                break;
+        }
+
+        List<FileItem> items = new ArrayList<>(tracks.size());
+        for (TrackEntity track : tracks) {
+            // dans un album on affiche l'artiste, sinon l'album
+            String subtitle = type == TrackGroupEntity.TYPE_ALBUM ? track.getArtist() : track.getAlbum();
+            items.add(new FileItem(track.getFilePath(), getTrackDisplayName(track), false, subtitle));
+        }
+        return items;
+    }
+
+    // formater une durée totale : "42 min" ou "3 h 05"
+    private static String formatTotalDuration(long durationMs) {
+        long minutes = durationMs / 60000;
+        if (minutes < 60) {
+            return minutes + " min";
+        }
+        return String.format("%d h %02d", minutes / 60, minutes % 60);
+    }
+
+    // recuperer les chemins d'un dossier indexé et de tous ses sous-dossiers, les moins profonds d'abord
+    public List<String> getIndexedFoldersUnder(File root) {
+        String path = root.getAbsolutePath();
+        return directoryDao.getPathsUnder(path, path + "/");
+    }
+
+    // recuperer les chemins de toutes les musiques indexées
+    public List<String> getAllTrackPaths() {
+        return trackDao.getAllPaths();
+    }
+
+    // verifier si le contenu indexé d'un dossier correspond toujours au disque
+    private boolean isFolderUpToDate(File directory) {
+        DirectoryEntity known = directoryDao.getDirectory(directory.getAbsolutePath());
+        return known != null && known.getLastModified() == directory.lastModified();
+    }
+
+    // -------- Listeners --------
+
+    public void addOnLibraryChangeListener(OnLibraryChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeOnLibraryChangeListener(OnLibraryChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    // notifier les listeners que des dossiers ont changé dans l'index
+    void notifyLibraryChanged(Set<String> changedFolders) {
+        // les listings gardés en memoire de ces dossiers ne sont plus à jour
+        for (String folder : changedFolders) {
+            DirectoryCache.getInstance().invalidate(folder);
+        }
+        for (OnLibraryChangeListener listener : listeners) {
+            listener.onLibraryChanged(changedFolders);
+        }
+    }
+
+    // artist / album / genre servent de clé de groupe : jamais null ni vide
+    static String groupName(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return "Unknown";
+        }
+        return value.trim();
+    }
+
+    // tag facultatif : null si absent ou vide
+    static String tagValue(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim();
+    }
+
+    // convertir une musique en entité de l'index
+    static TrackEntity toEntity(Music music, long fileSize, long lastModified) {
+        TrackEntity track = new TrackEntity(music.getFilePath(), fileSize, lastModified);
+        track.setTitle(music.getTitle());
+        track.setArtist(groupName(music.getArtist()));
+        track.setAlbum(groupName(music.getAlbum()));
+        track.setAlbumArtist(tagValue(music.getAlbumArtist()));
+        track.setGenre(groupName(music.getGenre()));
+        track.setYear(music.getYear());
+        track.setTrackNumber(music.getTrackNumber());
+        track.setComposer(music.getComposer());
+        track.setAuthor(music.getAuthor());
+        track.setDurationMs(music.getDurationMs());
+        return track;
+    }
+}
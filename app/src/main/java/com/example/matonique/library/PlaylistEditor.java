@@ -0,0 +1,129 @@
+package com.example.matonique.library;
+
+import com.example.matonique.database.PlaylistEntity;
+import com.example.matonique.database.PlaylistItemEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Modifications groupées d'une playlist, à la maniere de SharedPreferences.Editor :
+//   store.edit(playlistId).add(paths).remove(path).move(3, 0).commit();
+// les opérations sont notées puis appliquées dans l'ordre, en une seule transaction, par commit()
+// le m3u de la playlist est ensuite réécrit en arriere plan (voir PlaylistStore.scheduleM3UWrite) :
+// ajouter les 500 musiques d'un dossier fait une transaction et une écriture, pas 500
+// les positions sont celles des musiques affichées : les entrées que l'app ne sait pas lire
+// (flux réseau, .ogg...) ne comptent pas et ne sont jamais retirées ni déplacées
+public class PlaylistEditor {
+
+    // une opération sur les entrées de la playlist (les positions sont renumérotées apres)
+    // playlist : pour garder les lignes de fin du m3u quand la derniere entrée est retirée
+    interface Operation {
+        void apply(List<PlaylistItemEntity> items, PlaylistEntity playlist);
+    }
+
+    private final PlaylistStore store;
+    private final int playlistId;
+    private final List<Operation> operations = new ArrayList<>();
+    private final List<String> appended = new ArrayList<>();
+    // vrai tant qu'on ne fait qu'ajouter à la fin (les lignes existantes ne bougent pas)
+    private boolean appendOnly = true;
+
+    PlaylistEditor(PlaylistStore store, int playlistId) {
+        this.store = store;
+        this.playlistId = playlistId;
+    }
+
+    // ajouter des musiques à la fin de la playlist
+    public PlaylistEditor add(List<String> paths) {
+        List<String> copy = new ArrayList<>(paths);
+        if (appendOnly) {
+            appended.addAll(copy);
+        }
+        operations.add((list, playlist) -> {
+            for (String path : copy) {
+                list.add(new PlaylistItemEntity(playlistId, 0, path, null));
+            }
+        });
+        return this;
+    }
+
+    // retirer toutes les occurences d'une musique
+    public PlaylistEditor remove(String path) {
+        appendOnly = false;
+        operations.add((list, playlist) -> {
+            // de la fin vers le début : les lignes d'une entrée retirée passent à une entrée qui reste
+            for (int i = list.size() - 1; i >= 0; i--) {
+                if (list.get(i).isPlayable() && path.equals(list.get(i).getFilePath())) {
+                    removeItem(list, i, playlist);
+                }
+            }
+        });
+        return this;
+    }
+
+    // retirer la musique à une position (position dans la liste issue des opérations précédentes)
+    public PlaylistEditor removeAt(int position) {
+        appendOnly = false;
+        operations.add((list, playlist) -> {
+            int index = indexOfPlayable(list, position);
+            if (index >= 0) {
+                removeItem(list, index, playlist);
+            }
+        });
+        return this;
+    }
+
+    // déplacer une musique de la position from à la position to
+    public PlaylistEditor move(int from, int to) {
+        appendOnly = false;
+        operations.add((list, playlist) -> {
+            int fromIndex = indexOfPlayable(list, from);
+            int toIndex = indexOfPlayable(list, to);
+            if (fromIndex < 0 || toIndex < 0 || fromIndex == toIndex) return;
+            list.add(toIndex, list.remove(fromIndex));
+        });
+        return this;
+    }
+
+    // indice dans la liste complete de la musique affichée à une position, -1 si hors de la liste
+    private static int indexOfPlayable(List<PlaylistItemEntity> items, int position) {
+        if (position < 0) return -1;
+        int playable = 0;
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).isPlayable() && playable++ == position) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // retirer une entrée sans perdre les lignes du m3u qui la précédaient (commentaires, lignes vides...) :
+    // elles passent devant l'entrée suivante, ou dans les lignes de fin si c'était la derniere
+    private static void removeItem(List<PlaylistItemEntity> items, int index, PlaylistEntity playlist) {
+        String extraLines = items.remove(index).getExtraLines();
+        if (extraLines == null) return;
+
+        if (index < items.size()) {
+            PlaylistItemEntity next = items.get(index);
+            next.setExtraLines(joinLines(extraLines, next.getExtraLines()));
+        } else {
+            playlist.setM3uTrailer(joinLines(extraLines, playlist.getM3uTrailer()));
+        }
+    }
+
+    private static String joinLines(String first, String second) {
+        return second != null ? first + "\n" + second : first;
+    }
+
+    // appliquer toutes les opérations en une transaction, puis réécrire le m3u en arriere plan
+    // retourne le nombre de musiques de la playlist apres modification (-1 si elle n'existe plus)
+    // ATTENTION : accede à la base, à appeler hors du thread principal
+    public int commit() {
+        if (operations.isEmpty()) {
+            return store.countItems(playlistId);
+        }
+        return appendOnly
+                ? store.appendItems(playlistId, appended)
+                : store.applyOperations(playlistId, operations);
+    }
+}
@@ -0,0 +1,453 @@
+package com.example.matonique.library;
+
+import android.content.Context;
+
+import com.example.matonique.database.PlaylistDao;
+import com.example.matonique.database.PlaylistDatabase;
+import com.example.matonique.database.PlaylistEntity;
+import com.example.matonique.database.PlaylistItemDao;
+import com.example.matonique.database.PlaylistItemEntity;
+import com.example.matonique.database.PlaylistSummary;
+import com.example.matonique.model.Playlist;
+import com.example.matonique.utils.DirectoryLister;
+import com.example.matonique.utils.M3UParser;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Accès aux playlists sauvegardées dans la base (tables playlists et playlist_items)
+// le contenu des playlists est dans la base : la liste des playlists est une seule requete
+// avec le nombre de musiques de chacune, sans lire aucun fichier m3u
+// le m3u d'une playlist n'est qu'un format d'import : il n'est relu que si sa date ou sa taille
+// a changé depuis le dernier import (un stat par playlist, pas par musique)
+// les modifications passent par edit() (PlaylistEditor) : une transaction par lot d'opérations,
+// puis le m3u est réécrit en arriere plan, dans un fichier temporaire renommé à la fin :
+// un arret en pleine écriture laisse l'ancien m3u intact
+// le m3u est réécrit avec ses lignes d'origine (chemins relatifs, #EXTINF, commentaires, flux réseau...) :
+// seules les musiques ajoutées ou retirées changent dans le fichier
+// un m3u importé n'est réécrit que si l'utilisateur l'a accepté (voir PlaylistEntity.M3U_WRITE_*)
+// ATTENTION : toutes les methodes accedent à la base, il faut les appeler hors du thread principal
+public class PlaylistStore {
+
+    // un seul thread d'écriture des m3u pour toute l'app, les écritures d'une meme playlist sont regroupées
+    private static final ExecutorService M3U_WRITER = Executors.newSingleThreadExecutor();
+    // playlists dont le m3u attend d'etre réécrit ou est en cours d'écriture :
+    // elles restent dedans jusqu'à ce que la date du nouveau fichier soit dans la base,
+    // pour qu'aucune relecture ne prenne le fichier écrit par l'app pour une modification extérieure
+    private static final Set<Integer> pendingWrites = ConcurrentHashMap.newKeySet();
+    // playlists modifiées depuis le début de leur derniere écriture (le m3u est à refaire)
+    private static final Set<Integer> dirtyWrites = ConcurrentHashMap.newKeySet();
+
+    private final PlaylistDatabase database;
+    private final PlaylistDao playlistDao;
+    private final PlaylistItemDao playlistItemDao;
+
+    public PlaylistStore(Context context) {
+        database = PlaylistDatabase.getInstance(context);
+        playlistDao = database.playlistDao();
+        playlistItemDao = database.playlistItemDao();
+    }
+
+    // lister les playlists (triées par nom, comme l'explorateur) avec leur nombre de musiques
+    // les m3u modifiés depuis le dernier import sont d'abord réimportés
+    public List<Playlist> getPlaylists() {
+        List<PlaylistSummary> summaries = playlistDao.getPlaylistSummaries();
+
+        boolean reimported = false;
+        for (PlaylistSummary summary : summaries) {
+            if (!pendingWrites.contains(summary.id)
+                    && isM3UChanged(summary.filePath, summary.m3uLastModified, summary.m3uSize)) {
+                reimported |= reimport(summary.id);
+            }
+        }
+        if (reimported) {
+            // les nombres de musiques ont changé
+            summaries = playlistDao.getPlaylistSummaries();
+        }
+
+        List<Playlist> playlists = new ArrayList<>(summaries.size());
+        for (PlaylistSummary summary : summaries) {
+            Playlist playlist = new Playlist(summary.id, summary.name, summary.filePath);
+            playlist.setMusicCount(summary.musicCount);
+            playlist.setM3uWriteMode(summary.m3uWriteMode);
+            playlists.add(playlist);
+        }
+        // la base ne trie que sans la casse : les accents et les nombres sont triés ici, comme les fichiers
+        DirectoryLister.sortByName(playlists, Playlist::getName);
+        return playlists;
+    }
+
+    // charger les musiques d'une playlist (chemins et noms du m3u) dans le modele
+    // les entrées que l'app ne sait pas lire ne sont pas chargées
+    public void loadItems(Playlist playlist) {
+        List<PlaylistItemEntity> items = playlistItemDao.getPlayableItems(playlist.getId());
+
+        List<String> paths = new ArrayList<>(items.size());
+        Map<String, String> displayNames = new HashMap<>();
+        for (PlaylistItemEntity item : items) {
+            paths.add(item.getFilePath());
+            if (item.getDisplayName() != null) {
+                displayNames.put(item.getFilePath(), item.getDisplayName());
+            }
+        }
+        playlist.setMusicPaths(paths);
+        playlist.setDisplayNames(displayNames);
+    }
+
+    // importer un fichier m3u comme nouvelle playlist
+    // le fichier ne sera réécrit qu'avec l'accord de l'utilisateur (à la premiere modification)
+    // retourne la playlist créée, ou null si ce fichier est deja importé
+    public Playlist importM3U(String m3uPath, String name) {
+        return insertPlaylist(m3uPath, name, PlaylistEntity.M3U_WRITE_ASK);
+    }
+
+    // enregistrer une playlist dont le m3u vient d'etre créé par l'app : l'app pourra le réécrire
+    public Playlist createPlaylist(String m3uPath, String name) {
+        return insertPlaylist(m3uPath, name, PlaylistEntity.M3U_WRITE_ALWAYS);
+    }
+
+    private Playlist insertPlaylist(String m3uPath, String name, int writeMode) {
+        if (playlistDao.playlistExists(m3uPath) > 0) {
+            return null;
+        }
+
+        // date et taille lues AVANT le fichier : une modification pendant la lecture sera réimportée
+        File m3uFile = new File(m3uPath);
+        PlaylistEntity entity = new PlaylistEntity(m3uPath, name);
+        entity.setM3uLastModified(m3uFile.lastModified());
+        entity.setM3uSize(m3uFile.length());
+        entity.setM3uWriteMode(writeMode);
+        M3UContents contents = readM3U(m3uPath);
+        if (contents == null) {
+            contents = new M3UContents();
+        }
+        entity.setM3uHeader(contents.header);
+        entity.setM3uTrailer(contents.trailer);
+
+        List<M3UParser.Entry> entries = contents.entries;
+        database.runInTransaction(() -> {
+            int id = (int) playlistDao.insert(entity);
+            entity.setId(id);
+            playlistItemDao.insertAll(toItems(id, entries));
+        });
+        int musicCount = countPlayable(entries);
+        android.util.Log.d("PlaylistStore", "Playlist importée: " + name + " (" + musicCount + " musiques)");
+
+        Playlist playlist = new Playlist(entity.getId(), name, m3uPath);
+        playlist.setMusicCount(musicCount);
+        playlist.setM3uWriteMode(writeMode);
+        return playlist;
+    }
+
+    // réimporter le m3u d'une playlist s'il a changé depuis le dernier import
+    // retourne vrai si la playlist a été réimportée
+    public boolean syncM3U(int playlistId) {
+        if (pendingWrites.contains(playlistId)) {
+            // le m3u va etre réécrit depuis la base : c'est la base qui est à jour
+            return false;
+        }
+        PlaylistEntity entity = playlistDao.getPlaylistById(playlistId);
+        if (entity == null || !isM3UChanged(entity.getFilePath(), entity.getM3uLastModified(), entity.getM3uSize())) {
+            return false;
+        }
+        return reimport(playlistId);
+    }
+
+    // commencer une modification groupée d'une playlist
+    public PlaylistEditor edit(int playlistId) {
+        return new PlaylistEditor(this, playlistId);
+    }
+
+    // autoriser ou non la réécriture du m3u d'une playlist (PlaylistEntity.M3U_WRITE_*)
+    public void setM3uWriteMode(int playlistId, int mode) {
+        playlistDao.setM3uWriteMode(playlistId, mode);
+    }
+
+    int countItems(int playlistId) {
+        return playlistDao.getPlaylistById(playlistId) != null ? playlistItemDao.countPlayableItems(playlistId) : -1;
+    }
+
+    // ajouter des musiques à la fin d'une playlist (les lignes existantes ne sont pas réécrites)
+    int appendItems(int playlistId, List<String> paths) {
+        int[] count = {-1};
+        database.runInTransaction(() -> {
+            if (playlistDao.getPlaylistById(playlistId) == null) return;
+
+            int start = playlistItemDao.countItems(playlistId);
+            List<PlaylistItemEntity> items = new ArrayList<>(paths.size());
+            for (int i = 0; i < paths.size(); i++) {
+                items.add(new PlaylistItemEntity(playlistId, start + i, paths.get(i), null));
+            }
+            playlistItemDao.insertAll(items);
+            count[0] = playlistItemDao.countPlayableItems(playlistId);
+        });
+        if (count[0] >= 0) {
+            scheduleM3UWrite(playlistId);
+        }
+        return count[0];
+    }
+
+    // appliquer des opérations quelconques (retrait, déplacement...) : la playlist est relue,
+    // modifiée en memoire puis réécrite, le tout dans une transaction
+    int applyOperations(int playlistId, List<PlaylistEditor.Operation> operations) {
+        int[] count = {-1};
+        database.runInTransaction(() -> {
+            PlaylistEntity entity = playlistDao.getPlaylistById(playlistId);
+            if (entity == null) return;
+            String trailer = entity.getM3uTrailer();
+
+            List<PlaylistItemEntity> items = new ArrayList<>(playlistItemDao.getItems(playlistId));
+            for (PlaylistEditor.Operation operation : operations) {
+                operation.apply(items, entity);
+            }
+            int playable = 0;
+            for (int i = 0; i < items.size(); i++) {
+                items.get(i).setPosition(i);
+                if (items.get(i).isPlayable()) playable++;
+            }
+            playlistItemDao.deleteItems(playlistId);
+            playlistItemDao.insertAll(items);
+            if (!Objects.equals(trailer, entity.getM3uTrailer())) {
+                playlistDao.setM3uTrailer(playlistId, entity.getM3uTrailer());
+            }
+            count[0] = playable;
+        });
+        if (count[0] >= 0) {
+            scheduleM3UWrite(playlistId);
+        }
+        return count[0];
+    }
+
+    // réécrire le m3u d'une playlist en arriere plan
+    // plusieurs modifications rapprochées ne donnent qu'une écriture (celle du contenu le plus récent)
+    private void scheduleM3UWrite(int playlistId) {
+        dirtyWrites.add(playlistId);
+        if (pendingWrites.add(playlistId)) {
+            M3U_WRITER.execute(() -> runM3UWrites(playlistId));
+        }
+        // sinon une écriture est prévue ou en cours : elle voit dirtyWrites et recommence si besoin
+    }
+
+    private void runM3UWrites(int playlistId) {
+        // une modification pendant l'écriture remet la playlist dans dirtyWrites : on réécrit
+        while (dirtyWrites.remove(playlistId)) {
+            writeM3U(playlistId);
+        }
+        pendingWrites.remove(playlistId);
+        // modification arrivée entre la fin de la boucle et le retrait de pendingWrites
+        if (dirtyWrites.contains(playlistId) && pendingWrites.add(playlistId)) {
+            M3U_WRITER.execute(() -> runM3UWrites(playlistId));
+        }
+    }
+
+    // exporter le contenu d'une playlist dans son fichier m3u, si l'utilisateur l'autorise
+    // chaque entrée est réécrite avec ses lignes d'origine, une musique ajoutée par l'app avec son chemin absolu
+    private void writeM3U(int playlistId) {
+        PlaylistEntity entity = playlistDao.getPlaylistById(playlistId);
+        if (entity == null) return; // suprimée entre temps
+        if (entity.getM3uWriteMode() != PlaylistEntity.M3U_WRITE_ALWAYS) return; // le m3u n'est pas à nous
+
+        List<PlaylistItemEntity> items = playlistItemDao.getItems(playlistId);
+        File target = new File(entity.getFilePath());
+        File temp = new File(target.getParentFile(), target.getName() + ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp);
+                 Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+                writeLines(writer, entity.getM3uHeader());
+                for (PlaylistItemEntity item : items) {
+                    writeLines(writer, item.getExtraLines());
+                    if (item.getExtInf() != null) {
+                        writeLines(writer, item.getExtInf());
+                    } else if (item.getDisplayName() != null) {
+                        writeLines(writer, "#EXTINF:-1," + item.getDisplayName());
+                    }
+                    writeLines(writer, item.getLocation() != null ? item.getLocation() : item.getFilePath());
+                }
+                writeLines(writer, entity.getM3uTrailer());
+                writer.flush();
+                // sur le disque avant le renommage
+                out.getFD().sync();
+            }
+            Files.move(temp.toPath(), target.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            android.util.Log.e("PlaylistStore", "Erreur écriture du m3u " + target + ": " + e.getMessage());
+            temp.delete();
+            return;
+        }
+
+        // le fichier écrit par l'app ne doit pas etre réimporté
+        // (seulement ces deux colonnes : le reste de la playlist a pu changer pendant l'écriture)
+        playlistDao.setM3uFileInfo(playlistId, target.lastModified(), target.length());
+        android.util.Log.d("PlaylistStore", "M3U écrit: " + target.getName() + " (" + items.size() + " entrées)");
+    }
+
+    private static void writeLines(Writer writer, String lines) throws IOException {
+        if (lines != null) {
+            writer.write(lines);
+            writer.write('\n');
+        }
+    }
+
+    // une musique a été déplacée ou renommée (retrouvée par son empreinte pendant un scan) :
+    // les playlists qui la contiennent pointent vers son nouveau chemin et leurs m3u sont réécrits
+    public void movePath(String oldPath, String newPath) {
+        Set<Integer> changed = new HashSet<>();
+        database.runInTransaction(() -> {
+            for (PlaylistItemEntity item : playlistItemDao.getItemsByPath(oldPath)) {
+                PlaylistEntity playlist = playlistDao.getPlaylistById(item.getPlaylistId());
+                if (playlist == null) continue;
+                item.setFilePath(newPath);
+                if (item.getLocation() != null) {
+                    item.setLocation(relocate(item.getLocation(), playlist.getFilePath(), newPath));
+                }
+                playlistItemDao.update(item);
+                changed.add(item.getPlaylistId());
+            }
+        });
+        for (int playlistId : changed) {
+            scheduleM3UWrite(playlistId);
+        }
+        if (!changed.isEmpty()) {
+            android.util.Log.d("PlaylistStore", "Musique déplacée dans " + changed.size() + " playlists: " + newPath);
+        }
+    }
+
+    // nouvelle ligne de chemin d'une entrée déplacée, dans le meme style que l'ancienne :
+    // un chemin relatif reste relatif au dossier du m3u, les autres deviennent le chemin absolu
+    private static String relocate(String location, String m3uPath, String newPath) {
+        String line = location.trim();
+        if (line.regionMatches(true, 0, "file://", 0, 7) || new File(line).isAbsolute()) {
+            return newPath;
+        }
+        File m3uDir = new File(m3uPath).getAbsoluteFile().getParentFile();
+        if (m3uDir == null) {
+            return newPath;
+        }
+        return m3uDir.toPath().relativize(Paths.get(newPath)).toString();
+    }
+
+    // suprimer une playlist et ses musiques (le fichier m3u n'est pas touché)
+    public void deletePlaylist(int playlistId) {
+        database.runInTransaction(() -> {
+            PlaylistEntity entity = playlistDao.getPlaylistById(playlistId);
+            if (entity == null) return;
+            playlistItemDao.deleteItems(playlistId);
+            playlistDao.delete(entity);
+        });
+    }
+
+    // remplacer le contenu d'une playlist par celui de son m3u
+    private boolean reimport(int playlistId) {
+        PlaylistEntity entity = playlistDao.getPlaylistById(playlistId);
+        if (entity == null) return false;
+
+        // date et taille lues AVANT le fichier : une modification pendant la lecture sera réimportée
+        File m3uFile = new File(entity.getFilePath());
+        long lastModified = m3uFile.lastModified();
+        long size = m3uFile.length();
+        M3UContents contents = readM3U(entity.getFilePath());
+        if (contents == null) {
+            return false; // illisible : la playlist garde son contenu en base
+        }
+
+        boolean[] replaced = {false};
+        database.runInTransaction(() -> {
+            // vérifié à nouveau dans la transaction : une modification faite depuis dans l'app
+            // (écriture du m3u prévue, ou deja faite et enregistrée) passe avant le fichier lu
+            PlaylistEntity current = playlistDao.getPlaylistById(playlistId);
+            if (current == null || pendingWrites.contains(playlistId)
+                    || (current.getM3uLastModified() == lastModified && current.getM3uSize() == size)) {
+                return;
+            }
+            current.setM3uLastModified(lastModified);
+            current.setM3uSize(size);
+            current.setM3uHeader(contents.header);
+            current.setM3uTrailer(contents.trailer);
+            playlistItemDao.deleteItems(playlistId);
+            playlistItemDao.insertAll(toItems(playlistId, contents.entries));
+            playlistDao.update(current);
+            replaced[0] = true;
+        });
+        if (replaced[0]) {
+            android.util.Log.d("PlaylistStore", "Playlist réimportée: " + entity.getName() + " (" + contents.entries.size() + " entrées)");
+        }
+        return replaced[0];
+    }
+
+    // le m3u a-t-il changé depuis le dernier import ?
+    // un m3u supprimé ou illisible n'est pas "changé" : la playlist garde son contenu en base
+    private static boolean isM3UChanged(String m3uPath, long importedLastModified, long importedSize) {
+        File m3uFile = new File(m3uPath);
+        long lastModified = m3uFile.lastModified();
+        if (lastModified == 0) {
+            return false;
+        }
+        return lastModified != importedLastModified || m3uFile.length() != importedSize;
+    }
+
+    // contenu d'un m3u : ses entrées et les lignes autour
+    private static class M3UContents {
+        final List<M3UParser.Entry> entries = new ArrayList<>();
+        String header;
+        String trailer;
+    }
+
+    // lire un m3u en entier, null s'il est illisible
+    private static M3UContents readM3U(String m3uPath) {
+        M3UContents contents = new M3UContents();
+        try (M3UParser.EntryReader reader = M3UParser.open(m3uPath)) {
+            M3UParser.Entry entry;
+            while ((entry = reader.next()) != null) {
+                contents.entries.add(entry);
+            }
+            contents.header = reader.getHeader();
+            contents.trailer = reader.getTrailer();
+        } catch (IOException e) {
+            android.util.Log.e("PlaylistStore", "Erreur lecture du m3u " + m3uPath + ": " + e.getMessage());
+            return null;
+        }
+        return contents;
+    }
+
+    private static int countPlayable(List<M3UParser.Entry> entries) {
+        int count = 0;
+        for (M3UParser.Entry entry : entries) {
+            if (entry.isPlayable()) count++;
+        }
+        return count;
+    }
+
+    private static List<PlaylistItemEntity> toItems(int playlistId, List<M3UParser.Entry> entries) {
+        List<PlaylistItemEntity> items = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            M3UParser.Entry entry = entries.get(i);
+            // on ne garde le nom du m3u que s'il y avait un #EXTINF
+            String displayName = entry.getTitle() != null ? entry.getDisplayName() : null;
+            PlaylistItemEntity item = new PlaylistItemEntity(playlistId, i, entry.getPath(), displayName);
+            item.setLocation(entry.getLocation());
+            item.setExtInf(entry.getExtInf());
+            item.setExtraLines(entry.getExtraLines());
+            item.setPlayable(entry.isPlayable());
+            items.add(item);
+        }
+        return items;
+    }
+}
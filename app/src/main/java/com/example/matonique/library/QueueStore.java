@@ -0,0 +1,197 @@
+package com.example.matonique.library;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.example.matonique.database.LibraryDatabase;
+import com.example.matonique.database.QueueDao;
+import com.example.matonique.database.QueueItemEntity;
+import com.example.matonique.database.QueueItemPath;
+import com.example.matonique.database.TrackDao;
+import com.example.matonique.database.TrackEntity;
+import com.example.matonique.model.MusicQueue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Sauvegarde de la queue de lecture pour pouvoir reprendre apres l'arret du processus
+// - la liste des musiques va dans la base (table queue_items), sous forme d'ids de l'index
+//   (ou de chemins pour les musiques pas encore indexées)
+// - la position, l'index courant et les réglages de lecture vont dans les SharedPreferences
+// ATTENTION : saveQueue et load accedent à la base, il faut les appeler hors du thread principal
+public class QueueStore {
+
+    private static final String PREFS_NAME = "playback_state";
+    private static final String KEY_CURRENT_POSITION = "current_position"; // position dans la queue sauvegardée
+    private static final String KEY_SEEK_POSITION = "seek_position_ms";
+    private static final String KEY_QUEUE_TYPE = "queue_type";
+    private static final String KEY_SHUFFLE = "shuffle";
+    private static final String KEY_SHUFFLE_SEED = "shuffle_seed";
+    private static final String KEY_REPEAT_ALL = "repeat_all";
+    private static final String KEY_LOOPING = "looping";
+
+    // nombre de chemins par requete IN (SQLite limite le nombre de parametres)
+    private static final int LOOKUP_BATCH_SIZE = 500;
+
+    // Etat de lecture sauvegardé (hors liste des musiques)
+    public static class PlaybackState {
+        public final int currentIndex;
+        public final int seekPositionMs;
+        public final MusicQueue.QueueType queueType;
+        public final boolean shuffle;
+        public final long shuffleSeed;
+        public final boolean repeatAll;
+        public final boolean looping;
+
+        public PlaybackState(int currentIndex, int seekPositionMs, MusicQueue.QueueType queueType,
+                             boolean shuffle, long shuffleSeed, boolean repeatAll, boolean looping) {
+            this.currentIndex = currentIndex;
+            this.seekPositionMs = seekPositionMs;
+            this.queueType = queueType;
+            this.shuffle = shuffle;
+            this.shuffleSeed = shuffleSeed;
+            this.repeatAll = repeatAll;
+            this.looping = looping;
+        }
+    }
+
+    // Queue relue depuis la sauvegarde
+    public static class SavedQueue {
+        public final List<String> playOrder;
+        public final List<String> originalOrder; // null si l'aléatoire n'était pas actif
+        public final PlaybackState state;
+
+        SavedQueue(List<String> playOrder, List<String> originalOrder, PlaybackState state) {
+            this.playOrder = playOrder;
+            this.originalOrder = originalOrder;
+            this.state = state;
+        }
+    }
+
+    private final LibraryDatabase database;
+    private final QueueDao queueDao;
+    private final TrackDao trackDao;
+    private final SharedPreferences prefs;
+
+    public QueueStore(Context context) {
+        database = LibraryDatabase.getInstance(context);
+        queueDao = database.queueDao();
+        trackDao = database.trackDao();
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    // remplacer la liste des musiques sauvegardée
+    // originalOrder : ordre d'avant l'aléatoire (null si l'aléatoire n'est pas actif)
+    public void saveQueue(List<String> playOrder, List<String> originalOrder) {
+        Map<String, Integer> trackIds = resolveTrackIds(playOrder);
+
+        List<QueueItemEntity> items = new ArrayList<>(playOrder.size() * (originalOrder != null ? 2 : 1));
+        addItems(items, QueueItemEntity.LIST_PLAY_ORDER, playOrder, trackIds);
+        if (originalOrder != null) {
+            addItems(items, QueueItemEntity.LIST_ORIGINAL_ORDER, originalOrder, trackIds);
+        }
+
+        database.runInTransaction(() -> {
+            queueDao.deleteAll();
+            queueDao.insertAll(items);
+        });
+        android.util.Log.d("QueueStore", "Queue sauvegardée: " + playOrder.size() + " musiques");
+    }
+
+    // sauvegarder l'etat de lecture (écriture asynchrone des SharedPreferences)
+    public void saveState(PlaybackState state) {
+        prefs.edit()
+                .putInt(KEY_CURRENT_POSITION, state.currentIndex)
+                .putInt(KEY_SEEK_POSITION, state.seekPositionMs)
+                .putString(KEY_QUEUE_TYPE, state.queueType.name())
+                .putBoolean(KEY_SHUFFLE, state.shuffle)
+                .putLong(KEY_SHUFFLE_SEED, state.shuffleSeed)
+                .putBoolean(KEY_REPEAT_ALL, state.repeatAll)
+                .putBoolean(KEY_LOOPING, state.looping)
+                .apply();
+    }
+
+    // relire la queue sauvegardée, null s'il n'y en a pas
+    public SavedQueue load() {
+        if (!prefs.contains(KEY_CURRENT_POSITION)) {
+            return null;
+        }
+
+        List<QueueItemPath> playItems = queueDao.getItems(QueueItemEntity.LIST_PLAY_ORDER);
+        if (playItems.isEmpty()) {
+            return null;
+        }
+
+        // des musiques ont pu disparaitre de l'index depuis la sauvegarde :
+        // on retrouve la musique courante par sa position d'origine
+        int savedPosition = prefs.getInt(KEY_CURRENT_POSITION, 0);
+        int currentIndex = -1;
+        List<String> playOrder = new ArrayList<>(playItems.size());
+        for (int i = 0; i < playItems.size(); i++) {
+            QueueItemPath item = playItems.get(i);
+            if (currentIndex == -1 && item.position >= savedPosition) {
+                currentIndex = i;
+            }
+            playOrder.add(item.filePath);
+        }
+        if (currentIndex == -1) {
+            currentIndex = playOrder.size() - 1;
+        }
+
+        boolean shuffle = prefs.getBoolean(KEY_SHUFFLE, false);
+        List<String> originalOrder = null;
+        if (shuffle) {
+            List<QueueItemPath> originalItems = queueDao.getItems(QueueItemEntity.LIST_ORIGINAL_ORDER);
+            originalOrder = new ArrayList<>(originalItems.size());
+            for (QueueItemPath item : originalItems) {
+                originalOrder.add(item.filePath);
+            }
+        }
+
+        MusicQueue.QueueType queueType;
+        try {
+            queueType = MusicQueue.QueueType.valueOf(prefs.getString(KEY_QUEUE_TYPE, MusicQueue.QueueType.FOLDER.name()));
+        } catch (IllegalArgumentException e) {
+            queueType = MusicQueue.QueueType.FOLDER;
+        }
+
+        PlaybackState state = new PlaybackState(
+                currentIndex,
+                prefs.getInt(KEY_SEEK_POSITION, 0),
+                queueType,
+                shuffle,
+                prefs.getLong(KEY_SHUFFLE_SEED, 0),
+                prefs.getBoolean(KEY_REPEAT_ALL, false),
+                prefs.getBoolean(KEY_LOOPING, false)
+        );
+        return new SavedQueue(playOrder, originalOrder, state);
+    }
+
+    // retrouver l'id dans l'index de chaque chemin, par lots
+    // seulement dans l'index : lire les tags d'une musique pas encore indexée bloquerait
+    // le thread de la bibliothèque (chargement des musiques, pochettes) pendant la sauvegarde
+    private Map<String, Integer> resolveTrackIds(List<String> paths) {
+        Map<String, Integer> trackIds = new HashMap<>(paths.size() * 2);
+
+        for (int start = 0; start < paths.size(); start += LOOKUP_BATCH_SIZE) {
+            List<String> batch = paths.subList(start, Math.min(start + LOOKUP_BATCH_SIZE, paths.size()));
+            for (TrackEntity track : trackDao.getTracksByPaths(batch)) {
+                trackIds.put(track.getFilePath(), track.getId());
+            }
+        }
+        return trackIds;
+    }
+
+    // ajouter les lignes d'une liste en gardant les positions d'origine
+    // une musique absente de l'index est gardée par son chemin
+    private static void addItems(List<QueueItemEntity> items, int listType, List<String> paths,
+                                 Map<String, Integer> trackIds) {
+        for (int i = 0; i < paths.size(); i++) {
+            String path = paths.get(i);
+            Integer trackId = trackIds.get(path);
+            items.add(new QueueItemEntity(listType, i, trackId, trackId == null ? path : null));
+        }
+    }
+}
@@ -5,14 +5,21 @@ public class FileItem {
     private final String path; // chemin absolu
     private final String name;
     private final boolean isDirectory;
+    private final String subtitle; // deuxieme ligne affichée sous le nom (null si aucune)
 
     public FileItem(String path, String name, boolean isDirectory) {
+        this(path, name, isDirectory, null);
+    }
+
+    public FileItem(String path, String name, boolean isDirectory, String subtitle) {
         this.path = path;
         this.name = name;
         this.isDirectory = isDirectory;
+        this.subtitle = subtitle;
     }
 
     public String getPath() { return path; }
     public String getName() { return name; }
     public boolean isDirectory() { return isDirectory; }
+    public String getSubtitle() { return subtitle; }
 }
@@ -1,7 +1,5 @@
 package com.example.matonique.model;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.media.MediaMetadataRetriever;
 // Import de Parcelable et utilisation pour passer des Music en intent
 import android.os.Parcel;
@@ -9,7 +7,7 @@ import android.os.Parcelable;
 
 import androidx.annotation.NonNull;
 
-import com.example.matonique.utils.BitmapUtils;
+import com.example.matonique.database.TrackEntity;
 
 import java.io.File;
 import java.io.IOException;
@@ -26,6 +24,7 @@ public class Music implements Parcelable {
     private final String title;
     private final String artist;
     private final String album;
+    private final String albumArtist;
     private final String genre;
     private final String year;
     private final String trackNumber;
@@ -36,8 +35,7 @@ public class Music implements Parcelable {
     private final long durationMs;
     private final long fileSize;
 
-    // Cover
-    private final Bitmap cover;
+    // NOTE: pas de Bitmap de cover ici, les covers sont chargées à la taille affichée via CoverCache
 
     public Music(String filePath) {
         this.filePath = filePath;
@@ -59,6 +57,9 @@ public class Music implements Parcelable {
             album = valueOrUnknown(retriever.extractMetadata(
                     MediaMetadataRetriever.METADATA_KEY_ALBUM));
 
+            albumArtist = retriever.extractMetadata(
+                    MediaMetadataRetriever.METADATA_KEY_ALBUMARTIST);
+
             genre = retriever.extractMetadata(
                     MediaMetadataRetriever.METADATA_KEY_GENRE);
 
@@ -78,30 +79,6 @@ public class Music implements Parcelable {
                     MediaMetadataRetriever.METADATA_KEY_DURATION);
             durationMs = durationStr != null ? Long.parseLong(durationStr) : 0;
 
-            // extraction de la cover avec gestion de la taille
-            byte[] art = retriever.getEmbeddedPicture();
-            if (art != null) {
-                android.util.Log.d("Music", "Taille de la cover: " + formatFileSize(art.length));
-
-                // si la cover est trop grosse (> 5 MB), on la redimensionne
-                if (art.length > 5 * 1024 * 1024) {
-                    android.util.Log.w("Music", "Cover très grosse, redimensionnement...");
-                    // decoder avec des options pour reduire la taille
-                    BitmapFactory.Options options = new BitmapFactory.Options();
-                    options.inSampleSize = 4; // reduire par 4
-                    cover = BitmapFactory.decodeByteArray(art, 0, art.length, options);
-                } else {
-                    cover = BitmapFactory.decodeByteArray(art, 0, art.length);
-                }
-
-                if (cover != null) {
-                    android.util.Log.d("Music", "Cover chargée: " + cover.getWidth() + "x" + cover.getHeight());
-                }
-            } else {
-                cover = null;
-                android.util.Log.d("Music", "Pas de cover intégrée");
-            }
-
         } catch (IllegalArgumentException e) {
             android.util.Log.e("Music", "Fichier invalide ou corrompu: " + filePath, e);
             throw new RuntimeException("Fichier audio invalide ou corrompu: " + file.getName(), e);
@@ -121,6 +98,23 @@ public class Music implements Parcelable {
         android.util.Log.d("Music", "=== Chargement terminé: " + title + " (" + formatFileSize(fileSize) + ")");
     }
 
+    // constructeur à partir d'une entrée de l'index de la bibliothèque
+    // aucun accès au fichier ici
+    public Music(TrackEntity track) {
+        filePath = track.getFilePath();
+        title = track.getTitle();
+        artist = track.getArtist();
+        album = track.getAlbum();
+        albumArtist = track.getAlbumArtist();
+        genre = track.getGenre();
+        year = track.getYear();
+        trackNumber = track.getTrackNumber();
+        composer = track.getComposer();
+        author = track.getAuthor();
+        durationMs = track.getDurationMs();
+        fileSize = track.getFileSize();
+    }
+
     // formater la taille d'un fichier en texte lisible
     private static String formatFileSize(long bytes) {
         if (bytes < 1024) return bytes + " B";
@@ -130,13 +124,12 @@ public class Music implements Parcelable {
     }
 
     // constructeur privé pour la factory utilisée par Parcelable
-    // NOTE: On ne désérialise PAS le Bitmap ici pour éviter les transactions Binder trop grosses
-    // Le service ou l'activité qui reçoit l'objet rechargera la cover depuis le fichier si nécessaire
     protected Music(Parcel in) {
         filePath = in.readString();
         title = in.readString();
         artist = in.readString();
         album = in.readString();
+        albumArtist = in.readString();
         genre = in.readString();
         year = in.readString();
         trackNumber = in.readString();
@@ -145,11 +138,7 @@ public class Music implements Parcelable {
         durationMs = in.readLong();
         fileSize = in.readLong();
 
-        // NE PAS DESERIALISER LE BITMAP - Il sera rechargé depuis le fichier si nécessaire
-        // Cela évite les erreurs "transaction too large" du Binder Android (limite ~1MB)
-        cover = null;
-
-        android.util.Log.d("Music", "Objet Music désérialisé depuis Parcel (sans cover): " + title);
+        android.util.Log.d("Music", "Objet Music désérialisé depuis Parcel: " + title);
     }
 
     // Factory pour construire des objets Music
@@ -175,13 +164,13 @@ public class Music implements Parcelable {
     }
 
     // On deporte les données dans le Parcel pour les faire passer dans un intent
-    // NOTE: On ne sérialise PAS le Bitmap pour éviter les transactions Binder trop grosses
     @Override
     public void writeToParcel(@NonNull Parcel dest, int flags) {
         dest.writeString(filePath);
         dest.writeString(title);
         dest.writeString(artist);
         dest.writeString(album);
+        dest.writeString(albumArtist);
         dest.writeString(genre);
         dest.writeString(year);
         dest.writeString(trackNumber);
@@ -190,11 +179,7 @@ public class Music implements Parcelable {
         dest.writeLong(durationMs);
         dest.writeLong(fileSize);
 
-        // NE PAS SERIALISER LE BITMAP - Le Binder Android a une limite de ~1MB
-        // Une cover de 700x700 peut faire 764KB, ce qui cause une erreur -74
-        // Le destinataire rechargera la cover depuis le fichier si nécessaire
-
-        android.util.Log.d("Music", "Objet Music sérialisé vers Parcel (sans cover): " + title);
+        android.util.Log.d("Music", "Objet Music sérialisé vers Parcel: " + title);
     }
 
     // -------- Getters --------
@@ -215,6 +200,10 @@ public class Music implements Parcelable {
         return album;
     }
 
+    public String getAlbumArtist() {
+        return albumArtist;
+    }
+
     public String getGenre() {
         return genre;
     }
@@ -243,51 +232,6 @@ public class Music implements Parcelable {
         return fileSize;
     }
 
-    public Bitmap getCover() {
-        return cover;
-    }
-
-    // Recharger la cover depuis le fichier si elle est null
-    // Utile quand l'objet Music a été recréé depuis un Parcel (sans cover pour éviter les transactions trop grosses)
-    public Bitmap getCoverOrLoad() {
-        if (cover != null) {
-            return cover;
-        }
-
-        // Charger la cover depuis le fichier
-        android.util.Log.d("Music", "Cover null, rechargement depuis le fichier: " + filePath);
-
-        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
-        try {
-            retriever.setDataSource(filePath);
-            byte[] art = retriever.getEmbeddedPicture();
-
-            if (art != null) {
-                android.util.Log.d("Music", "Cover rechargée: " + formatFileSize(art.length));
-
-                // Redimensionner si trop grosse
-                if (art.length > 5 * 1024 * 1024) {
-                    android.util.Log.w("Music", "Cover très grosse, redimensionnement...");
-                    BitmapFactory.Options options = new BitmapFactory.Options();
-                    options.inSampleSize = 4;
-                    return BitmapFactory.decodeByteArray(art, 0, art.length, options);
-                } else {
-                    return BitmapFactory.decodeByteArray(art, 0, art.length);
-                }
-            }
-        } catch (Exception e) {
-            android.util.Log.e("Music", "Erreur rechargement cover: " + e.getMessage());
-        } finally {
-            try {
-                retriever.release();
-            } catch (Exception e) {
-                android.util.Log.e("Music", "Erreur release retriever", e);
-            }
-        }
-
-        return null;
-    }
-
     // -------- Utils --------
 
     private String valueOrUnknown(String value) {
@@ -1,14 +1,34 @@
 package com.example.matonique.model;
 
+import android.content.Context;
+
+import com.example.matonique.library.DirectoryCache;
+import com.example.matonique.library.MusicLibrary;
+import com.example.matonique.utils.CoverCache;
+import com.example.matonique.utils.DirectoryLister;
+
 import java.io.File;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Classe pour gérer une queue de musiques à jouer
  * Permet de naviguer entre les musiques (suivant/précédent)
  * Supporte deux modes : FOLDER (fichiers d'un dossier) et PLAYLIST (liste personnalisée)
+ * Supporte aussi l'aléatoire (permutation reproductible à partir d'une graine), la répétition de toute la queue
+ * et l'édition (lire ensuite, ajouter à la fin, retirer, déplacer)
+ * Quand le préchargement est activé, les Music et les covers autour de la musique actuelle
+ * sont préparées en arriere plan pour que suivant/précédent soient instantanés
  */
 public class MusicQueue {
 
@@ -21,6 +41,35 @@ public class MusicQueue {
     private int currentIndex;          // Index de la musique actuelle
     private QueueType type;            // Type de queue
 
+    // index chemin -> position dans musicPaths (premiere occurrence)
+    // mis à jour sur la zone touchée par une édition, reconstruit quand on en a besoin apres un remplacement de la queue
+    private Map<String, Integer> pathIndex;
+
+    // aléatoire : ordre d'origine gardé pour pouvoir revenir en arriere
+    private boolean shuffleEnabled = false;
+    private long shuffleSeed;
+    private List<String> originalOrder;
+    // originalSlots.get(i) : position dans originalOrder de la musique à la position i de musicPaths
+    // par position et pas par chemin : une meme musique peut etre plusieurs fois dans la queue
+    private List<Integer> originalSlots;
+
+    // répéter toute la queue : apres la derniere on revient à la premiere
+    private boolean repeatAll = false;
+
+    // incrémenté à chaque modification du contenu ou de l'ordre (pour savoir s'il faut sauvegarder)
+    private int modificationCount = 0;
+
+    // fenetre de préchargement autour de currentIndex
+    private static final int PREFETCH_AHEAD = 3;
+    private static final int PREFETCH_BEHIND = 1;
+
+    // musiques deja résolues dans la fenetre (remplie par le thread de préchargement)
+    private final Map<String, Music> prefetched = new ConcurrentHashMap<>();
+    // chemins de la fenetre actuelle, remplacée à chaque déplacement dans la queue
+    private volatile Set<String> prefetchWindow = Collections.emptySet();
+    private Context prefetchContext;
+    private ExecutorService prefetchExecutor;
+
     // Constructeur pour créer une queue vide
     public MusicQueue() {
         this.musicPaths = new ArrayList<>();
@@ -31,28 +80,8 @@ public class MusicQueue {
     // Constructeur pour créer une queue à partir d'un dossier
     public MusicQueue(File directory, String currentFilePath) {
         this.type = QueueType.FOLDER;
-        this.musicPaths = new ArrayList<>();
-        this.currentIndex = -1;
-
-        if (directory != null && directory.isDirectory()) {
-            File[] files = directory.listFiles();
-            if (files != null) {
-                // Trier les fichiers
-                Arrays.sort(files, (f1, f2) -> f1.getName().compareToIgnoreCase(f2.getName()));
-
-                // Ajouter uniquement les fichiers musicaux
-                for (File file : files) {
-                    if (!file.isDirectory() && isMusicFile(file)) {
-                        musicPaths.add(file.getAbsolutePath());
-
-                        // Trouver l'index du fichier actuel
-                        if (file.getAbsolutePath().equals(currentFilePath)) {
-                            currentIndex = musicPaths.size() - 1;
-                        }
-                    }
-                }
-            }
-        }
+        this.musicPaths = listFolder(directory);
+        this.currentIndex = musicPaths.indexOf(currentFilePath);
 
         // Si le fichier actuel n'a pas été trouvé mais qu'il existe, l'ajouter
         if (currentIndex == -1 && currentFilePath != null) {
@@ -74,17 +103,24 @@ public class MusicQueue {
         }
     }
 
-    // Vérifier si le fichier est un fichier musical supporté
-    private boolean isMusicFile(File file) {
-        String name = file.getName().toLowerCase();
-        return name.endsWith(".mp3") || name.endsWith(".m4a") ||
-                name.endsWith(".flac") || name.endsWith(".wav");
+    // chemins des musiques d'un dossier, triés par nom
+    // le listing de l'explorateur est réutilisé s'il est en cache et que le dossier n'a pas changé
+    private static List<String> listFolder(File directory) {
+        if (directory == null) {
+            return new ArrayList<>();
+        }
+        List<String> cachedPaths = DirectoryCache.getInstance().getTrackPaths(directory);
+        if (cachedPaths != null) {
+            return cachedPaths;
+        }
+        return DirectoryLister.listTrackPaths(directory);
     }
 
     // Obtenir la musique suivante (retourne null si on est à la fin)
     public String getNext() {
         if (hasNext()) {
-            currentIndex++;
+            currentIndex = nextIndex();
+            updatePrefetchWindow();
             return musicPaths.get(currentIndex);
         }
         return null;
@@ -93,22 +129,47 @@ public class MusicQueue {
     // Obtenir la musique précédente (retourne null si on est au début)
     public String getPrevious() {
         if (hasPrevious()) {
-            currentIndex--;
+            currentIndex = previousIndex();
+            updatePrefetchWindow();
             return musicPaths.get(currentIndex);
         }
         return null;
     }
 
+    // Regarder la musique suivante sans avancer dans la queue (null si on est à la fin)
+    public String peekNext() {
+        if (hasNext()) {
+            return musicPaths.get(nextIndex());
+        }
+        return null;
+    }
+
     // Vérifier s'il y a une musique suivante
     public boolean hasNext() {
+        if (repeatAll) {
+            return !musicPaths.isEmpty();
+        }
         return currentIndex < musicPaths.size() - 1;
     }
 
     // Vérifier s'il y a une musique précédente
     public boolean hasPrevious() {
+        if (repeatAll) {
+            return !musicPaths.isEmpty();
+        }
         return currentIndex > 0;
     }
 
+    // position suivante (revient au début en répétition de toute la queue)
+    private int nextIndex() {
+        return currentIndex + 1 < musicPaths.size() ? currentIndex + 1 : 0;
+    }
+
+    // position précédente (va à la fin en répétition de toute la queue)
+    private int previousIndex() {
+        return currentIndex > 0 ? currentIndex - 1 : musicPaths.size() - 1;
+    }
+
     // Obtenir le chemin de la musique actuelle
     public String getCurrentPath() {
         if (currentIndex >= 0 && currentIndex < musicPaths.size()) {
@@ -132,45 +193,455 @@ public class MusicQueue {
         return type;
     }
 
-    // Définir une nouvelle queue à partir d'un dossier
-    public void setFromFolder(File directory, String currentFilePath) {
-        this.type = QueueType.FOLDER;
-        this.musicPaths.clear();
-        this.currentIndex = -1;
+    // Obtenir les chemins dans l'ordre de lecture (lecture seule)
+    public List<String> getPaths() {
+        return Collections.unmodifiableList(musicPaths);
+    }
+
+    // Obtenir l'ordre d'avant l'aléatoire (null si l'aléatoire n'est pas actif)
+    public List<String> getOriginalOrder() {
+        return originalOrder != null ? Collections.unmodifiableList(originalOrder) : null;
+    }
+
+    public int getModificationCount() {
+        return modificationCount;
+    }
+
+    // Remettre une queue sauvegardée telle quelle (sans remélanger)
+    public void restore(QueueType type, List<String> playOrder, List<String> savedOriginalOrder, int index,
+                        boolean shuffle, long seed, boolean repeatAll) {
+        this.type = type;
+        this.musicPaths = new ArrayList<>(playOrder);
+        this.currentIndex = index;
+        this.shuffleEnabled = shuffle && savedOriginalOrder != null;
+        this.originalOrder = shuffleEnabled ? new ArrayList<>(savedOriginalOrder) : null;
+        this.originalSlots = shuffleEnabled ? matchOriginalSlots(musicPaths, originalOrder) : null;
+        this.shuffleSeed = seed;
+        this.repeatAll = repeatAll;
+        invalidateIndex();
+        updatePrefetchWindow();
+    }
+
+    // Position d'un chemin dans la queue (-1 si absent), en O(1) grace à l'index
+    public int indexOf(String filePath) {
+        if (filePath == null) return -1;
+        Integer position = getPathIndex().get(filePath);
+        return position != null ? position : -1;
+    }
+
+    // -------- Aléatoire et répétition --------
+
+    // activer ou désactiver l'aléatoire avec une nouvelle graine
+    public void setShuffle(boolean enabled) {
+        setShuffle(enabled, new Random().nextLong());
+    }
+
+    // activer ou désactiver l'aléatoire
+    // la meme graine sur la meme queue donne toujours le meme ordre
+    // la musique actuelle est mise en premier pour que la lecture continue sans coupure
+    public void setShuffle(boolean enabled, long seed) {
+        if (enabled) {
+            int currentSlot;
+            if (shuffleEnabled) {
+                currentSlot = getCurrentSlot();
+            } else {
+                originalOrder = new ArrayList<>(musicPaths);
+                currentSlot = getCurrentPath() != null ? currentIndex : -1;
+            }
+            shuffleEnabled = true;
+            shuffleSeed = seed;
+            applyShuffle(currentSlot);
+        } else if (shuffleEnabled) {
+            // on revient sur l'entrée d'origine de la musique actuelle (pas la premiere avec le meme chemin)
+            int currentSlot = getCurrentSlot();
+            shuffleEnabled = false;
+            musicPaths = originalOrder;
+            originalOrder = null;
+            originalSlots = null;
+            invalidateIndex();
+            currentIndex = currentSlot;
+            updatePrefetchWindow();
+        }
+    }
+
+    // mélanger l'ordre d'origine avec la graine actuelle
+    // currentSlot : position dans originalOrder de la musique actuelle, mise en premier (-1 si aucune)
+    private void applyShuffle(int currentSlot) {
+        List<Integer> slots = new ArrayList<>(originalOrder.size());
+        for (int i = 0; i < originalOrder.size(); i++) {
+            slots.add(i);
+        }
+        Collections.shuffle(slots, new Random(shuffleSeed));
+        if (currentSlot >= 0) {
+            slots.remove(Integer.valueOf(currentSlot));
+            slots.add(0, currentSlot);
+        }
+
+        List<String> shuffled = new ArrayList<>(slots.size());
+        for (int slot : slots) {
+            shuffled.add(originalOrder.get(slot));
+        }
+
+        musicPaths = shuffled;
+        originalSlots = slots;
+        invalidateIndex();
+        currentIndex = shuffled.isEmpty() ? -1 : 0;
+        updatePrefetchWindow();
+    }
+
+    // position dans originalOrder de la musique actuelle (-1 si aucune)
+    private int getCurrentSlot() {
+        return getCurrentPath() != null ? originalSlots.get(currentIndex) : -1;
+    }
+
+    // retrouver la position dans l'ordre d'origine de chaque musique d'une queue sauvegardée
+    // une musique en double est associée à ses occurences dans l'ordre ; les entrées qui ne se correspondent
+    // plus (musique sortie de l'index depuis la sauvegarde) sont retirées de originalOrder ou ajoutées à sa fin
+    private static List<Integer> matchOriginalSlots(List<String> playOrder, List<String> originalOrder) {
+        Map<String, ArrayDeque<Integer>> slotsByPath = new HashMap<>(originalOrder.size() * 2);
+        for (int i = 0; i < originalOrder.size(); i++) {
+            slotsByPath.computeIfAbsent(originalOrder.get(i), path -> new ArrayDeque<>()).add(i);
+        }
+
+        int[] matched = new int[playOrder.size()];
+        boolean[] used = new boolean[originalOrder.size()];
+        for (int i = 0; i < playOrder.size(); i++) {
+            ArrayDeque<Integer> slots = slotsByPath.get(playOrder.get(i));
+            Integer slot = slots != null ? slots.poll() : null;
+            matched[i] = slot != null ? slot : -1;
+            if (slot != null) {
+                used[slot] = true;
+            }
+        }
+
+        // renuméroter originalOrder sans les entrées qui n'ont plus de musique dans la queue
+        int[] renumbered = new int[originalOrder.size()];
+        List<String> kept = new ArrayList<>(playOrder.size());
+        for (int i = 0; i < originalOrder.size(); i++) {
+            if (used[i]) {
+                renumbered[i] = kept.size();
+                kept.add(originalOrder.get(i));
+            }
+        }
+
+        List<Integer> slots = new ArrayList<>(playOrder.size());
+        for (int i = 0; i < playOrder.size(); i++) {
+            if (matched[i] >= 0) {
+                slots.add(renumbered[matched[i]]);
+            } else {
+                slots.add(kept.size());
+                kept.add(playOrder.get(i));
+            }
+        }
+
+        originalOrder.clear();
+        originalOrder.addAll(kept);
+        return slots;
+    }
 
-        if (directory != null && directory.isDirectory()) {
-            File[] files = directory.listFiles();
-            if (files != null) {
-                Arrays.sort(files, (f1, f2) -> f1.getName().compareToIgnoreCase(f2.getName()));
+    public boolean isShuffleEnabled() {
+        return shuffleEnabled;
+    }
+
+    public long getShuffleSeed() {
+        return shuffleSeed;
+    }
+
+    public void setRepeatAll(boolean repeatAll) {
+        this.repeatAll = repeatAll;
+        updatePrefetchWindow();
+    }
 
-                for (File file : files) {
-                    if (!file.isDirectory() && isMusicFile(file)) {
-                        musicPaths.add(file.getAbsolutePath());
+    public boolean isRepeatAll() {
+        return repeatAll;
+    }
+
+    // -------- Edition de la queue --------
+
+    // insérer une musique juste apres la musique actuelle (lire ensuite)
+    public void addNext(String filePath) {
+        int slot = -1;
+        if (shuffleEnabled) {
+            // dans l'ordre d'origine aussi, juste apres la musique actuelle,
+            // pour la retrouver au meme endroit en quittant l'aléatoire
+            slot = getCurrentSlot() + 1;
+            originalOrder.add(slot, filePath);
+            shiftSlots(slot, 1);
+        }
+        insert(currentIndex + 1, filePath, slot);
+    }
 
-                        if (file.getAbsolutePath().equals(currentFilePath)) {
-                            currentIndex = musicPaths.size() - 1;
-                        }
-                    }
-                }
+    // ajouter des musiques à la fin de la queue
+    public void enqueue(List<String> filePaths) {
+        int start = musicPaths.size();
+        musicPaths.addAll(filePaths);
+        if (shuffleEnabled) {
+            for (int i = 0; i < filePaths.size(); i++) {
+                originalSlots.add(originalOrder.size() + i);
             }
+            originalOrder.addAll(filePaths);
         }
+        modificationCount++;
+
+        // ajout à la fin : les positions existantes ne bougent pas, on complete l'index
+        indexRange(start, musicPaths.size());
+        if (currentIndex == -1 && !musicPaths.isEmpty()) {
+            currentIndex = 0;
+        }
+        updatePrefetchWindow();
+    }
+
+    // retirer la musique à une position donnée
+    // la musique en cours de lecture ne peut pas etre retirée
+    public boolean remove(int position) {
+        if (position < 0 || position >= musicPaths.size() || position == currentIndex) {
+            return false;
+        }
+
+        unindexRange(position, musicPaths.size());
+        musicPaths.remove(position);
+        indexRange(position, musicPaths.size());
+        if (position < currentIndex) {
+            currentIndex--;
+        }
+        if (shuffleEnabled) {
+            // l'entrée de cette position dans l'ordre d'origine, pas la premiere avec le meme chemin
+            int slot = originalSlots.remove(position);
+            originalOrder.remove(slot);
+            shiftSlots(slot + 1, -1);
+        }
+        modificationCount++;
+        updatePrefetchWindow();
+        return true;
+    }
+
+    // retirer une musique à partir de son chemin
+    public boolean remove(String filePath) {
+        return remove(indexOf(filePath));
+    }
+
+    // déplacer une musique d'une position à une autre (la musique actuelle reste la meme)
+    public boolean move(int from, int to) {
+        if (from < 0 || from >= musicPaths.size() || to < 0 || to >= musicPaths.size()) {
+            return false;
+        }
+        if (from == to) return true;
+
+        // seules les positions entre from et to changent
+        int start = Math.min(from, to);
+        int end = Math.max(from, to) + 1;
+        unindexRange(start, end);
+        musicPaths.add(to, musicPaths.remove(from));
+        if (shuffleEnabled) {
+            originalSlots.add(to, originalSlots.remove(from));
+        }
+        indexRange(start, end);
+
+        // garder currentIndex sur la meme musique
+        if (from == currentIndex) {
+            currentIndex = to;
+        } else if (from < currentIndex && to >= currentIndex) {
+            currentIndex--;
+        } else if (from > currentIndex && to <= currentIndex) {
+            currentIndex++;
+        }
+        modificationCount++;
+        updatePrefetchWindow();
+        return true;
+    }
+
+    // insérer une musique à une position donnée de l'ordre de lecture
+    // slot : sa position dans originalOrder si l'aléatoire est actif
+    private void insert(int position, String filePath, int slot) {
+        position = Math.max(0, Math.min(position, musicPaths.size()));
+        unindexRange(position, musicPaths.size());
+        musicPaths.add(position, filePath);
+        indexRange(position, musicPaths.size());
+        if (shuffleEnabled) {
+            originalSlots.add(position, slot);
+        }
+        if (currentIndex == -1) {
+            currentIndex = 0;
+        } else if (position <= currentIndex) {
+            currentIndex++;
+        }
+        modificationCount++;
+        updatePrefetchWindow();
+    }
+
+    // une entrée a été ajoutée ou retirée dans originalOrder : décaler les positions à partir de from
+    private void shiftSlots(int from, int delta) {
+        for (int i = 0; i < originalSlots.size(); i++) {
+            int slot = originalSlots.get(i);
+            if (slot >= from) {
+                originalSlots.set(i, slot + delta);
+            }
+        }
+    }
+
+    // -------- Index des chemins --------
+    // une édition ne touche que les positions d'une zone [start, end[ de musicPaths :
+    // on retire de l'index les chemins qui pointent dans la zone avant la modification,
+    // puis on indexe à nouveau la zone apres (la premiere occurrence hors de la zone reste valable)
+
+    private void unindexRange(int start, int end) {
+        if (pathIndex == null) return;
+        for (int i = start; i < end; i++) {
+            String path = musicPaths.get(i);
+            Integer position = pathIndex.get(path);
+            if (position != null && position >= start && position < end) {
+                pathIndex.remove(path);
+            }
+        }
+    }
+
+    private void indexRange(int start, int end) {
+        if (pathIndex == null) return;
+        for (int i = start; i < end; i++) {
+            pathIndex.putIfAbsent(musicPaths.get(i), i);
+        }
+    }
+
+    private Map<String, Integer> getPathIndex() {
+        if (pathIndex == null) {
+            pathIndex = new HashMap<>(musicPaths.size() * 2);
+            for (int i = 0; i < musicPaths.size(); i++) {
+                // premiere occurrence, comme List.indexOf
+                pathIndex.putIfAbsent(musicPaths.get(i), i);
+            }
+        }
+        return pathIndex;
+    }
+
+    // les positions ont changé : l'index sera reconstruit à la prochaine recherche
+    private void invalidateIndex() {
+        pathIndex = null;
+        modificationCount++;
+    }
+
+    // une nouvelle queue vient d'etre définie : appliquer l'aléatoire s'il est actif
+    private void onQueueReplaced() {
+        invalidateIndex();
+        if (shuffleEnabled) {
+            originalOrder = new ArrayList<>(musicPaths);
+            shuffleSeed = new Random().nextLong();
+            applyShuffle(getCurrentPath() != null ? currentIndex : -1);
+        } else {
+            updatePrefetchWindow();
+        }
+    }
+
+    // Définir une nouvelle queue à partir d'un dossier
+    public void setFromFolder(File directory, String currentFilePath) {
+        setFromFolder(listFolder(directory), currentFilePath);
+    }
+
+    // Définir une nouvelle queue à partir des musiques d'un dossier deja listées (depuis l'index)
+    // les chemins doivent etre deja triés
+    public void setFromFolder(List<String> folderPaths, String currentFilePath) {
+        this.type = QueueType.FOLDER;
+        this.musicPaths = new ArrayList<>(folderPaths);
+        invalidateIndex();
+        this.currentIndex = indexOf(currentFilePath);
 
         if (currentIndex == -1 && currentFilePath != null) {
             musicPaths.add(currentFilePath);
             currentIndex = musicPaths.size() - 1;
         }
+        onQueueReplaced();
     }
 
     // Définir une nouvelle queue à partir d'une playlist
     public void setFromPlaylist(List<String> playlist, String currentFilePath) {
         this.type = QueueType.PLAYLIST;
         this.musicPaths = new ArrayList<>(playlist);
-        this.currentIndex = playlist.indexOf(currentFilePath);
+        invalidateIndex();
+        this.currentIndex = indexOf(currentFilePath);
 
         if (currentIndex == -1 && currentFilePath != null) {
             musicPaths.add(currentFilePath);
             currentIndex = musicPaths.size() - 1;
         }
+        onQueueReplaced();
     }
-}
 
+    // -------- Préchargement --------
+
+    // activer le préchargement des musiques voisines (sur un thread dédié)
+    public void enablePrefetch(Context context) {
+        if (prefetchExecutor != null) return;
+        prefetchContext = context.getApplicationContext();
+        prefetchExecutor = Executors.newSingleThreadExecutor();
+        updatePrefetchWindow();
+    }
+
+    // arreter le préchargement et oublier les musiques préchargées
+    public void shutdownPrefetch() {
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdownNow();
+            prefetchExecutor = null;
+        }
+        prefetchWindow = Collections.emptySet();
+        prefetched.clear();
+    }
+
+    // recuperer une musique deja préchargée (null si elle n'est pas encore prête)
+    public Music getPrefetchedMusic(String filePath) {
+        return filePath != null ? prefetched.get(filePath) : null;
+    }
+
+    // recalculer la fenetre autour de currentIndex, oublier ce qui en sort et précharger ce qui y entre
+    private void updatePrefetchWindow() {
+        if (prefetchExecutor == null || currentIndex < 0 || currentIndex >= musicPaths.size()) return;
+
+        // ordre de priorité : la musique actuelle, les suivantes puis les précédentes
+        // en repeat all la fenetre fait le tour de la queue, comme nextIndex et previousIndex
+        int size = musicPaths.size();
+        List<String> window = new ArrayList<>();
+        window.add(musicPaths.get(currentIndex));
+        for (int offset = 1; offset <= PREFETCH_AHEAD && offset < size; offset++) {
+            int i = currentIndex + offset;
+            if (i >= size) {
+                if (!repeatAll) break;
+                i -= size;
+            }
+            window.add(musicPaths.get(i));
+        }
+        for (int offset = 1; offset <= PREFETCH_BEHIND && offset < size; offset++) {
+            int i = currentIndex - offset;
+            if (i < 0) {
+                if (!repeatAll) break;
+                i += size;
+            }
+            window.add(musicPaths.get(i));
+        }
+
+        prefetchWindow = new HashSet<>(window);
+        prefetched.keySet().retainAll(prefetchWindow);
+
+        for (String path : window) {
+            if (!prefetched.containsKey(path)) {
+                prefetchExecutor.execute(() -> prefetch(path));
+            }
+        }
+    }
+
+    // résoudre une musique et charger ses covers en memoire (thread de préchargement)
+    private void prefetch(String path) {
+        // on a pu sauter plusieurs musiques depuis que la tache a été ajoutée
+        if (!prefetchWindow.contains(path) || prefetched.containsKey(path)) return;
+
+        try {
+            Music music = MusicLibrary.getInstance(prefetchContext).getMusic(path);
+            if (!prefetchWindow.contains(path)) return;
+            prefetched.put(path, music);
+
+            // les covers passent du disque au cache memoire : l'affichage sera immédiat
+            CoverCache coverCache = CoverCache.getInstance(prefetchContext);
+            coverCache.getCover(music, CoverCache.CoverSize.PLAYER);
+            coverCache.getCover(music, CoverCache.CoverSize.NOTIFICATION);
+        } catch (RuntimeException e) {
+            android.util.Log.w("MusicQueue", "Préchargement impossible de: " + path, e);
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package com.example.matonique.model;
 
 import java.util.List;
+import java.util.Map;
 
 // Modele représentant une playlist avec son nom et la liste des musiques
 public class Playlist {
     private int id;
     private String name;
     private String filePath; // chemin du fichier m3u
-    private List<String> musicPaths; // liste des chemins des musiques dans la playlist
+    private List<String> musicPaths; // liste des chemins des musiques (null tant que la playlist n'est pas ouverte)
+    private int musicCount; // nombre de musiques lu dans la base avec la liste des playlists
+    private Map<String, String> displayNames; // noms à afficher lus dans les #EXTINF du m3u (chemin -> nom)
+    private int m3uWriteMode; // l'app peut-elle réécrire le m3u (PlaylistEntity.M3U_WRITE_*)
 
     public Playlist(int id, String name, String filePath) {
         this.id = id;
@@ -47,9 +51,37 @@ public class Playlist {
         this.musicPaths = musicPaths;
     }
 
+    public void setDisplayNames(Map<String, String> displayNames) {
+        this.displayNames = displayNames;
+    }
+
+    // noms lus dans les #EXTINF du m3u (chemin -> nom), vide si aucun
+    public Map<String, String> getDisplayNames() {
+        return displayNames != null ? displayNames : java.util.Collections.emptyMap();
+    }
+
+    // nom à afficher pour une musique de la playlist (celui du m3u si présent, sinon le nom du fichier)
+    public String getDisplayName(String musicPath) {
+        if (displayNames != null && displayNames.containsKey(musicPath)) {
+            return displayNames.get(musicPath);
+        }
+        return new java.io.File(musicPath).getName();
+    }
+
+    public void setMusicCount(int musicCount) {
+        this.musicCount = musicCount;
+    }
+
     // retourner le nombre de musiques dans la playlist
     public int getMusicCount() {
-        return musicPaths != null ? musicPaths.size() : 0;
+        return musicPaths != null ? musicPaths.size() : musicCount;
+    }
+
+    public int getM3uWriteMode() {
+        return m3uWriteMode;
     }
-}
 
+    public void setM3uWriteMode(int m3uWriteMode) {
+        this.m3uWriteMode = m3uWriteMode;
+    }
+}
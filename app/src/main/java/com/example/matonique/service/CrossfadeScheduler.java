@@ -0,0 +1,125 @@
+package com.example.matonique.service;
+
+import android.media.MediaPlayer;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+
+// Planificateur du fondu enchainé entre deux MediaPlayer
+// - un seul timer sur un thread dédié : le fondu ne saccade pas quand l'interface est chargée
+// - le gain est calculé à partir du temps réellement écoulé, pas d'un nombre d'étapes
+// - courbes à puissance constante (cos/sin) : le volume perçu ne creuse pas au milieu du fondu
+public class CrossfadeScheduler {
+
+    // intervalle entre deux mises à jour du volume
+    private static final long TICK_MS = 20;
+
+    // Interface pour prévenir le service de la fin du fondu (appelée sur le thread principal)
+    public interface Listener {
+        void onCrossfadeFinished();
+    }
+
+    private final Listener listener;
+    private final HandlerThread thread;
+    private final Handler fadeHandler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // les lecteurs sont partagés avec le thread principal, on y accède sous ce verrou
+    private final Object lock = new Object();
+    private MediaPlayer outgoing;
+    private MediaPlayer incoming;
+    private long startTime;
+    private int durationMs;
+    // incrémenté à chaque fondu pour ignorer la fin d'un fondu annulé
+    private int generation = 0;
+
+    public CrossfadeScheduler(Listener listener) {
+        this.listener = listener;
+        thread = new HandlerThread("CrossfadeScheduler");
+        thread.start();
+        fadeHandler = new Handler(thread.getLooper());
+    }
+
+    // démarrer un fondu : outgoing baisse jusqu'au silence, incoming (deja démarré) monte jusqu'au volume max
+    public void start(MediaPlayer outgoing, MediaPlayer incoming, int durationMs) {
+        synchronized (lock) {
+            this.outgoing = outgoing;
+            this.incoming = incoming;
+            this.durationMs = durationMs;
+            startTime = SystemClock.uptimeMillis();
+            generation++;
+        }
+        fadeHandler.removeCallbacks(tick);
+        fadeHandler.post(tick);
+    }
+
+    public boolean isRunning() {
+        synchronized (lock) {
+            return incoming != null;
+        }
+    }
+
+    // arreter le fondu en cours sans toucher aux lecteurs (le service décide quoi en faire)
+    public void cancel() {
+        fadeHandler.removeCallbacks(tick);
+        synchronized (lock) {
+            outgoing = null;
+            incoming = null;
+            generation++;
+        }
+    }
+
+    // arreter le thread du fondu
+    public void release() {
+        cancel();
+        thread.quitSafely();
+    }
+
+    private final Runnable tick = new Runnable() {
+        @Override
+        public void run() {
+            boolean finished;
+            int finishedGeneration;
+
+            synchronized (lock) {
+                if (outgoing == null || incoming == null) return;
+
+                float progress = Math.min(1f, (SystemClock.uptimeMillis() - startTime) / (float) durationMs);
+                // puissance constante : out² + in² = 1 tout au long du fondu
+                double angle = progress * Math.PI / 2;
+                float outgoingGain = (float) Math.cos(angle);
+                float incomingGain = (float) Math.sin(angle);
+
+                try {
+                    outgoing.setVolume(outgoingGain, outgoingGain);
+                    incoming.setVolume(incomingGain, incomingGain);
+                } catch (IllegalStateException e) {
+                    // un lecteur a été libéré entre temps, on termine le fondu tout de suite
+                    android.util.Log.w("CrossfadeScheduler", "Lecteur indisponible pendant le fondu: " + e.getMessage());
+                    progress = 1f;
+                }
+
+                finished = progress >= 1f;
+                finishedGeneration = generation;
+                if (finished) {
+                    outgoing = null;
+                    incoming = null;
+                }
+            }
+
+            if (!finished) {
+                fadeHandler.postDelayed(this, TICK_MS);
+                return;
+            }
+
+            mainHandler.post(() -> {
+                synchronized (lock) {
+                    // un autre fondu a démarré ou celui-ci a été annulé entre temps
+                    if (finishedGeneration != generation) return;
+                }
+                listener.onCrossfadeFinished();
+            });
+        }
+    };
+}
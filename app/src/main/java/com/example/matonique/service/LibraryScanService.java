@@ -0,0 +1,78 @@
+package com.example.matonique.service;
+
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.os.IBinder;
+
+import com.example.matonique.library.LibraryScanner;
+import com.example.matonique.library.LibraryWatcher;
+
+import java.io.File;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Service permettant de scanner la bibliothèque musicale en arriere plan
+// les scans sont executés l'un apres l'autre dans un thread separé,
+// le service s'arrete tout seul quand il n'a plus rien à faire
+// apres un scan, la racine est surveillée par LibraryWatcher pour que l'index reste à jour
+public class LibraryScanService extends Service {
+
+    private static final String EXTRA_ROOT_PATH = "ROOT_PATH";
+
+    private ExecutorService scanExecutor;
+    private LibraryScanner scanner;
+
+    // lancer un scan (incrémental) d'une racine de la bibliothèque
+    public static void start(Context context, File root) {
+        Intent intent = new Intent(context, LibraryScanService.class);
+        intent.putExtra(EXTRA_ROOT_PATH, root.getAbsolutePath());
+        context.startService(intent);
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        scanExecutor = Executors.newSingleThreadExecutor();
+        scanner = new LibraryScanner(this);
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        String rootPath = intent != null ? intent.getStringExtra(EXTRA_ROOT_PATH) : null;
+        if (rootPath == null) {
+            stopSelf(startId);
+            return START_NOT_STICKY;
+        }
+
+        scanExecutor.execute(() -> {
+            long startTime = System.currentTimeMillis();
+            try {
+                Set<String> changedFolders = scanner.scan(new File(rootPath));
+                android.util.Log.d("LibraryScanService", "Scan de " + rootPath + " terminé en "
+                        + (System.currentTimeMillis() - startTime) + "ms, "
+                        + changedFolders.size() + " dossier(s) modifié(s)");
+                // l'index connait maintenant tous les dossiers : on peut les surveiller
+                LibraryWatcher.getInstance(this).watch(new File(rootPath));
+            } catch (Exception e) {
+                android.util.Log.e("LibraryScanService", "Erreur pendant le scan: " + e.getMessage(), e);
+            }
+            // s'arreter seulement si aucun autre scan n'a été demandé entre temps
+            stopSelf(startId);
+        });
+
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        scanExecutor.shutdown();
+    }
+}
@@ -24,13 +24,18 @@ import android.support.v4.media.session.PlaybackStateCompat;
 
 import com.example.matonique.R;
 import com.example.matonique.activity.MainActivity;
+import com.example.matonique.library.DirectoryCache;
+import com.example.matonique.library.MusicLibrary;
+import com.example.matonique.library.QueueStore;
 import com.example.matonique.model.Music;
 import com.example.matonique.model.MusicQueue;
+import com.example.matonique.utils.BitmapUtils;
+import com.example.matonique.utils.CoverCache;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 // Service permetant de gérer la lecture de musique
 // On utilise un service pour permettre la lecture en arrière plan
@@ -43,20 +48,33 @@ public class MusicPlayService extends Service {
     private static final String ACTION_PLAY_PAUSE = "com.example.matonique.ACTION_PLAY_PAUSE";
     private static final String ACTION_PREVIOUS = "com.example.matonique.ACTION_PREVIOUS";
     private static final String ACTION_NEXT = "com.example.matonique.ACTION_NEXT";
+    // action pour lancer toute la bibliothèque en aléatoire
+    public static final String ACTION_PLAY_ALL_SHUFFLED = "com.example.matonique.ACTION_PLAY_ALL_SHUFFLED";
 
-    private MediaPlayer mediaPlayer; // lecteur de musique android
+    private PlaybackEngine engine; // lecteur de musique (préparation asynchrone + enchainement sans blanc)
     private final IBinder binder = new MusicBinder(); // pour synchroniser avec des activités
     private Music currentMusic;
     private MusicQueue musicQueue; // queue des musiques à jouer
 
     private Equalizer equalizer;
     private BassBoost bassBoost;
+    private int effectsSessionId = 0; // session audio sur laquelle les effets sont branchés
 
-    private MediaPlayer mediaPlayerNext;
     private final int CROSSFADE_DURATION_MS = 3000; // durée du fondu
     private boolean crossfadeEnabled = false;
+    private boolean crossfadeInProgress = false;
+    private CrossfadeScheduler crossfadeScheduler;
     private boolean isLooping = false;
-    private final Map<String, List<Music>> playlists = new HashMap<>();
+
+    // thread d'arriere plan pour lire l'index des musiques (Room interdit les requetes sur le thread principal)
+    private final ExecutorService libraryExecutor = Executors.newSingleThreadExecutor();
+    private final android.os.Handler mainHandler = new android.os.Handler(android.os.Looper.getMainLooper());
+
+    // sauvegarde de la queue et de la position pour reprendre apres l'arret du processus
+    private static final long SAVE_DELAY_MS = 2000; // les sauvegardes sont regroupées sur ce délai
+    private QueueStore queueStore;
+    private boolean saveScheduled = false;
+    private int savedQueueVersion = -1; // version de la queue deja écrite dans la base
     
     // Interface pour notifier les changements de musique
     public interface OnMusicChangeListener {
@@ -79,6 +97,11 @@ public class MusicPlayService extends Service {
 
     // MediaSession pour etre reconnu correctement par android (notifications, lockscreen, etc.)
     private MediaSessionCompat mediaSession;
+    // le service est-il deja passé en premier plan (notification affichée)
+    private boolean isForeground = false;
+
+    // image affichée dans la notification quand la musique n'a pas de cover (décodée une seule fois)
+    private android.graphics.Bitmap notificationPlaceholder;
 
     // Handler pour mettre a jour la progression de la musique dans un thread separer
     private final android.os.Handler progressHandler = new android.os.Handler(android.os.Looper.getMainLooper());
@@ -86,14 +109,19 @@ public class MusicPlayService extends Service {
         @Override
         public void run() {
             // si une musique est en cours de lecture et qu'on a un listener
-            if (mediaPlayer != null && mediaPlayer.isPlaying() && progressChangeListener != null) {
-                int currentPosition = mediaPlayer.getCurrentPosition();
-                int duration = mediaPlayer.getDuration();
+            if (engine != null && engine.isPlaying() && progressChangeListener != null) {
+                int currentPosition = engine.getCurrentPosition();
+                int duration = engine.getDuration();
 
                 // notifier le listener (le fragment) du changement de progression
                 progressChangeListener.onProgressChanged(currentPosition, duration);
             }
 
+            // sauvegarder régulierement la position pendant la lecture
+            if (engine != null && engine.isPlaying()) {
+                saveStateLater();
+            }
+
             // relancer la mise a jour dans 1 seconde
             progressHandler.postDelayed(this, 1000);
         }
@@ -109,9 +137,15 @@ public class MusicPlayService extends Service {
     public void onCreate() {
         super.onCreate();
 
-        mediaPlayer = new MediaPlayer();
-        mediaPlayer.setLooping(isLooping);
+        engine = new PlaybackEngine(engineCallback);
+        engine.setLooping(isLooping);
+        crossfadeScheduler = new CrossfadeScheduler(this::finishCrossfade);
+
+        // récupérer le réglage du fondu sauvegardé dans les paramètres
+        crossfadeEnabled = getSharedPreferences("settings", 0).getBoolean("crossfade_enabled", false);
+        engine.setGaplessEnabled(!crossfadeEnabled);
         musicQueue = new MusicQueue(); // initialiser la queue vide
+        musicQueue.enablePrefetch(this); // précharger les musiques voisines pour des changements instantanés
         
         // Initialiser la MediaSession pour les metadonnées
         mediaSession = new MediaSessionCompat(this, "MusicPlayService");
@@ -161,30 +195,90 @@ public class MusicPlayService extends Service {
             }
         });
 
-        // Configurer le listener pour jouer la musique suivante automatiquement ou loop
-        mediaPlayer.setOnCompletionListener(mp -> {
-            android.util.Log.d("MusicPlayService", "Musique terminée");
+        createNotificationChannel();
 
-            if (isLooping) {
-                // MediaPlayer s'occupe déjà du loop tout seul
-                android.util.Log.d("MusicPlayService", "Loop actif, on relance la même musique");
-                mp.seekTo(0);
-                mp.start();
-                return;
+        // demarrer la mise a jour de la progression
+        progressHandler.post(progressUpdateRunnable);
+
+        // reprendre la queue sauvegardée (apres un arret du processus par exemple)
+        queueStore = new QueueStore(this);
+        restoreState();
+    }
+
+    // reactions du moteur de lecture (toujours sur le thread principal)
+    private final PlaybackEngine.Callback engineCallback = new PlaybackEngine.Callback() {
+        @Override
+        public void onPrepared(String filePath) {
+            android.util.Log.d("MusicPlayService", "Musique prête: " + filePath);
+
+            setupAudioEffects();
+
+            // mettre a jour l'etat de la MediaSession
+            updatePlaybackState();
+
+            // notifier le changement d'etat
+            if (playbackStateChangeListener != null) {
+                playbackStateChangeListener.onPlaybackStateChanged(engine.isPlaying());
             }
 
-            // sinon comportement normal
+            // IMPORTANT : Notifier la progression initiale pour que la barre et la durée s'affichent
+            if (progressChangeListener != null) {
+                progressChangeListener.onProgressChanged(engine.getCurrentPosition(), engine.getDuration());
+            }
+
+            // la durée est maintenant connue : rafraichir les metadonnées de la MediaSession
+            if (currentMusic != null && filePath.equals(currentMusic.getFilePath())) {
+                updateMediaSessionMetadata(currentMusic);
+            }
+
+            // préparer la suivante pendant la lecture de celle-ci
+            prepareNextInQueue();
+            scheduleCrossfadeTrigger();
+        }
+
+        @Override
+        public void onAdvanced(String filePath) {
+            // le moteur est passé tout seul à la suivante : avancer la queue pour rester synchro
+            android.util.Log.d("MusicPlayService", "Enchainement sans blanc vers: " + filePath);
+            musicQueue.getNext();
+            loadMusicAndNotify(filePath);
+
+            updatePlaybackState();
+            if (progressChangeListener != null) {
+                progressChangeListener.onProgressChanged(0, engine.getDuration());
+            }
+
+            prepareNextInQueue();
+        }
+
+        @Override
+        public void onCompleted() {
+            android.util.Log.d("MusicPlayService", "Musique terminée");
+            // en mode loop, MediaPlayer relance la musique tout seul et onCompleted n'est pas appelé
+            // pendant un fondu, la suivante joue deja : rien à faire
+            if (crossfadeInProgress) return;
+
             if (crossfadeEnabled) {
                 playNextWithCrossfade();
             } else {
                 playNext();
             }
-        });
-        
-        createNotificationChannel();
+        }
 
-        // demarrer la mise a jour de la progression
-        progressHandler.post(progressUpdateRunnable);
+        @Override
+        public void onError(String filePath) {
+            android.util.Log.e("MusicPlayService", "Erreur de lecture, on passe à la suivante: " + filePath);
+            playNext();
+        }
+    };
+
+    // préparer la musique suivante de la queue sur le deuxieme lecteur du moteur
+    private void prepareNextInQueue() {
+        if (isLooping || musicQueue == null) {
+            engine.clearNext();
+            return;
+        }
+        engine.prepareNext(musicQueue.peekNext());
     }
 
     @Override
@@ -218,9 +312,19 @@ public class MusicPlayService extends Service {
                         playNext();
                     }
                     return START_STICKY;
+
+                case ACTION_PLAY_ALL_SHUFFLED:
+                    playLibraryShuffled();
+                    return START_STICKY;
             }
         }
 
+        if (intent == null) {
+            // redémarrage par le systeme apres l'arret du processus (START_STICKY)
+            // la queue sauvegardée est restaurée dans onCreate
+            return START_STICKY;
+        }
+
         // on recupere la music via l'intent grace à l'interface parcelable
         Music music = intent.getParcelableExtra("MUSIC");
 
@@ -239,19 +343,55 @@ public class MusicPlayService extends Service {
                 java.io.File musicFile = new java.io.File(music.getFilePath());
                 java.io.File parentDir = musicFile.getParentFile();
 
-                if (parentDir != null && parentDir.isDirectory()) {
-                    musicQueue.setFromFolder(parentDir, music.getFilePath());
-                    android.util.Log.d("MusicPlayService", "Queue créée depuis dossier avec " + musicQueue.getSize() + " musiques");
+                List<String> cachedPaths = parentDir != null ? DirectoryCache.getInstance().getTrackPaths(parentDir) : null;
+                if (cachedPaths != null) {
+                    // dossier affiché dans l'explorateur : son listing est deja en memoire
+                    musicQueue.setFromFolder(cachedPaths, music.getFilePath());
+                } else if (parentDir != null && parentDir.isDirectory()) {
+                    // la queue du dossier est construite en arriere plan depuis l'index
+                    // en attendant, elle ne contient que la musique lancée
+                    musicQueue.setFromFolder(java.util.Collections.singletonList(music.getFilePath()), music.getFilePath());
+                    loadFolderQueue(parentDir, music.getFilePath());
                 }
             }
             
             playMusic(music.getFilePath());
             startForeground(NOTIFICATION_ID, createNotification(music));
+            isForeground = true;
+            saveStateLater();
         }
 
         return START_STICKY;
     }
 
+    // construire la queue d'un dossier depuis l'index de la bibliothèque (ou le disque s'il n'est pas indexé)
+    private void loadFolderQueue(java.io.File directory, String currentFilePath) {
+        libraryExecutor.execute(() -> {
+            List<String> folderPaths = MusicLibrary.getInstance(this).getFolderTrackPaths(directory);
+
+            mainHandler.post(() -> {
+                // une autre musique a pu etre lancée entre temps
+                if (!currentFilePath.equals(musicQueue.getCurrentPath())) {
+                    return;
+                }
+
+                if (folderPaths != null) {
+                    musicQueue.setFromFolder(folderPaths, currentFilePath);
+                } else {
+                    musicQueue.setFromFolder(directory, currentFilePath);
+                }
+                android.util.Log.d("MusicPlayService", "Queue créée depuis dossier avec " + musicQueue.getSize() + " musiques");
+                prepareNextInQueue();
+                saveStateLater();
+
+                // notifier le listener pour mettre a jour les boutons suivant/précédent
+                if (musicChangeListener != null && currentMusic != null) {
+                    musicChangeListener.onMusicChanged(currentMusic);
+                }
+            });
+        });
+    }
+
     @Override
     public IBinder onBind(Intent intent) {
         return binder;
@@ -263,10 +403,10 @@ public class MusicPlayService extends Service {
     public void notifyInitialState() {
         android.util.Log.d("MusicPlayService", "notifyInitialState() appelé");
 
-        if (progressChangeListener != null && mediaPlayer != null) {
+        if (progressChangeListener != null && engine != null) {
             try {
-                int currentPosition = mediaPlayer.getCurrentPosition();
-                int duration = mediaPlayer.getDuration();
+                int currentPosition = engine.getCurrentPosition();
+                int duration = engine.getDuration();
 
                 android.util.Log.d("MusicPlayService", "Notification état initial: position=" + currentPosition + "ms, durée=" + duration + "ms");
 
@@ -283,9 +423,9 @@ public class MusicPlayService extends Service {
             android.util.Log.w("MusicPlayService", "Listener ou MediaPlayer null, impossible de notifier");
         }
 
-        if (playbackStateChangeListener != null && mediaPlayer != null) {
+        if (playbackStateChangeListener != null && engine != null) {
             try {
-                boolean isPlaying = mediaPlayer.isPlaying();
+                boolean isPlaying = engine.isPlaying();
                 android.util.Log.d("MusicPlayService", "Notification état lecture: " + (isPlaying ? "EN LECTURE" : "EN PAUSE"));
                 playbackStateChangeListener.onPlaybackStateChanged(isPlaying);
             } catch (IllegalStateException e) {
@@ -305,48 +445,10 @@ public class MusicPlayService extends Service {
 
         android.util.Log.d("MusicPlayService", "Taille du fichier: " + formatFileSize(file.length()));
 
-        try {
-            mediaPlayer.reset();
-            android.util.Log.d("MusicPlayService", "MediaPlayer reseté");
-
-            mediaPlayer.setDataSource(filePath);
-            android.util.Log.d("MusicPlayService", "DataSource définie");
-
-            // preparer de maniere synchrone (pour les gros fichiers, ca peut prendre du temps)
-            long startTime = System.currentTimeMillis();
-            mediaPlayer.prepare();
-            long prepareTime = System.currentTimeMillis() - startTime;
-            android.util.Log.d("MusicPlayService", "Préparation terminée en " + prepareTime + "ms");
-
-            setupAudioEffects();
-
-            mediaPlayer.setLooping(isLooping);
+        cancelCrossfade();
 
-            mediaPlayer.start();
-            android.util.Log.d("MusicPlayService", "Lecture démarrée");
-
-            // mettre a jour l'etat de la MediaSession
-            updatePlaybackState();
-
-            // notifier le changement d'etat vers "en lecture"
-            if (playbackStateChangeListener != null) {
-                playbackStateChangeListener.onPlaybackStateChanged(true);
-            }
-
-            // IMPORTANT : Notifier la progression initiale pour que la barre et la durée s'affichent
-            // Cela résout le problème de la première musique qui n'affiche pas la durée
-            if (progressChangeListener != null) {
-                int duration = mediaPlayer.getDuration();
-                android.util.Log.d("MusicPlayService", "Notification progression initiale: 0 / " + duration + "ms");
-                progressChangeListener.onProgressChanged(0, duration);
-            }
-        } catch (java.io.IOException e) {
-            android.util.Log.e("MusicPlayService", "Erreur I/O lors de la lecture: " + e.getMessage(), e);
-        } catch (IllegalStateException e) {
-            android.util.Log.e("MusicPlayService", "État invalide du MediaPlayer: " + e.getMessage(), e);
-        } catch (Exception e) {
-            android.util.Log.e("MusicPlayService", "Erreur inattendue: " + e.getMessage(), e);
-        }
+        // préparation asynchrone : la lecture démarre dans engineCallback.onPrepared
+        engine.load(filePath, true, 0);
     }
 
     // formater la taille d'un fichier en texte lisible
@@ -358,8 +460,16 @@ public class MusicPlayService extends Service {
     }
 
     public void play() {
-        if (!mediaPlayer.isPlaying()) {
-            mediaPlayer.start();
+        if (!isForeground && currentMusic != null) {
+            // reprise d'une queue restaurée : le service n'était que lié, on le démarre au premier plan
+            startService(new Intent(this, MusicPlayService.class));
+            startForeground(NOTIFICATION_ID, createNotification(currentMusic));
+            isForeground = true;
+        }
+
+        if (!engine.isPlaying()) {
+            engine.play();
+            scheduleCrossfadeTrigger();
 
             // mettre a jour l'etat de la MediaSession
             updatePlaybackState();
@@ -372,8 +482,13 @@ public class MusicPlayService extends Service {
     }
 
     public void pause() {
-        if (mediaPlayer.isPlaying()) {
-            mediaPlayer.pause();
+        // la musique entrante d'un fondu joue sur un autre lecteur : terminer le fondu avant la pause
+        finishCrossfade();
+        mainHandler.removeCallbacks(crossfadeTrigger);
+
+        if (engine.isPlaying()) {
+            engine.pause();
+            saveStateLater();
 
             // mettre a jour l'etat de la MediaSession
             updatePlaybackState();
@@ -386,29 +501,32 @@ public class MusicPlayService extends Service {
     }
 
     public boolean isPlaying() {
-        return mediaPlayer.isPlaying();
+        return engine != null && engine.isPlaying();
     }
 
     // recuperer la position actuelle de la musique en millisecondes
     public int getCurrentPosition() {
-        if (mediaPlayer != null) {
-            return mediaPlayer.getCurrentPosition();
+        if (engine != null) {
+            return engine.getCurrentPosition();
         }
         return 0;
     }
 
     // recuperer la durée totale de la musique en millisecondes
     public int getDuration() {
-        if (mediaPlayer != null) {
-            return mediaPlayer.getDuration();
+        if (engine != null) {
+            return engine.getDuration();
         }
         return 0;
     }
 
     // se deplacer à une position specifique dans la musique (en millisecondes)
     public void seekTo(int position) {
-        if (mediaPlayer != null) {
-            mediaPlayer.seekTo(position);
+        if (engine != null) {
+            finishCrossfade();
+            engine.seekTo(position);
+            scheduleCrossfadeTrigger();
+            saveStateLater();
         }
     }
 
@@ -441,22 +559,8 @@ public class MusicPlayService extends Service {
             String nextPath = musicQueue.getNext();
             if (nextPath != null) {
                 android.util.Log.d("MusicPlayService", "Lecture de la musique suivante: " + nextPath);
-                currentMusic = new Music(nextPath);
                 playMusic(nextPath);
-
-                // Mettre à jour la notification si on a la permission
-                if (hasNotificationPermission()) {
-                    NotificationManager manager = getSystemService(NotificationManager.class);
-                    if (manager != null) {
-                        manager.notify(NOTIFICATION_ID, createNotification(currentMusic));
-                    }
-                }
-
-                // Notifier le listener
-                if (musicChangeListener != null) {
-                    musicChangeListener.onMusicChanged(currentMusic);
-                }
-
+                loadMusicAndNotify(nextPath);
                 return;
             }
         }
@@ -469,23 +573,225 @@ public class MusicPlayService extends Service {
             String previousPath = musicQueue.getPrevious();
             if (previousPath != null) {
                 android.util.Log.d("MusicPlayService", "Lecture de la musique précédente: " + previousPath);
-                currentMusic = new Music(previousPath);
                 playMusic(previousPath);
+                loadMusicAndNotify(previousPath);
+            }
+        }
+    }
 
-                // Mettre à jour la notification si on a la permission
-                if (hasNotificationPermission()) {
-                    NotificationManager manager = getSystemService(NotificationManager.class);
-                    if (manager != null) {
-                        manager.notify(NOTIFICATION_ID, createNotification(currentMusic));
-                    }
-                }
+    // recuperer les infos de la musique (préchargées par la queue, sinon depuis l'index en arriere plan)
+    // puis mettre a jour la musique courante, la notification et le listener sur le thread principal
+    private void loadMusicAndNotify(String filePath) {
+        Music prefetched = musicQueue.getPrefetchedMusic(filePath);
+        if (prefetched != null) {
+            applyCurrentMusic(filePath, prefetched);
+            return;
+        }
+
+        libraryExecutor.execute(() -> {
+            Music music;
+            try {
+                music = MusicLibrary.getInstance(this).getMusic(filePath);
+            } catch (RuntimeException e) {
+                android.util.Log.e("MusicPlayService", "Impossible de lire les infos de: " + filePath, e);
+                return;
+            }
+
+            mainHandler.post(() -> applyCurrentMusic(filePath, music));
+        });
+    }
+
+    // mettre a jour la musique courante, la notification et le listener (thread principal)
+    private void applyCurrentMusic(String filePath, Music music) {
+        // une autre musique a pu etre lancée entre temps
+        if (musicQueue == null || !filePath.equals(musicQueue.getCurrentPath())) {
+            return;
+        }
+        currentMusic = music;
+
+        if (!isForeground) {
+            // premiere musique lancée sans passer par l'intent MUSIC (ex : toute la bibliothèque en aléatoire)
+            startForeground(NOTIFICATION_ID, createNotification(currentMusic));
+            isForeground = true;
+        } else if (hasNotificationPermission()) {
+            // Mettre à jour la notification si on a la permission
+            NotificationManager manager = getSystemService(NotificationManager.class);
+            if (manager != null) {
+                manager.notify(NOTIFICATION_ID, createNotification(currentMusic));
+            }
+        }
+
+        // Notifier le listener
+        if (musicChangeListener != null) {
+            musicChangeListener.onMusicChanged(currentMusic);
+        }
+
+        saveStateLater();
+    }
+
+    // -------- Sauvegarde et reprise --------
+
+    // programmer une sauvegarde de l'etat de lecture
+    // plusieurs demandes rapprochées ne donnent qu'une seule écriture
+    private void saveStateLater() {
+        if (saveScheduled) return;
+        saveScheduled = true;
+        mainHandler.postDelayed(saveStateRunnable, SAVE_DELAY_MS);
+    }
+
+    private final Runnable saveStateRunnable = this::saveState;
+
+    // sauvegarder l'etat de lecture : la liste des musiques seulement si elle a changé
+    private void saveState() {
+        saveScheduled = false;
+        mainHandler.removeCallbacks(saveStateRunnable);
+        if (musicQueue == null || musicQueue.getCurrentIndex() < 0 || queueStore == null) return;
+
+        List<String> playOrder = null;
+        List<String> originalOrder = null;
+        if (musicQueue.getModificationCount() != savedQueueVersion) {
+            savedQueueVersion = musicQueue.getModificationCount();
+            playOrder = new ArrayList<>(musicQueue.getPaths());
+            if (musicQueue.getOriginalOrder() != null) {
+                originalOrder = new ArrayList<>(musicQueue.getOriginalOrder());
+            }
+        }
+
+        QueueStore.PlaybackState state = new QueueStore.PlaybackState(
+                musicQueue.getCurrentIndex(),
+                engine.getCurrentPosition(),
+                musicQueue.getType(),
+                musicQueue.isShuffleEnabled(),
+                musicQueue.getShuffleSeed(),
+                musicQueue.isRepeatAll(),
+                isLooping
+        );
+
+        List<String> queueToSave = playOrder;
+        List<String> originalToSave = originalOrder;
+        libraryExecutor.execute(() -> {
+            if (queueToSave != null) {
+                queueStore.saveQueue(queueToSave, originalToSave);
+            }
+            queueStore.saveState(state);
+        });
+    }
+
+    // relire la queue sauvegardée et préparer la musique à la position sauvegardée, sans la lancer
+    // la lecture reprend d'un seul appui sur play
+    private void restoreState() {
+        libraryExecutor.execute(() -> {
+            QueueStore.SavedQueue saved = queueStore.load();
+            if (saved == null) return;
+
+            String path = saved.playOrder.get(saved.state.currentIndex);
+            Music music;
+            try {
+                music = MusicLibrary.getInstance(this).getMusic(path);
+            } catch (RuntimeException e) {
+                android.util.Log.w("MusicPlayService", "Musique sauvegardée introuvable: " + path);
+                return;
+            }
+
+            mainHandler.post(() -> {
+                // une musique a deja été lancée entre temps, on garde celle-ci
+                if (musicQueue.getCurrentIndex() >= 0) return;
+
+                QueueStore.PlaybackState state = saved.state;
+                musicQueue.restore(state.queueType, saved.playOrder, saved.originalOrder, state.currentIndex,
+                        state.shuffle, state.shuffleSeed, state.repeatAll);
+                savedQueueVersion = musicQueue.getModificationCount();
+                isLooping = state.looping;
+                engine.setLooping(isLooping);
+
+                currentMusic = music;
+                engine.load(path, false, state.seekPositionMs);
+                updateMediaSessionMetadata(music);
+                android.util.Log.d("MusicPlayService", "Queue restaurée: " + musicQueue.getSize() + " musiques, reprise à " + state.seekPositionMs + "ms");
 
-                // Notifier le listener
                 if (musicChangeListener != null) {
-                    musicChangeListener.onMusicChanged(currentMusic);
+                    musicChangeListener.onMusicChanged(music);
                 }
-            }
+            });
+        });
+    }
+
+    // lire toute la bibliothèque indexée en aléatoire
+    public void playLibraryShuffled() {
+        libraryExecutor.execute(() -> {
+            List<String> allPaths = MusicLibrary.getInstance(this).getAllTrackPaths();
+
+            mainHandler.post(() -> {
+                if (allPaths.isEmpty()) {
+                    android.util.Log.w("MusicPlayService", "Bibliothèque vide, rien à lire en aléatoire");
+                    return;
+                }
+
+                musicQueue.setFromPlaylist(allPaths, null);
+                musicQueue.setShuffle(true);
+                android.util.Log.d("MusicPlayService", "Queue aléatoire créée avec " + musicQueue.getSize() + " musiques");
+
+                String firstPath = musicQueue.getCurrentPath();
+                playMusic(firstPath);
+                loadMusicAndNotify(firstPath);
+            });
+        });
+    }
+
+    // -------- Edition de la queue --------
+
+    // lire une musique juste apres la musique actuelle
+    public void addNextInQueue(String filePath) {
+        musicQueue.addNext(filePath);
+        prepareNextInQueue();
+        saveStateLater();
+    }
+
+    // ajouter des musiques à la fin de la queue
+    public void enqueue(List<String> filePaths) {
+        musicQueue.enqueue(filePaths);
+        prepareNextInQueue();
+        saveStateLater();
+    }
+
+    public boolean removeFromQueue(int position) {
+        boolean removed = musicQueue.remove(position);
+        if (removed) {
+            prepareNextInQueue();
+            saveStateLater();
         }
+        return removed;
+    }
+
+    public boolean moveInQueue(int from, int to) {
+        boolean moved = musicQueue.move(from, to);
+        if (moved) {
+            prepareNextInQueue();
+            saveStateLater();
+        }
+        return moved;
+    }
+
+    public void setShuffle(boolean enabled) {
+        musicQueue.setShuffle(enabled);
+        prepareNextInQueue();
+        saveStateLater();
+    }
+
+    public boolean isShuffleEnabled() {
+        return musicQueue.isShuffleEnabled();
+    }
+
+    // répéter toute la queue (différent de setLooping qui répète une seule musique)
+    public void setRepeatAll(boolean repeatAll) {
+        musicQueue.setRepeatAll(repeatAll);
+        prepareNextInQueue();
+        saveStateLater();
+        scheduleCrossfadeTrigger();
+    }
+
+    public boolean isRepeatAll() {
+        return musicQueue.isRepeatAll();
     }
 
     // Vérifier s'il y a une musique suivante
@@ -522,21 +828,43 @@ public class MusicPlayService extends Service {
 
     // Methode qui met a jour les metadonnées de la MediaSession avec la musique courante
     private void updateMediaSessionMetadata(Music music) {
-        // recuperer et redimensionner la cover
-        // On utilise getCoverOrLoad() pour recharger la cover si elle est null (cas du Parcelable)
-        android.graphics.Bitmap coverToDisplay;
-        android.graphics.Bitmap cover = music.getCoverOrLoad();
+        // la cover à la taille de la notification vient du cache
+        // si elle n'est pas en memoire, on affiche le placeholder et on la charge en arriere plan
+        CoverCache coverCache = CoverCache.getInstance(this);
+        android.graphics.Bitmap cover = coverCache.getFromMemory(music, CoverCache.CoverSize.NOTIFICATION);
+
+        if (cover == null) {
+            libraryExecutor.execute(() -> {
+                android.graphics.Bitmap loaded = coverCache.getCover(music, CoverCache.CoverSize.NOTIFICATION);
+                if (loaded == null) return;
+                mainHandler.post(() -> {
+                    // la musique a pu changer pendant le chargement
+                    if (music == currentMusic) {
+                        applyMediaSessionMetadata(music, loaded);
+                    }
+                });
+            });
+        }
 
-        if (cover != null) {
-            coverToDisplay = resizeCoverForNotification(cover);
-        } else {
-            android.graphics.Bitmap placeholder = android.graphics.BitmapFactory.decodeResource(
+        applyMediaSessionMetadata(music, cover != null ? cover : getNotificationPlaceholder());
+    }
+
+    // recuperer le placeholder de la notification (décodé et redimensionné au premier appel)
+    private android.graphics.Bitmap getNotificationPlaceholder() {
+        if (notificationPlaceholder == null) {
+            int size = CoverCache.CoverSize.NOTIFICATION.getPixels();
+            android.graphics.Bitmap placeholder = BitmapUtils.decodeSampledResource(
                     getResources(),
-                    R.drawable.music_placeholder
+                    R.drawable.music_placeholder,
+                    size
             );
-            coverToDisplay = resizeCoverForNotification(placeholder);
+            notificationPlaceholder = BitmapUtils.scaleToFit(placeholder, size);
         }
+        return notificationPlaceholder;
+    }
 
+    // construire et appliquer les metadonnées de la MediaSession
+    private void applyMediaSessionMetadata(Music music, android.graphics.Bitmap coverToDisplay) {
         // construire les metadonnées avec la cover en grand
         MediaMetadataCompat metadata =
                 new MediaMetadataCompat.Builder()
@@ -647,40 +975,25 @@ public class MusicPlayService extends Service {
         return builder.build();
     }
 
-    // Methode qui redimensionne la cover pour qu'elle prenne toute la place dans la notification
-    // taille optimale : 512x512 pixels pour les grandes notifications
-    private android.graphics.Bitmap resizeCoverForNotification(android.graphics.Bitmap originalCover) {
-        if (originalCover == null) {
-            return null;
-        }
-
-        // taille cible pour la notification (512x512 est la taille recommandé par google)
-        int targetSize = 512;
-
-        // si l'image est deja à la bonne taille ou plus grande, on la redimensionne
-        if (originalCover.getWidth() != targetSize || originalCover.getHeight() != targetSize) {
-            return android.graphics.Bitmap.createScaledBitmap(
-                    originalCover,
-                    targetSize,
-                    targetSize,
-                    true // filtre pour un redimensionnement de qualité
-                    // ce filtre est geré par la méthode createScaledBitmap
-            );
-        }
-
-        return originalCover;
-    }
-
     @Override
     public void onDestroy() {
         super.onDestroy();
 
         // arreter le handler de progression
         progressHandler.removeCallbacks(progressUpdateRunnable);
-
-        if (mediaPlayer != null) {
-            mediaPlayer.release();
+        // derniere sauvegarde avant l'arret (les taches deja envoyées sont terminées par shutdown)
+        saveState();
+        mainHandler.removeCallbacksAndMessages(null);
+        libraryExecutor.shutdown();
+        musicQueue.shutdownPrefetch();
+
+        if (crossfadeScheduler != null) {
+            crossfadeScheduler.release();
+        }
+        if (engine != null) {
+            engine.release();
         }
+        releaseAudioEffects();
 
         // liberer la MediaSession
         if (mediaSession != null) {
@@ -688,9 +1001,17 @@ public class MusicPlayService extends Service {
             mediaSession.release();
         }
     }
+    // brancher l'égaliseur et le bass boost sur la session audio du moteur
+    // les lecteurs suivants partagent la meme session, on ne recrée les effets que si elle change
     private void setupAudioEffects() {
+        int sessionId = engine.getAudioSessionId();
+        if (sessionId == effectsSessionId && equalizer != null) {
+            return;
+        }
+        releaseAudioEffects();
+
         try {
-            int sessionId = mediaPlayer.getAudioSessionId();
+            effectsSessionId = sessionId;
 
             equalizer = new Equalizer(0, sessionId);
             equalizer.setEnabled(true);
@@ -704,6 +1025,18 @@ public class MusicPlayService extends Service {
         }
     }
 
+    private void releaseAudioEffects() {
+        if (equalizer != null) {
+            equalizer.release();
+            equalizer = null;
+        }
+        if (bassBoost != null) {
+            bassBoost.release();
+            bassBoost = null;
+        }
+        effectsSessionId = 0;
+    }
+
     public void setEqualizerPreset(short preset) {
         if (equalizer != null && preset < equalizer.getNumberOfPresets()) {
             equalizer.usePreset(preset);
@@ -717,94 +1050,107 @@ public class MusicPlayService extends Service {
     }
 
     // pour jouer la musique suivante avec le fondu
+    // la suivante a été préparée en avance par le moteur, le fondu démarre donc sans attente
     public void playNextWithCrossfade() {
-        if (musicQueue != null && musicQueue.hasNext()) {
-            String nextPath = musicQueue.getNext();
-            if (nextPath == null) return;
-
-            Music nextMusic = new Music(nextPath);
-            mediaPlayerNext = new MediaPlayer();
-            try {
-                mediaPlayerNext.setDataSource(nextPath);
-                mediaPlayerNext.prepare();
-                mediaPlayerNext.setVolume(0f, 0f);
-                mediaPlayerNext.start();
-
-                // Timer pour faire le crossfade
-                int fadeSteps = 30; // nombre d’étapes pour le fondu
-                int fadeInterval = CROSSFADE_DURATION_MS / fadeSteps;
-                float deltaVolume = 1f / fadeSteps;
-
-                android.os.Handler handler = new android.os.Handler(android.os.Looper.getMainLooper());
-                for (int i = 1; i <= fadeSteps; i++) {
-                    final int step = i;
-                    handler.postDelayed(() -> {
-                        float volumeCurrent = 1f - (deltaVolume * step);
-                        float volumeNext = deltaVolume * step;
-
-                        if (mediaPlayer != null) mediaPlayer.setVolume(volumeCurrent, volumeCurrent);
-                        if (mediaPlayerNext != null) mediaPlayerNext.setVolume(volumeNext, volumeNext);
-                    }, (long) i * fadeInterval);
-                }
+        if (crossfadeInProgress) {
+            // on saute pendant un fondu : terminer celui-ci tout de suite
+            finishCrossfade();
+        }
+        if (musicQueue == null || !musicQueue.hasNext()) return;
 
-                // Arrêter l'ancien player à la fin du crossfade
-                handler.postDelayed(() -> {
-                    if (mediaPlayer != null) {
-                        mediaPlayer.stop();
-                        mediaPlayer.release();
-                    }
-                    mediaPlayer = mediaPlayerNext;
-                    mediaPlayerNext = null;
-                    currentMusic = nextMusic;
+        String nextPath = musicQueue.peekNext();
+        if (!engine.isNextPrepared(nextPath)) {
+            // la suivante n'est pas encore prête, on passe à la suivante normalement
+            playNext();
+            return;
+        }
 
-                    // Mettre à jour notification et listener
-                    if (hasNotificationPermission()) {
-                        NotificationManager manager = getSystemService(NotificationManager.class);
-                        if (manager != null) manager.notify(NOTIFICATION_ID, createNotification(currentMusic));
-                    }
-                    if (musicChangeListener != null) {
-                        musicChangeListener.onMusicChanged(currentMusic);
-                    }
-                }, CROSSFADE_DURATION_MS);
+        mainHandler.removeCallbacks(crossfadeTrigger);
+        musicQueue.getNext();
 
-            } catch (Exception e) {
-                android.util.Log.e("MusicPlayService", "Erreur crossfade: " + e.getMessage());
-                playNext(); // fallback normal si le fondu foire
-            }
+        MediaPlayer incoming = engine.getNextPlayer();
+        try {
+            incoming.setVolume(0f, 0f);
+            incoming.start();
+        } catch (IllegalStateException e) {
+            android.util.Log.e("MusicPlayService", "Erreur crossfade: " + e.getMessage());
+            playMusic(nextPath); // fallback normal si le fondu foire
+            loadMusicAndNotify(nextPath);
+            return;
         }
-    }
 
-    public void setCrossfadeEnabled(boolean enabled) {
-        crossfadeEnabled = enabled;
+        crossfadeInProgress = true;
+        crossfadeScheduler.start(engine.getCurrentPlayer(), incoming, CROSSFADE_DURATION_MS);
+        android.util.Log.d("MusicPlayService", "Fondu démarré vers: " + nextPath);
     }
 
-    public void setLooping(boolean loop) {
-        isLooping = loop;
-        if (mediaPlayer != null) {
-            mediaPlayer.setLooping(loop);
-        }
+    // fin du fondu (ou fondu écourté) : la musique entrante devient la musique courante
+    private void finishCrossfade() {
+        if (!crossfadeInProgress) return;
+        crossfadeScheduler.cancel();
+        crossfadeInProgress = false;
+
+        engine.promoteNext();
+        engine.setVolume(1f);
+
+        // Mettre à jour musique courante, notification et listener
+        loadMusicAndNotify(engine.getCurrentPath());
+        updatePlaybackState();
+        prepareNextInQueue();
+        scheduleCrossfadeTrigger();
     }
 
-    public boolean isLooping() {
-        return isLooping;
+    // abandonner le fondu en cours (une autre musique va etre chargée)
+    private void cancelCrossfade() {
+        mainHandler.removeCallbacks(crossfadeTrigger);
+        if (!crossfadeInProgress) return;
+        crossfadeScheduler.cancel();
+        crossfadeInProgress = false;
     }
 
-    public String[] getAvailablePlaylists() {
-        // retourne toutes les playlists disponibles
-        return playlists.keySet().toArray(new String[0]);
+    // programmer le début du fondu à (durée - CROSSFADE_DURATION_MS)
+    // à rappeler à chaque changement de position ou d'etat de lecture
+    private void scheduleCrossfadeTrigger() {
+        mainHandler.removeCallbacks(crossfadeTrigger);
+        if (!crossfadeEnabled || isLooping || crossfadeInProgress || !engine.isPlaying()) return;
+
+        int duration = engine.getDuration();
+        // morceau trop court pour un fondu complet
+        if (duration <= CROSSFADE_DURATION_MS * 2) return;
+
+        long delay = Math.max(0, duration - engine.getCurrentPosition() - CROSSFADE_DURATION_MS);
+        mainHandler.postDelayed(crossfadeTrigger, delay);
     }
 
-    public void addToPlaylist(Music music, String playlistName) {
-        playlists.putIfAbsent(playlistName, new ArrayList<>());
-        List<Music> playlist = playlists.get(playlistName);
+    // déclenchement automatique du fondu avant la fin de la musique
+    private final Runnable crossfadeTrigger = () -> {
+        if (!crossfadeEnabled || isLooping || !engine.isPlaying() || !hasNext()) return;
+        // si la suivante n'est pas prete, on laisse la musique finir normalement
+        if (!engine.isNextPrepared(musicQueue.peekNext())) return;
+        playNextWithCrossfade();
+    };
+
+    public void setCrossfadeEnabled(boolean enabled) {
+        crossfadeEnabled = enabled;
+        // avec le fondu, c'est le service qui gère la transition, pas l'enchainement automatique
+        if (engine != null) {
+            engine.setGaplessEnabled(!enabled);
+            scheduleCrossfadeTrigger();
+        }
+    }
 
-        if (!playlist.contains(music)) {
-            playlist.add(music);
+    public void setLooping(boolean loop) {
+        isLooping = loop;
+        if (engine != null) {
+            engine.setLooping(loop);
+            prepareNextInQueue();
+            saveStateLater();
+            scheduleCrossfadeTrigger();
         }
     }
 
-    public List<Music> getPlaylist(String playlistName) {
-        return playlists.getOrDefault(playlistName, new ArrayList<>());
+    public boolean isLooping() {
+        return isLooping;
     }
 }
 
@@ -0,0 +1,292 @@
+package com.example.matonique.service;
+
+import android.media.MediaPlayer;
+import android.os.Handler;
+import android.os.Looper;
+
+// Moteur de lecture utilisé par MusicPlayService
+// - la préparation est toujours asynchrone (prepareAsync), le thread principal n'est jamais bloqué
+// - pendant la lecture, la musique suivante est préparée sur un deuxieme MediaPlayer
+//   et chainée avec setNextMediaPlayer : le passage à la suivante se fait sans blanc
+// ATTENTION : à utiliser uniquement depuis le thread principal (les callbacks de MediaPlayer y arrivent)
+public class PlaybackEngine {
+
+    // Interface pour notifier le service de l'avancement de la lecture
+    public interface Callback {
+        // la musique chargée avec load() est prête (et démarrée si demandé)
+        void onPrepared(String filePath);
+
+        // la musique suivante préparée a pris le relais toute seule (enchainement sans blanc)
+        void onAdvanced(String filePath);
+
+        // la musique courante est finie et aucune suivante n'était chainée
+        void onCompleted();
+
+        // erreur de lecture sur la musique courante
+        void onError(String filePath);
+    }
+
+    private final Callback callback;
+    // les erreurs de load() sont signalées par ici, jamais pendant l'appel :
+    // onError lance souvent la suivante (donc load), une suite de fichiers illisibles ferait déborder la pile
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    // numéro du dernier load(), pour ignorer l'erreur d'un chargement remplacé entre temps
+    private int loadGeneration = 0;
+
+    // lecteur de la musique courante
+    private MediaPlayer currentPlayer;
+    private String currentPath;
+    private boolean currentPrepared = false;
+    private boolean playWhenReady = false;
+    private int pendingSeekPosition = 0;
+
+    // lecteur de la musique suivante, préparé en avance
+    private MediaPlayer nextPlayer;
+    private String nextPath;
+    private boolean nextPrepared = false;
+
+    private boolean looping = false;
+    // chainer automatiquement la suivante (désactivé quand le fondu gère lui meme la transition)
+    private boolean gaplessEnabled = true;
+
+    public PlaybackEngine(Callback callback) {
+        this.callback = callback;
+        currentPlayer = createPlayer();
+    }
+
+    // charger une musique sur le lecteur courant, de maniere asynchrone
+    // playWhenReady : démarrer la lecture des que la musique est prête
+    // startPosition : position (ms) où reprendre la lecture
+    public void load(String filePath, boolean playWhenReady, int startPosition) {
+        clearNext();
+
+        int generation = ++loadGeneration;
+        currentPath = filePath;
+        currentPrepared = false;
+        this.playWhenReady = playWhenReady;
+        pendingSeekPosition = startPosition;
+
+        try {
+            currentPlayer.reset();
+            currentPlayer.setDataSource(filePath);
+            currentPlayer.setLooping(looping);
+            // un fondu interrompu a pu laisser le volume baissé
+            currentPlayer.setVolume(1f, 1f);
+            currentPlayer.prepareAsync();
+        } catch (Exception e) {
+            android.util.Log.e("PlaybackEngine", "Erreur chargement de " + filePath + ": " + e.getMessage(), e);
+            handler.post(() -> {
+                if (generation == loadGeneration) {
+                    callback.onError(filePath);
+                }
+            });
+        }
+    }
+
+    // préparer la musique suivante sur le deuxieme lecteur (null pour ne rien préparer)
+    public void prepareNext(String filePath) {
+        if (filePath == null) {
+            clearNext();
+            return;
+        }
+        if (filePath.equals(nextPath) && nextPlayer != null) {
+            // deja en cours de préparation ou prête
+            return;
+        }
+        clearNext();
+
+        nextPath = filePath;
+        nextPlayer = createPlayer();
+        try {
+            // meme session audio que le lecteur courant : l'égaliseur reste appliqué
+            nextPlayer.setAudioSessionId(currentPlayer.getAudioSessionId());
+            nextPlayer.setDataSource(filePath);
+            nextPlayer.prepareAsync();
+        } catch (Exception e) {
+            android.util.Log.e("PlaybackEngine", "Erreur préparation de la suivante: " + e.getMessage(), e);
+            clearNext();
+        }
+    }
+
+    // oublier la musique suivante préparée
+    public void clearNext() {
+        if (currentPlayer != null && currentPrepared) {
+            try {
+                currentPlayer.setNextMediaPlayer(null);
+            } catch (IllegalStateException e) {
+                android.util.Log.w("PlaybackEngine", "Impossible de dechainer la suivante: " + e.getMessage());
+            }
+        }
+        if (nextPlayer != null) {
+            nextPlayer.release();
+        }
+        nextPlayer = null;
+        nextPath = null;
+        nextPrepared = false;
+    }
+
+    // le lecteur suivant devient le lecteur courant (l'ancien est libéré)
+    // utilisé à la fin d'un enchainement ou d'un fondu
+    public void promoteNext() {
+        MediaPlayer oldPlayer = currentPlayer;
+
+        loadGeneration++; // une erreur de chargement en attente ne concerne plus la musique courante
+        currentPlayer = nextPlayer;
+        currentPath = nextPath;
+        currentPrepared = nextPrepared;
+        playWhenReady = true;
+        pendingSeekPosition = 0;
+        currentPlayer.setLooping(looping);
+
+        nextPlayer = null;
+        nextPath = null;
+        nextPrepared = false;
+
+        oldPlayer.release();
+    }
+
+    // creer un lecteur avec les listeners du moteur
+    private MediaPlayer createPlayer() {
+        MediaPlayer player = new MediaPlayer();
+        player.setOnPreparedListener(this::onPlayerPrepared);
+        player.setOnCompletionListener(this::onPlayerCompleted);
+        player.setOnErrorListener((mp, what, extra) -> {
+            android.util.Log.e("PlaybackEngine", "Erreur MediaPlayer what=" + what + " extra=" + extra);
+            if (mp == currentPlayer) {
+                currentPrepared = false;
+                callback.onError(currentPath);
+            } else if (mp == nextPlayer) {
+                clearNext();
+            }
+            return true; // erreur gérée, pas d'appel à onCompletion
+        });
+        return player;
+    }
+
+    private void onPlayerPrepared(MediaPlayer mp) {
+        if (mp == currentPlayer) {
+            currentPrepared = true;
+            if (pendingSeekPosition > 0) {
+                currentPlayer.seekTo(pendingSeekPosition);
+                pendingSeekPosition = 0;
+            }
+            if (playWhenReady) {
+                currentPlayer.start();
+            }
+            chainNextIfPossible();
+            callback.onPrepared(currentPath);
+        } else if (mp == nextPlayer) {
+            nextPrepared = true;
+            chainNextIfPossible();
+        }
+    }
+
+    private void onPlayerCompleted(MediaPlayer mp) {
+        if (mp != currentPlayer) return;
+
+        if (nextPrepared && gaplessEnabled && !looping) {
+            // le lecteur suivant a deja démarré tout seul (setNextMediaPlayer)
+            promoteNext();
+            callback.onAdvanced(currentPath);
+        } else {
+            callback.onCompleted();
+        }
+    }
+
+    // chainer le lecteur suivant au lecteur courant s'ils sont prets tous les deux
+    private void chainNextIfPossible() {
+        if (!currentPrepared || !nextPrepared || nextPlayer == null) return;
+
+        try {
+            currentPlayer.setNextMediaPlayer(gaplessEnabled && !looping ? nextPlayer : null);
+        } catch (IllegalStateException e) {
+            android.util.Log.w("PlaybackEngine", "Impossible de chainer la suivante: " + e.getMessage());
+        }
+    }
+
+    // -------- Controles --------
+
+    public void play() {
+        playWhenReady = true;
+        if (currentPrepared && !currentPlayer.isPlaying()) {
+            currentPlayer.start();
+        }
+    }
+
+    public void pause() {
+        playWhenReady = false;
+        if (currentPrepared && currentPlayer.isPlaying()) {
+            currentPlayer.pause();
+        }
+    }
+
+    public void seekTo(int position) {
+        if (currentPrepared) {
+            currentPlayer.seekTo(position);
+        } else {
+            pendingSeekPosition = position;
+        }
+    }
+
+    public void setLooping(boolean looping) {
+        this.looping = looping;
+        currentPlayer.setLooping(looping);
+        chainNextIfPossible();
+    }
+
+    public void setGaplessEnabled(boolean enabled) {
+        gaplessEnabled = enabled;
+        chainNextIfPossible();
+    }
+
+    public void setVolume(float volume) {
+        currentPlayer.setVolume(volume, volume);
+    }
+
+    // -------- Etat --------
+
+    public boolean isPlaying() {
+        return currentPrepared && currentPlayer.isPlaying();
+    }
+
+    public boolean isPrepared() {
+        return currentPrepared;
+    }
+
+    public int getCurrentPosition() {
+        return currentPrepared ? currentPlayer.getCurrentPosition() : pendingSeekPosition;
+    }
+
+    public int getDuration() {
+        return currentPrepared ? currentPlayer.getDuration() : 0;
+    }
+
+    public int getAudioSessionId() {
+        return currentPlayer.getAudioSessionId();
+    }
+
+    public String getCurrentPath() {
+        return currentPath;
+    }
+
+    // verifier si la musique suivante préparée est bien celle donnée et qu'elle est prête
+    public boolean isNextPrepared(String filePath) {
+        return nextPrepared && filePath != null && filePath.equals(nextPath);
+    }
+
+    public MediaPlayer getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public MediaPlayer getNextPlayer() {
+        return nextPlayer;
+    }
+
+    // liberer les deux lecteurs
+    public void release() {
+        handler.removeCallbacksAndMessages(null);
+        clearNext();
+        currentPlayer.release();
+        currentPrepared = false;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.matonique.utils;
 
+import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 
@@ -21,22 +22,95 @@ public class BitmapUtils {
         return BitmapFactory.decodeByteArray(byteArray, 0, byteArray.length);
     }
 
-    // redimensionne un Bitmap pour que sa plus grande dimension soit de 500 pixels
-    private Bitmap scaleBitmap500(Bitmap bitmap) {
-        int maxSize = 500; // pixels
-        float ratio = Math.min(
-                (float) maxSize / bitmap.getWidth(),
-                (float) maxSize / bitmap.getHeight()
-        );
-        int width = Math.round(ratio * bitmap.getWidth());
-        int height = Math.round(ratio * bitmap.getHeight());
+    // Decode un tableau de bytes directement à une taille proche de maxSize, sans jamais
+    // décoder l'image entière en memoire :
+    // 1) on lit seulement les dimensions (inJustDecodeBounds)
+    // 2) on calcule un inSampleSize (puissance de 2) pour la taille demandée
+    // 3) on decode en RGB_565 si l'image n'a pas de transparence (JPEG), 2x moins de memoire
+    // reusable : Bitmap mutable à réutiliser via inBitmap (peut etre null)
+    // le Bitmap retourné est mutable, on peut le redonner en reusable au prochain appel
+    public static Bitmap decodeSampledBitmap(byte[] data, int maxSize, Bitmap reusable) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null; // pas une image
+        }
 
-        return Bitmap.createScaledBitmap(bitmap, width, height, true);
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, maxSize);
+        options.inPreferredConfig = isOpaqueFormat(options.outMimeType)
+                ? Bitmap.Config.RGB_565
+                : Bitmap.Config.ARGB_8888;
+        options.inMutable = true;
+        options.inJustDecodeBounds = false;
+
+        if (reusable != null && canReuse(reusable, options)) {
+            options.inBitmap = reusable;
+            try {
+                return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+            } catch (IllegalArgumentException e) {
+                // le Bitmap à réutiliser ne convient pas, on decode dans un nouveau Bitmap
+                options.inBitmap = null;
+            }
+        }
+        return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    }
+
+    // Decode une miniature deja à la bonne taille (cache disque) pour l'afficher
+    // allowHardware : le Bitmap est stocké en memoire graphique (hors du tas java),
+    // seulement pour les images affichées dans une ImageView (pas de getPixels, pas de Canvas logiciel)
+    public static Bitmap decodeThumbnail(String filePath, boolean allowHardware) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inPreferredConfig = allowHardware ? Bitmap.Config.HARDWARE : Bitmap.Config.RGB_565;
+        return BitmapFactory.decodeFile(filePath, options);
+    }
+
+    // Decode une image des ressources directement à une taille proche de maxSize
+    public static Bitmap decodeSampledResource(Resources resources, int resId, int maxSize) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, resId, options);
+
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, maxSize);
+        options.inJustDecodeBounds = false;
+        return BitmapFactory.decodeResource(resources, resId, options);
+    }
+
+    // calcule le plus grand inSampleSize (puissance de 2) qui garde la plus grande dimension
+    // de l'image au moins égale à maxSize (on redimensionne ensuite avec scaleToFit)
+    // ex: une cover de 3000x3000 pour 512 px -> 4 (decodée en 750x750 au lieu de 3000x3000)
+    public static int calculateInSampleSize(int width, int height, int maxSize) {
+        int inSampleSize = 1;
+        int largest = Math.max(width, height);
+        while (largest / (inSampleSize * 2) >= maxSize) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    // verifier si un Bitmap peut servir d'inBitmap pour un decodage
+    // depuis android 4.4 il suffit qu'il soit mutable et assez grand
+    private static boolean canReuse(Bitmap candidate, BitmapFactory.Options options) {
+        if (!candidate.isMutable() || candidate.isRecycled()) {
+            return false;
+        }
+        int width = (int) Math.ceil((double) options.outWidth / options.inSampleSize);
+        int height = (int) Math.ceil((double) options.outHeight / options.inSampleSize);
+        int bytesPerPixel = options.inPreferredConfig == Bitmap.Config.RGB_565 ? 2 : 4;
+        return (long) width * height * bytesPerPixel <= candidate.getAllocationByteCount();
+    }
+
+    // les JPEG n'ont pas de transparence : on peut les décoder en RGB_565
+    private static boolean isOpaqueFormat(String mimeType) {
+        return "image/jpeg".equals(mimeType);
     }
 
-    // redimensionne un Bitmap pour que sa plus grande dimension soit de 700 pixels
-    private Bitmap scaleBitmap700(Bitmap bitmap) {
-        int maxSize = 700; // pixels
+    // redimensionne un Bitmap pour que sa plus grande dimension soit au plus de maxSize pixels
+    // retourne le meme Bitmap s'il est deja assez petit
+    public static Bitmap scaleToFit(Bitmap bitmap, int maxSize) {
+        if (bitmap.getWidth() <= maxSize && bitmap.getHeight() <= maxSize) {
+            return bitmap;
+        }
         float ratio = Math.min(
                 (float) maxSize / bitmap.getWidth(),
                 (float) maxSize / bitmap.getHeight()
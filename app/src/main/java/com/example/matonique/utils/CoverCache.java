@@ -0,0 +1,337 @@
+package com.example.matonique.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.media.MediaMetadataRetriever;
+import android.util.LruCache;
+
+import com.example.matonique.model.Music;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Cache des covers à deux niveaux
+// 1) en memoire : LruCache de Bitmaps deja décodés, limité en nombre d'octets
+// 2) sur le disque : miniatures pré-redimensionnées aux tailles affichées dans l'app
+// la cover complete n'est extraite du fichier audio qu'une seule fois par album
+// une musique sans cover est notée (en memoire et par un marqueur sur le disque) avec le fichier vérifié :
+// on recherche à nouveau si ce fichier a changé (cover ajoutée) ou apres NO_COVER_TTL_MS
+public class CoverCache {
+
+    // tailles de cover affichées dans l'app (plus grande dimension en pixels)
+    // allowHardware : la cover n'est qu'affichée dans une ImageView, on peut la garder en memoire graphique
+    // (pas pour la notification : la MediaSession envoie et redimensionne le Bitmap en logiciel)
+    public enum CoverSize {
+        LIST_ROW(128, true),       // ligne de liste
+        NOTIFICATION(512, false),  // notification et lockscreen (taille recommandée par google)
+        PLAYER(700, true);         // page de lecture
+
+        private final int pixels;
+        private final boolean allowHardware;
+
+        CoverSize(int pixels, boolean allowHardware) {
+            this.pixels = pixels;
+            this.allowHardware = allowHardware;
+        }
+
+        public int getPixels() {
+            return pixels;
+        }
+    }
+
+    // taille max du cache disque avant de suprimer les plus vieilles miniatures
+    private static final long MAX_DISK_CACHE_BYTES = 100L * 1024 * 1024;
+    // on ne verifie la taille du cache disque que toutes les N écritures
+    private static final int DISK_TRIM_INTERVAL = 20;
+    // durée pendant laquelle une absence de cover est crue sans revérifier le fichier
+    // (la cover a pu etre ajoutée dans un autre fichier du meme album)
+    private static final long NO_COVER_TTL_MS = 7L * 24 * 60 * 60 * 1000;
+
+    // absence de cover constatée : fichier vérifié, sa date de modification et la date de la vérification
+    private static class NoCover {
+        final String filePath;
+        final long fileLastModified;
+        final long checkedAt;
+
+        NoCover(String filePath, long fileLastModified, long checkedAt) {
+            this.filePath = filePath;
+            this.fileLastModified = fileLastModified;
+            this.checkedAt = checkedAt;
+        }
+
+        // toujours valable si le fichier n'a pas changé depuis et que la vérification est assez récente
+        boolean isValid() {
+            return System.currentTimeMillis() - checkedAt < NO_COVER_TTL_MS
+                    && new File(filePath).lastModified() == fileLastModified;
+        }
+    }
+
+    private static CoverCache instance;
+
+    private final LruCache<String, Bitmap> memoryCache;
+    private final File diskDir;
+    // clés des musiques sans cover intégrée, pour ne pas relancer l'extraction
+    private final Map<String, NoCover> keysWithoutCover = new ConcurrentHashMap<>();
+    private int writesSinceTrim = 0;
+    // Bitmap mutable réutilisé (inBitmap) pour décoder les covers extraites avant de les redimensionner
+    private Bitmap decodeBuffer;
+
+    private CoverCache(Context context) {
+        // on garde 1/8 de la memoire de l'app pour les covers
+        int maxBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 8, Integer.MAX_VALUE);
+        memoryCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+
+        diskDir = new File(context.getCacheDir(), "covers");
+        if (!diskDir.exists() && !diskDir.mkdirs()) {
+            android.util.Log.w("CoverCache", "Impossible de créer le dossier du cache: " + diskDir);
+        }
+    }
+
+    // methode singleton pour recuperer l'instance du cache
+    public static synchronized CoverCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new CoverCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // recuperer une cover deja en memoire, sans aucun accès disque
+    // utilisable sur le thread principal, retourne null si pas en memoire
+    public Bitmap getFromMemory(Music music, CoverSize size) {
+        return memoryCache.get(memoryKey(coverKey(music), size));
+    }
+
+    // recuperer une cover à la taille demandée (memoire, puis disque, puis extraction du fichier)
+    // retourne null si la musique n'a pas de cover intégrée
+    // ATTENTION : peut lire le disque, à appeler hors du thread principal
+    public Bitmap getCover(Music music, CoverSize size) {
+        String key = coverKey(music);
+        String memoryKey = memoryKey(key, size);
+
+        Bitmap cached = memoryCache.get(memoryKey);
+        if (cached != null) {
+            return cached;
+        }
+        NoCover noCover = keysWithoutCover.get(key);
+        if (noCover != null) {
+            if (noCover.isValid()) {
+                return null;
+            }
+            keysWithoutCover.remove(key, noCover);
+        }
+
+        // miniature deja sur le disque ?
+        File thumbnail = thumbnailFile(key, size);
+        if (thumbnail.exists()) {
+            Bitmap bitmap = BitmapUtils.decodeThumbnail(thumbnail.getAbsolutePath(), size.allowHardware);
+            if (bitmap != null) {
+                // on "touche" le fichier pour que le nettoyage garde les miniatures utilisées
+                thumbnail.setLastModified(System.currentTimeMillis());
+                memoryCache.put(memoryKey, bitmap);
+                return bitmap;
+            }
+        }
+        noCover = readNoCoverMarker(key);
+        if (noCover != null) {
+            if (noCover.isValid()) {
+                keysWithoutCover.put(key, noCover);
+                return null;
+            }
+            noCoverMarker(key).delete();
+        }
+
+        // pas encore en cache : extraire la cover du fichier et créer toutes les miniatures
+        return extractAndCache(music.getFilePath(), key, size);
+    }
+
+    // extraire la cover intégrée au fichier audio, générer les miniatures de toutes les tailles
+    // et retourner celle demandée
+    // la cover est décodée directement à la plus grande taille affichée (jamais en pleine résolution)
+    // dans un Bitmap réutilisé d'un appel à l'autre, d'où le synchronized
+    private synchronized Bitmap extractAndCache(String filePath, String key, CoverSize requestedSize) {
+        // date lue AVANT l'extraction : une cover ajoutée pendant la lecture invalidera le marqueur
+        long lastModified = new File(filePath).lastModified();
+        byte[] art = extractEmbeddedPicture(filePath);
+        Bitmap decoded = art != null
+                ? BitmapUtils.decodeSampledBitmap(art, CoverSize.PLAYER.getPixels(), decodeBuffer)
+                : null;
+
+        if (decoded == null) {
+            NoCover noCover = new NoCover(filePath, lastModified, System.currentTimeMillis());
+            keysWithoutCover.put(key, noCover);
+            writeNoCoverMarker(key, noCover);
+            return null;
+        }
+        // on garde le Bitmap décodé pour la prochaine extraction
+        decodeBuffer = decoded;
+
+        Bitmap requested = null;
+        for (CoverSize size : CoverSize.values()) {
+            Bitmap scaled = BitmapUtils.scaleToFit(decoded, size.getPixels());
+            writeThumbnail(thumbnailFile(key, size), scaled);
+            if (size == requestedSize) {
+                // le buffer de décodage sera réécrit : le cache memoire doit avoir sa propre copie
+                requested = scaled != decoded ? scaled : decoded.copy(decoded.getConfig(), false);
+                memoryCache.put(memoryKey(key, size), requested);
+            } else if (scaled != decoded) {
+                scaled.recycle();
+            }
+        }
+
+        trimDiskCacheIfNeeded();
+        return requested;
+    }
+
+    // lire les octets de la cover intégrée au fichier (null si pas de cover)
+    private static byte[] extractEmbeddedPicture(String filePath) {
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try {
+            retriever.setDataSource(filePath);
+            return retriever.getEmbeddedPicture();
+        } catch (Exception e) {
+            android.util.Log.e("CoverCache", "Erreur extraction cover: " + e.getMessage());
+            return null;
+        } finally {
+            try {
+                retriever.release();
+            } catch (Exception e) {
+                android.util.Log.e("CoverCache", "Erreur release retriever", e);
+            }
+        }
+    }
+
+    // ecrire une miniature sur le disque (fichier temporaire puis renommage)
+    private void writeThumbnail(File file, Bitmap bitmap) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 90, out);
+        } catch (IOException e) {
+            android.util.Log.e("CoverCache", "Erreur écriture miniature: " + e.getMessage());
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+        }
+    }
+
+    // marqueur "pas de cover" : chemin du fichier vérifié et sa date de modification, une ligne chacun
+    // la date de la vérification est celle du marqueur
+    private void writeNoCoverMarker(String key, NoCover noCover) {
+        File marker = noCoverMarker(key);
+        String content = noCover.filePath + "\n" + noCover.fileLastModified + "\n";
+        try {
+            Files.write(marker.toPath(), content.getBytes(StandardCharsets.UTF_8));
+            marker.setLastModified(noCover.checkedAt);
+        } catch (IOException e) {
+            android.util.Log.w("CoverCache", "Erreur écriture marqueur: " + e.getMessage());
+        }
+    }
+
+    // relire un marqueur "pas de cover", null s'il n'existe pas ou qu'il est illisible
+    // (les marqueurs vides des versions précédentes sont illisibles : la cover est recherchée à nouveau)
+    private NoCover readNoCoverMarker(String key) {
+        File marker = noCoverMarker(key);
+        if (!marker.exists()) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(marker.toPath(), StandardCharsets.UTF_8);
+            if (lines.size() < 2) {
+                return null;
+            }
+            return new NoCover(lines.get(0), Long.parseLong(lines.get(1)), marker.lastModified());
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // suprimer les miniatures les moins récemment utilisées si le cache disque est trop gros
+    private void trimDiskCacheIfNeeded() {
+        synchronized (this) {
+            if (++writesSinceTrim < DISK_TRIM_INTERVAL) return;
+            writesSinceTrim = 0;
+        }
+
+        File[] files = diskDir.listFiles();
+        if (files == null) return;
+
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= MAX_DISK_CACHE_BYTES) return;
+
+        Arrays.sort(files, (f1, f2) -> Long.compare(f1.lastModified(), f2.lastModified()));
+        for (File file : files) {
+            if (total <= MAX_DISK_CACHE_BYTES * 3 / 4) break;
+            total -= file.length();
+            file.delete();
+        }
+    }
+
+    private File thumbnailFile(String key, CoverSize size) {
+        return new File(diskDir, key + "_" + size.getPixels() + ".jpg");
+    }
+
+    private File noCoverMarker(String key) {
+        return new File(diskDir, key + ".none");
+    }
+
+    private static String memoryKey(String key, CoverSize size) {
+        return key + "_" + size.getPixels();
+    }
+
+    // clé de cache d'une cover : par album si on le connait (toutes les musiques d'un album
+    // partagent la meme cover), sinon par fichier
+    // l'album est identifié par son artiste d'album, sinon l'artiste de la musique
+    // (comme LibraryDatabase.albumArtistOf) : une compilation n'a qu'une cover,
+    // et deux albums "Best Of" d'artistes inconnus ne partagent pas la leur
+    static String coverKey(Music music) {
+        String album = music.getAlbum();
+        String albumArtist = music.getAlbumArtist();
+        if (isUnknown(albumArtist)) {
+            albumArtist = music.getArtist();
+        }
+        String source;
+        if (!isUnknown(album) && !isUnknown(albumArtist)) {
+            source = "album:" + albumArtist + "|" + album;
+        } else {
+            source = "file:" + music.getFilePath();
+        }
+        return sha1(source);
+    }
+
+    private static boolean isUnknown(String value) {
+        return value == null || value.isEmpty() || value.equals("Unknown");
+    }
+
+    private static String sha1(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-1 est toujours disponible sur android
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.matonique.utils;
+
+import com.example.matonique.library.MusicLibrary;
+import com.example.matonique.model.FileItem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// Listing d'un dossier sur le disque pour l'explorateur et la queue de lecture
+// chaque entrée n'est lue qu'une seule fois (un stat par fichier, pas à chaque comparaison du tri)
+// tri "naturel" selon la langue du telephone :
+// - les accents et la casse ne comptent pas avant les lettres ("école" avec les "e", pas apres "z")
+// - les nombres sont comparés par leur valeur ("Track 2" avant "Track 10")
+// les clés de tri sont calculées une fois par nom, pas à chaque comparaison, et gardées dans l'index
+public class DirectoryLister {
+
+    // au dela, les chiffres d'un nombre ne comptent plus dans le tri (la longueur est codée sur 2 chiffres)
+    private static final int MAX_NUMBER_DIGITS = 99;
+
+    // lister un dossier : sous-dossiers puis musiques, chacun trié par nom
+    // retourne une liste vide si le dossier est illisible
+    public static List<FileItem> list(File directory) {
+        List<FileItem> folders = new ArrayList<>();
+        List<FileItem> musics = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath())) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                boolean isDirectory;
+                try {
+                    // suit les liens symboliques, comme File.isDirectory()
+                    isDirectory = Files.readAttributes(path, BasicFileAttributes.class).isDirectory();
+                } catch (IOException e) {
+                    continue; // entrée disparue ou lien cassé
+                }
+
+                if (isDirectory) {
+                    folders.add(new FileItem(path.toString(), name, true));
+                } else if (MusicLibrary.isMusicFile(name)) {
+                    musics.add(new FileItem(path.toString(), name, false));
+                }
+            }
+        } catch (IOException | SecurityException e) {
+            android.util.Log.w("DirectoryLister", "Dossier illisible: " + directory.getAbsolutePath() + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+
+        sortByName(folders, FileItem::getName);
+        sortByName(musics, FileItem::getName);
+
+        List<FileItem> items = new ArrayList<>(folders.size() + musics.size());
+        items.addAll(folders);
+        items.addAll(musics);
+        return items;
+    }
+
+    // chemins des musiques d'un dossier, triés par nom
+    public static List<String> listTrackPaths(File directory) {
+        List<String> paths = new ArrayList<>();
+        for (FileItem item : list(directory)) {
+            if (!item.isDirectory()) {
+                paths.add(item.getPath());
+            }
+        }
+        return paths;
+    }
+
+    // trier une liste par nom dans l'ordre naturel
+    public static <T> void sortByName(List<T> items, Function<T, String> nameOf) {
+        if (items.size() < 2) return;
+
+        Collator collator = newCollator();
+        List<Keyed<T>> keyed = new ArrayList<>(items.size());
+        for (T item : items) {
+            String name = nameOf.apply(item);
+            keyed.add(new Keyed<>(item, name, sortKey(name, collator)));
+        }
+        keyed.sort(null);
+
+        for (int i = 0; i < keyed.size(); i++) {
+            items.set(i, keyed.get(i).item);
+        }
+    }
+
+    // Collator pour calculer des clés de tri
+    // ATTENTION : Collator n'est pas thread-safe, une instance par tri ou par lot
+    public static Collator newCollator() {
+        Collator collator = Collator.getInstance();
+        collator.setStrength(Collator.SECONDARY);
+        return collator;
+    }
+
+    // clé de tri d'un nom : deux clés comparées comme des textes simples (caractère par caractère,
+    // comme ORDER BY dans SQLite) donnent l'ordre naturel, on peut donc la stocker dans l'index
+    // le nom est découpé en morceaux de texte et de nombres :
+    // - nombre : '1' + nombre de chiffres sur 2 caractères + chiffres sans les zéros de tête
+    // - texte  : '2' + CollationKey en hexadécimal + ' ' (plus petit que tout chiffre hexa : "a" avant "ab")
+    // les nombres passent avant le texte, et un nom qui s'arrete avant l'autre passe en premier
+    // NOTE : la clé dépend de la langue du telephone au moment où elle est calculée
+    public static String sortKey(String name, Collator collator) {
+        StringBuilder key = new StringBuilder(name.length() * 4);
+        int start = 0;
+        while (start < name.length()) {
+            boolean digits = isDigit(name.charAt(start));
+            int end = start;
+            while (end < name.length() && isDigit(name.charAt(end)) == digits) {
+                end++;
+            }
+
+            if (digits) {
+                int first = start;
+                while (first < end - 1 && name.charAt(first) == '0') {
+                    first++;
+                }
+                int length = Math.min(end - first, MAX_NUMBER_DIGITS);
+                key.append('1').append((char) ('0' + length / 10)).append((char) ('0' + length % 10))
+                        .append(name, first, first + length);
+            } else {
+                key.append('2');
+                for (byte b : collator.getCollationKey(name.substring(start, end)).toByteArray()) {
+                    key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+                }
+                key.append(' ');
+            }
+            start = end;
+        }
+        return key.toString();
+    }
+
+    // chiffres ASCII seulement : les nombres sont comparés caractère par caractère
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // element à trier avec sa clé
+    private static class Keyed<T> implements Comparable<Keyed<T>> {
+        final T item;
+        final String name;
+        final String key;
+
+        Keyed(T item, String name, String key) {
+            this.item = item;
+            this.name = name;
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(Keyed<T> other) {
+            int result = key.compareTo(other.key);
+            // noms équivalents ("Track 01" / "track 1") : ordre stable et déterministe
+            return result != 0 ? result : name.compareTo(other.name);
+        }
+    }
+}
@@ -1,102 +1,240 @@
 package com.example.matonique.utils;
 
+import com.example.matonique.library.MusicLibrary;
+
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
 // Utilitaire pour parser les fichiers de playlist M3U
 // Format M3U : un fichier texte avec une ligne par fichier audio
+// Format M3U étendu : une ligne "#EXTINF:durée,Artiste - Titre" avant chaque fichier
+// La lecture se fait au fil de l'eau (EntryReader) : les entrées sont rendues une par une,
+// sans accès disque par entrée (l'existence des fichiers se vérifie par lots avec MusicLibrary)
 public class M3UParser {
 
-    // Lire une playlist M3U et retourner la liste des chemins de fichiers
-    // les chemins peuvent etre relatifs ou absolus
-    public static List<String> parsePlaylist(String m3uFilePath) {
-        List<String> musicPaths = new ArrayList<>();
-        File m3uFile = new File(m3uFilePath);
+    // Une entrée de la playlist
+    // en plus du chemin résolu, on garde les lignes telles qu'elles sont écrites dans le fichier
+    // (chemin relatif, #EXTINF avec sa durée, commentaires) pour pouvoir réécrire le m3u sans rien perdre
+    public static class Entry {
+        private final String path;      // chemin absolu (null pour un flux réseau)
+        private final String location;  // ligne du chemin telle qu'écrite dans le m3u
+        private final String extInf;    // ligne #EXTINF complete (null si absente)
+        private final String extraLines; // autres lignes juste avant l'entrée (commentaires, lignes vides...), null si aucune
+        private final String title;     // titre lu dans #EXTINF (null si absent)
+        private final String artist;    // artiste lu dans #EXTINF (null si absent)
+        // la durée n'est pas gardée à part : elle reste dans la ligne #EXTINF
+
+        Entry(String path, String location, String extInf, String extraLines, String title, String artist) {
+            this.path = path;
+            this.location = location;
+            this.extInf = extInf;
+            this.extraLines = extraLines;
+            this.title = title;
+            this.artist = artist;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public String getLocation() {
+            return location;
+        }
 
-        android.util.Log.d("M3UParser", "=== Début parsing de: " + m3uFilePath);
+        public String getExtInf() {
+            return extInf;
+        }
 
-        if (!m3uFile.exists()) {
-            android.util.Log.e("M3UParser", "Fichier M3U introuvable: " + m3uFilePath);
-            return musicPaths;
+        public String getExtraLines() {
+            return extraLines;
         }
 
-        if (!m3uFile.canRead()) {
-            android.util.Log.e("M3UParser", "Fichier M3U illisible (permissions?): " + m3uFilePath);
-            return musicPaths;
+        public String getTitle() {
+            return title;
         }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(m3uFile))) {
-            String line;
-            File m3uParentDir = m3uFile.getParentFile();
-            android.util.Log.d("M3UParser", "Dossier parent du M3U: " + (m3uParentDir != null ? m3uParentDir.getAbsolutePath() : "null"));
+        public String getArtist() {
+            return artist;
+        }
 
-            int lineNumber = 0;
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                // ignorer les lignes vides et les commentaires
-                line = line.trim();
+        // l'app peut-elle lire cette entrée ? (fichier local d'un format supporté, juste l'extension)
+        // les autres entrées (flux réseau, .ogg...) sont gardées pour la réécriture du m3u mais pas affichées
+        public boolean isPlayable() {
+            return path != null && MusicLibrary.isMusicFile(path);
+        }
 
+        // texte à afficher pour l'entrée : "Artiste - Titre" si connu, sinon le nom du fichier
+        public String getDisplayName() {
+            if (title == null) {
+                return new File(path != null ? path : location).getName();
+            }
+            return artist != null ? artist + " - " + title : title;
+        }
+    }
+
+    // Lecteur d'entrées au fil de l'eau, à fermer apres usage (try-with-resources)
+    // toutes les entrées sont rendues, y compris celles que l'app ne sait pas lire (voir Entry.isPlayable)
+    // les lignes avant la premiere entrée (#EXTM3U...) et apres la derniere sont lisibles
+    // avec getHeader() et getTrailer() une fois la fin du fichier atteinte
+    public static class EntryReader implements Closeable {
+        private final BufferedReader reader;
+        private final File baseDir;
+        private boolean firstLine = true;
+        private boolean firstEntry = true;
+
+        // lignes lues depuis la derniere entrée, hors #EXTINF
+        private final List<String> pendingLines = new ArrayList<>();
+        private String header;
+        private String trailer;
+
+        // infos du dernier #EXTINF, appliquées à la ligne de chemin suivante
+        private String pendingExtInf;
+        private String pendingTitle;
+        private String pendingArtist;
+
+        private EntryReader(File m3uFile) throws IOException {
+            // Android lit les fichiers en UTF-8 par defaut, on le fixe pour que .m3u8 soit toujours correct
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(m3uFile), StandardCharsets.UTF_8));
+            baseDir = m3uFile.getParentFile();
+        }
+
+        // lire l'entrée suivante, null à la fin du fichier
+        public Entry next() throws IOException {
+            String rawLine;
+            while ((rawLine = reader.readLine()) != null) {
+                if (firstLine) {
+                    firstLine = false;
+                    // enlever le BOM UTF-8 éventuel
+                    if (!rawLine.isEmpty() && rawLine.charAt(0) == '\uFEFF') {
+                        rawLine = rawLine.substring(1);
+                    }
+                }
+
+                String line = rawLine.trim();
                 if (line.isEmpty()) {
+                    pendingLines.add(rawLine);
                     continue;
                 }
 
                 if (line.startsWith("#")) {
-                    android.util.Log.d("M3UParser", "Ligne " + lineNumber + " (commentaire): " + line);
+                    if (line.regionMatches(true, 0, "#EXTINF:", 0, 8)) {
+                        if (pendingExtInf != null) {
+                            // #EXTINF sans chemin apres lui : gardé comme une ligne quelconque
+                            pendingLines.add(pendingExtInf);
+                        }
+                        pendingExtInf = rawLine;
+                        parseExtInf(line);
+                    } else {
+                        pendingLines.add(rawLine);
+                    }
                     continue;
                 }
 
-                android.util.Log.d("M3UParser", "Ligne " + lineNumber + " (chemin): " + line);
+                String extraLines = takePendingLines();
+                if (firstEntry) {
+                    firstEntry = false;
+                    header = extraLines;
+                    extraLines = null;
+                }
+                Entry entry = new Entry(resolvePath(line), rawLine, pendingExtInf, extraLines,
+                        pendingTitle, pendingArtist);
+                pendingExtInf = null;
+                pendingTitle = null;
+                pendingArtist = null;
+                return entry;
+            }
+
+            // fin du fichier
+            if (pendingExtInf != null) {
+                pendingLines.add(pendingExtInf);
+                pendingExtInf = null;
+            }
+            if (firstEntry) {
+                header = takePendingLines();
+            } else if (!pendingLines.isEmpty()) {
+                trailer = takePendingLines();
+            }
+            return null;
+        }
 
-                // si le chemin est relatif, le resoudre par rapport au dossier du m3u
-                File musicFile = new File(line);
+        // lignes avant la premiere entrée (null si aucune), valable apres la fin du fichier
+        public String getHeader() {
+            return header;
+        }
 
-                if (!musicFile.isAbsolute() && m3uParentDir != null) {
-                    musicFile = new File(m3uParentDir, line);
-                    android.util.Log.d("M3UParser", "  Chemin relatif converti en: " + musicFile.getAbsolutePath());
-                }
+        // lignes apres la derniere entrée (null si aucune), valable apres la fin du fichier
+        public String getTrailer() {
+            return trailer;
+        }
 
-                // verifier que le fichier existe
-                if (!musicFile.exists()) {
-                    android.util.Log.w("M3UParser", "  ✗ Fichier introuvable: " + musicFile.getAbsolutePath());
-                    continue;
-                }
+        private String takePendingLines() {
+            if (pendingLines.isEmpty()) {
+                return null;
+            }
+            String lines = String.join("\n", pendingLines);
+            pendingLines.clear();
+            return lines;
+        }
 
-                // verifier que c'est un fichier audio
-                if (!isMusicFile(musicFile)) {
-                    android.util.Log.w("M3UParser", "  ✗ Pas un fichier audio supporté: " + musicFile.getName());
-                    continue;
-                }
+        // "#EXTINF:123 attributs,Artiste - Titre" : on ne lit que le texte apres la virgule
+        private void parseExtInf(String line) {
+            pendingTitle = null;
+            pendingArtist = null;
+            int comma = line.indexOf(',', 8);
+            if (comma < 0) return;
+            String display = line.substring(comma + 1).trim();
+            if (display.isEmpty()) return;
+
+            int separator = display.indexOf(" - ");
+            if (separator > 0) {
+                pendingArtist = display.substring(0, separator).trim();
+                pendingTitle = display.substring(separator + 3).trim();
+            } else {
+                pendingTitle = display;
+            }
+        }
 
-                // fichier valide !
-                musicPaths.add(musicFile.getAbsolutePath());
-                android.util.Log.d("M3UParser", "  ✓ Fichier ajouté: " + musicFile.getName() + " (" + formatFileSize(musicFile.length()) + ")");
+        // convertir une ligne de chemin en chemin absolu normalisé (sans "." ni "..")
+        // les chemins peuvent etre relatifs (au dossier du m3u), absolus ou en file://
+        // normalisé pour etre comparable aux chemins de l'index et des autres playlists
+        private String resolvePath(String line) {
+            if (line.regionMatches(true, 0, "file://", 0, 7)) {
+                line = android.net.Uri.decode(line.substring(7));
+            } else if (line.contains("://")) {
+                // flux réseau : pas géré
+                return null;
             }
-        } catch (IOException e) {
-            android.util.Log.e("M3UParser", "Erreur lecture du fichier M3U: " + e.getMessage());
-            e.printStackTrace();
+
+            File file = new File(line);
+            if (!file.isAbsolute() && baseDir != null) {
+                // relatif au dossier du m3u (les '\\' viennent des playlists exportées depuis windows)
+                file = new File(baseDir, line.replace('\\', '/'));
+            }
+            return file.getAbsoluteFile().toPath().normalize().toString();
         }
 
-        android.util.Log.d("M3UParser", "=== Fin parsing: " + musicPaths.size() + " fichiers valides trouvés sur " + m3uFile.length() + " octets lus");
-        return musicPaths;
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
     }
 
-    // formater la taille d'un fichier en texte lisible
-    private static String formatFileSize(long bytes) {
-        if (bytes < 1024) return bytes + " B";
-        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
-        if (bytes < 1024 * 1024 * 1024) return String.format("%.1f MB", bytes / (1024.0 * 1024));
-        return String.format("%.1f GB", bytes / (1024.0 * 1024 * 1024));
+    // ouvrir une playlist pour la lire entrée par entrée
+    public static EntryReader open(String m3uFilePath) throws IOException {
+        return new EntryReader(new File(m3uFilePath));
     }
 
-    // verifier si un fichier est un fichier audio supporté
-    private static boolean isMusicFile(File file) {
-        String name = file.getName().toLowerCase();
-        return name.endsWith(".mp3") || name.endsWith(".m4a") ||
-                name.endsWith(".flac") || name.endsWith(".wav");
+    // verifier si un fichier est une playlist m3u ou m3u8
+    public static boolean isPlaylistFile(String fileName) {
+        String name = fileName.toLowerCase();
+        return name.endsWith(".m3u") || name.endsWith(".m3u8");
     }
 
     // extraire le nom de la playlist à partir du nom du fichier m3u
@@ -114,4 +252,3 @@ public class M3UParser {
         return fileName;
     }
 }
-
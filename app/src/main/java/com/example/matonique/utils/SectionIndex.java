@@ -0,0 +1,101 @@
+package com.example.matonique.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Index des sections (lettres) d'une liste triée par nom, pour le défilement rapide (FastScrollBar)
+// calculé une seule fois hors du thread principal, puis gardé tant que la liste ne change pas
+// chaque section retient la position de sa premiere ligne : aller à "M" est une simple lecture de tableau
+// les noms commençant par un chiffre ou un symbole sont dans la section "#"
+// les sections sont toujours dans l'ordre "#", A..Z, quel que soit l'ordre de la liste
+public class SectionIndex {
+
+    private static final String OTHER_LABEL = "#";
+    // "#" puis les 26 lettres
+    private static final int SECTION_COUNT = 27;
+
+    private final String[] labels;
+    private final int[] positions;
+    private final int rowCount;
+
+    private SectionIndex(String[] labels, int[] positions, int rowCount) {
+        this.labels = labels;
+        this.positions = positions;
+        this.rowCount = rowCount;
+    }
+
+    // construire l'index à partir des noms dans l'ordre d'affichage
+    // chaque section pointe vers la premiere ligne qui a sa lettre : une lettre qui revient plus loin
+    // (musiques apres les sous-dossiers) ou qui arrive dans le désordre (tri de la base différent
+    // de l'ordre alphabétique) ne change pas l'ordre des sections
+    public static SectionIndex build(List<String> names) {
+        int[] firstPositions = new int[SECTION_COUNT];
+        Arrays.fill(firstPositions, -1);
+
+        String previous = null;
+        for (int i = 0; i < names.size(); i++) {
+            String label = labelOf(names.get(i));
+            if (label.equals(previous)) continue;
+            previous = label;
+            int section = sectionOf(label);
+            if (firstPositions[section] < 0) {
+                firstPositions[section] = i;
+            }
+        }
+
+        List<String> labels = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int section = 0; section < SECTION_COUNT; section++) {
+            if (firstPositions[section] >= 0) {
+                labels.add(section == 0 ? OTHER_LABEL : String.valueOf((char) ('A' + section - 1)));
+                positions.add(firstPositions[section]);
+            }
+        }
+
+        int[] positionArray = new int[positions.size()];
+        for (int i = 0; i < positionArray.length; i++) {
+            positionArray[i] = positions.get(i);
+        }
+        return new SectionIndex(labels.toArray(new String[0]), positionArray, names.size());
+    }
+
+    // numéro de section d'une lettre : 0 pour "#", puis 1 à 26 pour A..Z
+    private static int sectionOf(String label) {
+        return label.equals(OTHER_LABEL) ? 0 : label.charAt(0) - 'A' + 1;
+    }
+
+    // lettre de section d'un nom : premiere lettre sans accent, en majuscule ("École" -> "E")
+    static String labelOf(String name) {
+        if (name == null || name.isEmpty()) {
+            return OTHER_LABEL;
+        }
+        // on ne décompose que le début du nom, les accents sont séparés de leur lettre
+        String start = Normalizer.normalize(name.substring(0, Math.min(name.length(), 4)), Normalizer.Form.NFD);
+        char first = Character.toUpperCase(start.charAt(0));
+        if (first >= 'A' && first <= 'Z') {
+            return String.valueOf(first);
+        }
+        return OTHER_LABEL;
+    }
+
+    // nombre de sections
+    public int size() {
+        return labels.length;
+    }
+
+    // nombre de lignes de la liste indexée
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public String getLabel(int section) {
+        return labels[section];
+    }
+
+    // position de la premiere ligne d'une section
+    public int getPosition(int section) {
+        return positions[section];
+    }
+}
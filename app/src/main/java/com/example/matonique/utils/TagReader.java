@@ -0,0 +1,804 @@
+package com.example.matonique.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+// Lecteur de tags en Java pur, sans MediaMetadataRetriever
+// on ne lit que la zone des tags avec un FileChannel (quelques Ko par fichier) :
+// - mp3  : tag ID3v2 (trames texte seulement, les images sont sautées) puis ID3v1 si besoin,
+//          durée lue dans TLEN, l'en-tete Xing/VBRI ou estimée depuis le débit (CBR)
+// - flac : blocs METADATA_BLOCK (STREAMINFO pour la durée, VORBIS_COMMENT pour les tags)
+// - m4a  : atomes moov/mvhd (durée) et moov/udta/meta/ilst (tags)
+// - wav  : chunks fmt / data (durée) et LIST/INFO (tags)
+// pas de dépendance Android : testable sur la JVM
+public class TagReader {
+
+    // Tags lus dans un fichier, null pour les champs absents
+    public static class Tags {
+        private String title;
+        private String artist;
+        private String album;
+        private String albumArtist;
+        private String genre;
+        private String year;
+        private String trackNumber;
+        private String composer;
+        private String author;
+        private long durationMs;
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getArtist() {
+            return artist;
+        }
+
+        public String getAlbum() {
+            return album;
+        }
+
+        public String getAlbumArtist() {
+            return albumArtist;
+        }
+
+        public String getGenre() {
+            return genre;
+        }
+
+        public String getYear() {
+            return year;
+        }
+
+        public String getTrackNumber() {
+            return trackNumber;
+        }
+
+        public String getComposer() {
+            return composer;
+        }
+
+        public String getAuthor() {
+            return author;
+        }
+
+        // durée en ms, 0 si inconnue
+        public long getDurationMs() {
+            return durationMs;
+        }
+    }
+
+    // lire les tags d'un fichier audio
+    // retourne null si le format n'est pas reconnu (le fichier doit alors etre lu autrement)
+    public static Tags read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+
+    static Tags read(FileChannel channel) throws IOException {
+        ByteBuffer magic = readAt(channel, 0, 12);
+        if (magic == null) return null;
+
+        if (startsWith(magic, 0, "ID3")) {
+            // un tag ID3v2 peut aussi précéder un flac
+            int tagEnd = id3TagEnd(magic);
+            ByteBuffer next = readAt(channel, tagEnd, 4);
+            if (next != null && startsWith(next, 0, "fLaC")) {
+                return readFlac(channel, tagEnd);
+            }
+            return readMp3(channel);
+        }
+        if (startsWith(magic, 0, "fLaC")) {
+            return readFlac(channel, 0);
+        }
+        if (startsWith(magic, 4, "ftyp")) {
+            return readMp4(channel);
+        }
+        if (startsWith(magic, 0, "RIFF") && startsWith(magic, 8, "WAVE")) {
+            return readWav(channel);
+        }
+        if (isMpegFrameHeader(magic.getInt(0))) {
+            // mp3 sans tag ID3v2
+            return readMp3(channel);
+        }
+        return null;
+    }
+
+    // -------- MP3 / ID3 --------
+
+    private static Tags readMp3(FileChannel channel) throws IOException {
+        Tags tags = new Tags();
+        long audioStart = 0;
+
+        ByteBuffer header = readAt(channel, 0, 10);
+        if (header != null && startsWith(header, 0, "ID3")) {
+            audioStart = id3TagEnd(header);
+            readId3v2Frames(channel, header, tags);
+        }
+
+        long audioEnd = channel.size();
+        ByteBuffer v1 = channel.size() >= 128 ? readAt(channel, channel.size() - 128, 128) : null;
+        if (v1 != null && startsWith(v1, 0, "TAG")) {
+            audioEnd -= 128;
+            if (tags.title == null) {
+                readId3v1(v1, tags);
+            }
+        }
+
+        if (tags.durationMs <= 0) {
+            tags.durationMs = mpegDuration(channel, audioStart, audioEnd);
+        }
+        return tags;
+    }
+
+    // position de la fin du tag ID3v2 (en-tete de 10 octets + taille + footer éventuel)
+    private static int id3TagEnd(ByteBuffer header) {
+        int size = syncSafe(header, 6);
+        boolean footer = (header.get(5) & 0x10) != 0;
+        return 10 + size + (footer ? 10 : 0);
+    }
+
+    private static void readId3v2Frames(FileChannel channel, ByteBuffer header, Tags tags) throws IOException {
+        int version = header.get(3);
+        int flags = header.get(5) & 0xFF;
+        long end = 10 + syncSafe(header, 6);
+
+        // ID3v2.2 / 2.3 : la désynchronisation s'applique à tout le tag, on le lit en entier (rare)
+        if (version < 4 && (flags & 0x80) != 0) {
+            ByteBuffer tag = readAt(channel, 10, (int) (end - 10));
+            if (tag == null) return;
+            ByteBuffer clean = removeUnsynchronisation(tag);
+            readId3v2FramesFrom(new BufferSource(clean, -10), version, flags, 10 + clean.limit(), tags);
+            return;
+        }
+        readId3v2FramesFrom(new ChannelSource(channel), version, flags, end, tags);
+    }
+
+    private static void readId3v2FramesFrom(Source source, int version, int flags, long end, Tags tags) throws IOException {
+        long position = 10;
+
+        // en-tete étendu : on le saute
+        if ((flags & 0x40) != 0 && version >= 3) {
+            ByteBuffer extended = source.read(position, 4);
+            if (extended == null) return;
+            position += version == 4 ? syncSafe(extended, 0) : extended.getInt(0) + 4;
+        }
+
+        int idLength = version == 2 ? 3 : 4;
+        int headerLength = version == 2 ? 6 : 10;
+
+        while (position + headerLength <= end) {
+            ByteBuffer frameHeader = source.read(position, headerLength);
+            if (frameHeader == null || frameHeader.get(0) == 0) break; // padding
+
+            String id = ascii(frameHeader, 0, idLength);
+            int size;
+            int frameFlags = 0;
+            if (version == 2) {
+                size = ((frameHeader.get(3) & 0xFF) << 16) | ((frameHeader.get(4) & 0xFF) << 8) | (frameHeader.get(5) & 0xFF);
+            } else if (version == 3) {
+                size = frameHeader.getInt(4);
+            } else {
+                size = syncSafe(frameHeader, 4);
+                frameFlags = frameHeader.getShort(8) & 0xFFFF;
+            }
+            if (size <= 0 || position + headerLength + size > end) break;
+
+            String field = id3Field(id);
+            // trames compressées ou chiffrées : ignorées
+            boolean readable = (frameFlags & 0x000C) == 0;
+            if (field != null && readable) {
+                ByteBuffer data = source.read(position + headerLength, size);
+                if (data != null) {
+                    if ((frameFlags & 0x0002) != 0) {
+                        data = removeUnsynchronisation(data);
+                    }
+                    if ((frameFlags & 0x0001) != 0 && data.limit() >= 4) {
+                        // indicateur de longueur des données en tete de trame
+                        data.position(4);
+                        data = data.slice();
+                    }
+                    setId3Field(tags, field, decodeId3Text(data));
+                }
+            }
+            position += headerLength + size;
+        }
+    }
+
+    // champ de Tags correspondant à un identifiant de trame ID3v2 (2.2, 2.3 et 2.4)
+    private static String id3Field(String id) {
+        switch (id) {
+            case "TIT2": case "TT2": return "title";
+            case "TPE1": case "TP1": return "artist";
+            case "TALB": case "TAL": return "album";
+            case "TPE2": case "TP2": return "albumArtist";
+            case "TCON": case "TCO": return "genre";
+            case "TYER": case "TYE": case "TDRC": return "year";
+            case "TRCK": case "TRK": return "track";
+            case "TCOM": case "TCM": return "composer";
+            case "TEXT": case "TXT": return "author";
+            case "TLEN": case "TLE": return "length";
+            default: return null;
+        }
+    }
+
+    private static void setId3Field(Tags tags, String field, String value) {
+        if (value == null) return;
+        switch (field) {
+            case "title": tags.title = value; break;
+            case "artist": tags.artist = value; break;
+            case "album": tags.album = value; break;
+            case "albumArtist": tags.albumArtist = value; break;
+            case "genre": tags.genre = id3Genre(value); break;
+            case "year": tags.year = yearOf(value); break;
+            case "track": tags.trackNumber = value; break;
+            case "composer": tags.composer = value; break;
+            case "author": tags.author = value; break;
+            case "length":
+                try {
+                    tags.durationMs = Long.parseLong(value.trim());
+                } catch (NumberFormatException e) {
+                    tags.durationMs = 0;
+                }
+                break;
+        }
+    }
+
+    // trame texte : 1 octet d'encodage puis le texte (plusieurs valeurs séparées par \0 en 2.4, on garde la premiere)
+    private static String decodeId3Text(ByteBuffer data) {
+        if (data.limit() < 2) return null;
+
+        int encoding = data.get(0);
+        Charset charset;
+        switch (encoding) {
+            case 1: charset = StandardCharsets.UTF_16; break;   // avec BOM
+            case 2: charset = StandardCharsets.UTF_16BE; break;
+            case 3: charset = StandardCharsets.UTF_8; break;
+            default: charset = StandardCharsets.ISO_8859_1; break;
+        }
+
+        byte[] bytes = new byte[data.limit() - 1];
+        data.position(1);
+        data.get(bytes);
+
+        String text = new String(bytes, charset);
+        int nul = text.indexOf('\0');
+        if (nul >= 0) {
+            text = text.substring(0, nul);
+        }
+        text = text.trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    // "(17)", "(17)Rock" ou "17" -> nom du genre ID3v1
+    private static String id3Genre(String value) {
+        String number = value;
+        if (value.startsWith("(")) {
+            int close = value.indexOf(')');
+            if (close < 0) return value;
+            if (close < value.length() - 1) {
+                return value.substring(close + 1);
+            }
+            number = value.substring(1, close);
+        }
+        try {
+            int index = Integer.parseInt(number);
+            return index >= 0 && index < ID3V1_GENRES.length ? ID3V1_GENRES[index] : value;
+        } catch (NumberFormatException e) {
+            return value;
+        }
+    }
+
+    // tag ID3v1 : 128 octets à la fin du fichier
+    private static void readId3v1(ByteBuffer v1, Tags tags) {
+        tags.title = latin1Field(v1, 3, 30);
+        tags.artist = latin1Field(v1, 33, 30);
+        tags.album = latin1Field(v1, 63, 30);
+        tags.year = latin1Field(v1, 93, 4);
+        // ID3v1.1 : numéro de piste dans le dernier octet du commentaire
+        if (v1.get(125) == 0 && v1.get(126) != 0) {
+            tags.trackNumber = String.valueOf(v1.get(126) & 0xFF);
+        }
+        int genre = v1.get(127) & 0xFF;
+        if (genre < ID3V1_GENRES.length) {
+            tags.genre = ID3V1_GENRES[genre];
+        }
+    }
+
+    // durée d'un flux MPEG audio : en-tete Xing / VBRI si présent, sinon débit constant
+    private static long mpegDuration(FileChannel channel, long audioStart, long audioEnd) throws IOException {
+        // on cherche la premiere trame dans les premiers Ko apres le tag (padding éventuel)
+        ByteBuffer buffer = readAt(channel, audioStart, (int) Math.min(16 * 1024, audioEnd - audioStart));
+        if (buffer == null) return 0;
+
+        for (int offset = 0; offset + 4 <= buffer.limit(); offset++) {
+            int header = buffer.getInt(offset);
+            if (!isMpegFrameHeader(header)) continue;
+
+            int versionBits = (header >>> 19) & 0x3;   // 3 = MPEG1, 2 = MPEG2, 0 = MPEG2.5
+            int layerBits = (header >>> 17) & 0x3;     // 1 = layer III
+            int bitrateIndex = (header >>> 12) & 0xF;
+            int sampleRateIndex = (header >>> 10) & 0x3;
+            int channelMode = (header >>> 6) & 0x3;    // 3 = mono
+            boolean mpeg1 = versionBits == 3;
+
+            int sampleRate = MPEG_SAMPLE_RATES[sampleRateIndex] >> (mpeg1 ? 0 : versionBits == 2 ? 1 : 2);
+            int samplesPerFrame = layerBits == 3 ? 384 : (layerBits == 1 && !mpeg1) ? 576 : 1152;
+
+            // en-tete Xing / Info (VBR) juste apres les "side info"
+            int sideInfo = mpeg1 ? (channelMode == 3 ? 17 : 32) : (channelMode == 3 ? 9 : 17);
+            int xing = offset + 4 + sideInfo;
+            if (xing + 12 <= buffer.limit()
+                    && (startsWith(buffer, xing, "Xing") || startsWith(buffer, xing, "Info"))
+                    && (buffer.getInt(xing + 4) & 0x1) != 0) {
+                long frames = buffer.getInt(xing + 8) & 0xFFFFFFFFL;
+                return frames * samplesPerFrame * 1000 / sampleRate;
+            }
+            // en-tete VBRI (Fraunhofer) à 32 octets apres l'en-tete de trame
+            int vbri = offset + 4 + 32;
+            if (vbri + 18 <= buffer.limit() && startsWith(buffer, vbri, "VBRI")) {
+                long frames = buffer.getInt(vbri + 14) & 0xFFFFFFFFL;
+                return frames * samplesPerFrame * 1000 / sampleRate;
+            }
+
+            // débit constant : taille des données / débit
+            int bitrate = mpegBitrate(mpeg1, layerBits, bitrateIndex);
+            if (bitrate <= 0) return 0;
+            long audioBytes = audioEnd - (audioStart + offset);
+            return audioBytes * 8 / bitrate;
+        }
+        return 0;
+    }
+
+    private static boolean isMpegFrameHeader(int header) {
+        return (header & 0xFFE00000) == 0xFFE00000     // synchro
+                && ((header >>> 19) & 0x3) != 1         // version réservée
+                && ((header >>> 17) & 0x3) != 0         // couche réservée
+                && ((header >>> 12) & 0xF) != 0xF       // débit invalide
+                && ((header >>> 12) & 0xF) != 0         // débit libre (non géré)
+                && ((header >>> 10) & 0x3) != 3;        // fréquence réservée
+    }
+
+    // débit en kbit/s = bits par ms
+    private static int mpegBitrate(boolean mpeg1, int layerBits, int index) {
+        if (mpeg1) {
+            switch (layerBits) {
+                case 3: return MPEG1_LAYER1_BITRATES[index];
+                case 2: return MPEG1_LAYER2_BITRATES[index];
+                default: return MPEG1_LAYER3_BITRATES[index];
+            }
+        }
+        return layerBits == 3 ? MPEG2_LAYER1_BITRATES[index] : MPEG2_LAYER23_BITRATES[index];
+    }
+
+    // -------- FLAC --------
+
+    private static Tags readFlac(FileChannel channel, long start) throws IOException {
+        Tags tags = new Tags();
+        long position = start + 4;
+
+        while (true) {
+            ByteBuffer blockHeader = readAt(channel, position, 4);
+            if (blockHeader == null) break;
+
+            int flags = blockHeader.get(0) & 0xFF;
+            boolean last = (flags & 0x80) != 0;
+            int type = flags & 0x7F;
+            int length = blockHeader.getInt(0) & 0xFFFFFF;
+
+            if (type == 0) {
+                // STREAMINFO : fréquence (20 bits) et nombre total d'échantillons (36 bits) à partir de l'octet 10
+                ByteBuffer info = readAt(channel, position + 4, 18);
+                if (info != null) {
+                    long bits = info.getLong(10);
+                    long sampleRate = bits >>> 44;
+                    long totalSamples = bits & 0xFFFFFFFFFL;
+                    if (sampleRate > 0) {
+                        tags.durationMs = totalSamples * 1000 / sampleRate;
+                    }
+                }
+            } else if (type == 4) {
+                ByteBuffer comments = readAt(channel, position + 4, length);
+                if (comments != null) {
+                    readVorbisComments(comments, tags);
+                }
+            }
+            // les autres blocs (images, seektable, padding...) sont sautés
+
+            position += 4 + length;
+            if (last) break;
+        }
+        return tags;
+    }
+
+    // VORBIS_COMMENT : longueurs en little-endian, commentaires "CLE=valeur"
+    private static void readVorbisComments(ByteBuffer block, Tags tags) {
+        block.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            int vendorLength = block.getInt(0);
+            int position = 4 + vendorLength;
+            int count = block.getInt(position);
+            position += 4;
+
+            for (int i = 0; i < count; i++) {
+                int length = block.getInt(position);
+                position += 4;
+                if (length < 0 || position + length > block.limit()) break;
+
+                String comment = new String(block.array(), block.arrayOffset() + position, length, StandardCharsets.UTF_8);
+                position += length;
+
+                int equals = comment.indexOf('=');
+                if (equals <= 0) continue;
+                String key = comment.substring(0, equals).toUpperCase(java.util.Locale.ROOT);
+                String value = comment.substring(equals + 1).trim();
+                if (value.isEmpty()) continue;
+
+                switch (key) {
+                    case "TITLE": tags.title = firstValue(tags.title, value); break;
+                    case "ARTIST": tags.artist = firstValue(tags.artist, value); break;
+                    case "ALBUM": tags.album = firstValue(tags.album, value); break;
+                    case "ALBUMARTIST": case "ALBUM ARTIST": tags.albumArtist = firstValue(tags.albumArtist, value); break;
+                    case "GENRE": tags.genre = firstValue(tags.genre, value); break;
+                    case "DATE": case "YEAR": tags.year = firstValue(tags.year, yearOf(value)); break;
+                    case "TRACKNUMBER": tags.trackNumber = firstValue(tags.trackNumber, value); break;
+                    case "COMPOSER": tags.composer = firstValue(tags.composer, value); break;
+                    case "AUTHOR": case "LYRICIST": tags.author = firstValue(tags.author, value); break;
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // bloc tronqué : on garde ce qui a été lu
+        }
+    }
+
+    // -------- MP4 / M4A --------
+
+    private static Tags readMp4(FileChannel channel) throws IOException {
+        Tags tags = new Tags();
+        long[] moov = findAtom(channel, 0, channel.size(), "moov");
+        if (moov == null) return tags;
+
+        long[] mvhd = findAtom(channel, moov[0], moov[1], "mvhd");
+        if (mvhd != null) {
+            ByteBuffer header = readAt(channel, mvhd[0], 32);
+            if (header != null) {
+                int version = header.get(0);
+                long timescale;
+                long duration;
+                if (version == 1) {
+                    timescale = header.getInt(20) & 0xFFFFFFFFL;
+                    duration = header.getLong(24);
+                } else {
+                    timescale = header.getInt(12) & 0xFFFFFFFFL;
+                    duration = header.getInt(16) & 0xFFFFFFFFL;
+                }
+                if (timescale > 0) {
+                    tags.durationMs = duration * 1000 / timescale;
+                }
+            }
+        }
+
+        long[] udta = findAtom(channel, moov[0], moov[1], "udta");
+        if (udta == null) return tags;
+        long[] meta = findAtom(channel, udta[0], udta[1], "meta");
+        if (meta == null) return tags;
+
+        // "meta" est une full box (4 octets de version / flags), sauf dans certains fichiers QuickTime
+        long metaStart = meta[0];
+        ByteBuffer peek = readAt(channel, metaStart, 8);
+        if (peek != null && !startsWith(peek, 4, "hdlr")) {
+            metaStart += 4;
+        }
+        long[] ilst = findAtom(channel, metaStart, meta[1], "ilst");
+        if (ilst == null) return tags;
+
+        // chaque élément de ilst contient un atome "data" : type (4), locale (4), valeur
+        long position = ilst[0];
+        while (position + 8 <= ilst[1]) {
+            ByteBuffer itemHeader = readAt(channel, position, 8);
+            if (itemHeader == null) break;
+            long size = itemHeader.getInt(0) & 0xFFFFFFFFL;
+            if (size < 8) break;
+            String type = latin1(itemHeader, 4, 4);
+
+            String field = mp4Field(type);
+            if (field != null && size <= 64 * 1024) {
+                ByteBuffer item = readAt(channel, position + 8, (int) size - 8);
+                if (item != null && item.limit() >= 16 && startsWith(item, 4, "data")) {
+                    int dataLength = Math.min(item.getInt(0), item.limit()) - 16;
+                    if (dataLength > 0) {
+                        setMp4Field(tags, field, item, 16, dataLength);
+                    }
+                }
+            }
+            position += size;
+        }
+        return tags;
+    }
+
+    private static String mp4Field(String type) {
+        switch (type) {
+            case "©nam": return "title";
+            case "©ART": return "artist";
+            case "©alb": return "album";
+            case "aART": return "albumArtist";
+            case "©gen": return "genre";
+            case "gnre": return "genreId";
+            case "©day": return "year";
+            case "trkn": return "track";
+            case "©wrt": return "composer";
+            default: return null;
+        }
+    }
+
+    private static void setMp4Field(Tags tags, String field, ByteBuffer item, int offset, int length) {
+        switch (field) {
+            case "genreId":
+                // numéro de genre ID3v1 + 1
+                if (length >= 2) {
+                    int index = (item.getShort(offset) & 0xFFFF) - 1;
+                    if (index >= 0 && index < ID3V1_GENRES.length) {
+                        tags.genre = ID3V1_GENRES[index];
+                    }
+                }
+                return;
+            case "track":
+                // 2 octets vides, numéro de piste, nombre de pistes
+                if (length >= 4) {
+                    int track = item.getShort(offset + 2) & 0xFFFF;
+                    if (track > 0) {
+                        tags.trackNumber = String.valueOf(track);
+                    }
+                }
+                return;
+        }
+
+        String value = new String(item.array(), item.arrayOffset() + offset, length, StandardCharsets.UTF_8).trim();
+        if (value.isEmpty()) return;
+        switch (field) {
+            case "title": tags.title = value; break;
+            case "artist": tags.artist = value; break;
+            case "album": tags.album = value; break;
+            case "albumArtist": tags.albumArtist = value; break;
+            case "genre": tags.genre = value; break;
+            case "year": tags.year = yearOf(value); break;
+            case "composer": tags.composer = value; break;
+        }
+    }
+
+    // chercher un atome parmi les enfants de [start, end[
+    // retourne {début du contenu, fin de l'atome}, null si absent
+    private static long[] findAtom(FileChannel channel, long start, long end, String type) throws IOException {
+        long position = start;
+        while (position + 8 <= end) {
+            ByteBuffer header = readAt(channel, position, 16);
+            if (header == null) header = readAt(channel, position, 8);
+            if (header == null) return null;
+
+            long size = header.getInt(0) & 0xFFFFFFFFL;
+            int headerLength = 8;
+            if (size == 1) {
+                // taille sur 64 bits
+                if (header.limit() < 16) return null;
+                size = header.getLong(8);
+                headerLength = 16;
+            } else if (size == 0) {
+                // l'atome va jusqu'à la fin
+                size = end - position;
+            }
+            if (size < headerLength) return null;
+
+            if (startsWith(header, 4, type)) {
+                return new long[]{position + headerLength, Math.min(position + size, end)};
+            }
+            position += size;
+        }
+        return null;
+    }
+
+    // -------- WAV --------
+
+    private static Tags readWav(FileChannel channel) throws IOException {
+        Tags tags = new Tags();
+        long byteRate = 0;
+        long dataSize = 0;
+
+        long position = 12;
+        while (position + 8 <= channel.size()) {
+            ByteBuffer chunkHeader = readAt(channel, position, 8);
+            if (chunkHeader == null) break;
+            chunkHeader.order(ByteOrder.LITTLE_ENDIAN);
+            long size = chunkHeader.getInt(4) & 0xFFFFFFFFL;
+
+            if (startsWith(chunkHeader, 0, "fmt ")) {
+                ByteBuffer format = readAt(channel, position + 8, 16);
+                if (format != null) {
+                    format.order(ByteOrder.LITTLE_ENDIAN);
+                    byteRate = format.getInt(8) & 0xFFFFFFFFL;
+                }
+            } else if (startsWith(chunkHeader, 0, "data")) {
+                dataSize = Math.min(size, channel.size() - position - 8);
+            } else if (startsWith(chunkHeader, 0, "LIST") && size >= 4 && size <= 64 * 1024) {
+                ByteBuffer list = readAt(channel, position + 8, (int) size);
+                if (list != null && startsWith(list, 0, "INFO")) {
+                    readRiffInfo(list, tags);
+                }
+            }
+            // les chunks sont alignés sur 2 octets
+            position += 8 + size + (size & 1);
+        }
+
+        if (byteRate > 0) {
+            tags.durationMs = dataSize * 1000 / byteRate;
+        }
+        return tags;
+    }
+
+    private static void readRiffInfo(ByteBuffer list, Tags tags) {
+        list.order(ByteOrder.LITTLE_ENDIAN);
+        int position = 4;
+        while (position + 8 <= list.limit()) {
+            String id = ascii(list, position, 4);
+            int size = list.getInt(position + 4);
+            if (size < 0 || position + 8 + size > list.limit()) break;
+
+            String value = latin1Field(list, position + 8, size);
+            if (value != null) {
+                switch (id) {
+                    case "INAM": tags.title = value; break;
+                    case "IART": tags.artist = value; break;
+                    case "IPRD": tags.album = value; break;
+                    case "IGNR": tags.genre = value; break;
+                    case "ICRD": tags.year = yearOf(value); break;
+                    case "ITRK": tags.trackNumber = value; break;
+                }
+            }
+            position += 8 + size + (size & 1);
+        }
+    }
+
+    // -------- Lecture --------
+
+    // source des octets d'un tag ID3v2 : le fichier, ou le tag déja lu en mémoire
+    private interface Source {
+        ByteBuffer read(long position, int length) throws IOException;
+    }
+
+    private static class ChannelSource implements Source {
+        private final FileChannel channel;
+
+        ChannelSource(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public ByteBuffer read(long position, int length) throws IOException {
+            return readAt(channel, position, length);
+        }
+    }
+
+    private static class BufferSource implements Source {
+        private final ByteBuffer buffer;
+        private final long offset; // position du buffer dans le fichier, en négatif
+
+        BufferSource(ByteBuffer buffer, long offset) {
+            this.buffer = buffer;
+            this.offset = offset;
+        }
+
+        @Override
+        public ByteBuffer read(long position, int length) {
+            int start = (int) (position + offset);
+            if (start < 0 || start + length > buffer.limit()) return null;
+            ByteBuffer slice = ByteBuffer.allocate(length);
+            slice.put(buffer.array(), buffer.arrayOffset() + start, length);
+            slice.flip();
+            return slice;
+        }
+    }
+
+    // lire length octets à une position donnée, null si le fichier est trop court
+    private static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+        if (length < 0 || position < 0) return null;
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) return null;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // enlever les octets 0x00 insérés apres chaque 0xFF (désynchronisation ID3)
+    private static ByteBuffer removeUnsynchronisation(ByteBuffer data) {
+        byte[] out = new byte[data.limit()];
+        int length = 0;
+        for (int i = 0; i < data.limit(); i++) {
+            byte b = data.get(i);
+            out[length++] = b;
+            if (b == (byte) 0xFF && i + 1 < data.limit() && data.get(i + 1) == 0) {
+                i++;
+            }
+        }
+        return ByteBuffer.wrap(out, 0, length).slice();
+    }
+
+    // entier "syncsafe" d'ID3v2 : 4 octets de 7 bits
+    private static int syncSafe(ByteBuffer buffer, int offset) {
+        return ((buffer.get(offset) & 0x7F) << 21) | ((buffer.get(offset + 1) & 0x7F) << 14)
+                | ((buffer.get(offset + 2) & 0x7F) << 7) | (buffer.get(offset + 3) & 0x7F);
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int offset, String text) {
+        if (offset + text.length() > buffer.limit()) return false;
+        for (int i = 0; i < text.length(); i++) {
+            if ((buffer.get(offset + i) & 0xFF) != text.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static String ascii(ByteBuffer buffer, int offset, int length) {
+        return latin1(buffer, offset, length);
+    }
+
+    private static String latin1(ByteBuffer buffer, int offset, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (buffer.get(offset + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    // champ texte de taille fixe, terminé par des \0 ou des espaces
+    private static String latin1Field(ByteBuffer buffer, int offset, int length) {
+        String value = latin1(buffer, offset, length);
+        int nul = value.indexOf('\0');
+        if (nul >= 0) {
+            value = value.substring(0, nul);
+        }
+        value = value.trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // "2019-04-12" -> "2019"
+    private static String yearOf(String date) {
+        String value = date.trim();
+        return value.length() > 4 && Character.isDigit(value.charAt(0)) ? value.substring(0, 4) : value;
+    }
+
+    // plusieurs commentaires avec la meme clé : on garde le premier
+    private static String firstValue(String current, String value) {
+        return current != null ? current : value;
+    }
+
+    // -------- Tables --------
+
+    private static final int[] MPEG_SAMPLE_RATES = {44100, 48000, 32000};
+
+    private static final int[] MPEG1_LAYER1_BITRATES = {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448, 0};
+    private static final int[] MPEG1_LAYER2_BITRATES = {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384, 0};
+    private static final int[] MPEG1_LAYER3_BITRATES = {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 0};
+    private static final int[] MPEG2_LAYER1_BITRATES = {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256, 0};
+    private static final int[] MPEG2_LAYER23_BITRATES = {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160, 0};
+
+    // genres ID3v1 standards (utilisés aussi par l'atome "gnre" des m4a)
+    private static final String[] ID3V1_GENRES = {
+            "Blues", "Classic Rock", "Country", "Dance", "Disco", "Funk", "Grunge", "Hip-Hop",
+            "Jazz", "Metal", "New Age", "Oldies", "Other", "Pop", "R&B", "Rap",
+            "Reggae", "Rock", "Techno", "Industrial", "Alternative", "Ska", "Death Metal", "Pranks",
+            "Soundtrack", "Euro-Techno", "Ambient", "Trip-Hop", "Vocal", "Jazz+Funk", "Fusion", "Trance",
+            "Classical", "Instrumental", "Acid", "House", "Game", "Sound Clip", "Gospel", "Noise",
+            "AlternRock", "Bass", "Soul", "Punk", "Space", "Meditative", "Instrumental Pop", "Instrumental Rock",
+            "Ethnic", "Gothic", "Darkwave", "Techno-Industrial", "Electronic", "Pop-Folk", "Eurodance", "Dream",
+            "Southern Rock", "Comedy", "Cult", "Gangsta", "Top 40", "Christian Rap", "Pop/Funk", "Jungle",
+            "Native American", "Cabaret", "New Wave", "Psychadelic", "Rave", "Showtunes", "Trailer", "Lo-Fi",
+            "Tribal", "Acid Punk", "Acid Jazz", "Polka", "Retro", "Musical", "Rock & Roll", "Hard Rock"
+    };
+}
@@ -0,0 +1,130 @@
+package com.example.matonique.views;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.matonique.utils.SectionIndex;
+
+// Barre de lettres sur le bord de la liste pour le défilement rapide (A..Z)
+// toucher ou glisser sur une lettre affiche la bulle de la lettre et saute directement à sa premiere ligne :
+// la position vient de SectionIndex (calculé à l'avance), le saut est un seul scrollToPositionWithOffset
+// sans défilement animé ni passes de layout intermédiaires
+// la barre n'est visible que pour les longues listes triées par nom (voir setSections)
+public class FastScrollBar extends View {
+
+    // en dessous de ce nombre de lignes, le défilement normal suffit
+    private static final int MIN_ROWS = 100;
+    // delai avant de cacher la bulle quand on lache la barre
+    private static final long BUBBLE_HIDE_DELAY_MS = 600;
+
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Runnable hideBubble = this::hideBubble;
+
+    private RecyclerView recyclerView;
+    private TextView bubble;
+    private SectionIndex sections;
+    private int currentSection = -1;
+
+    public FastScrollBar(Context context) {
+        this(context, null);
+    }
+
+    public FastScrollBar(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        textPaint.setColor(Color.GRAY);
+        textPaint.setFakeBoldText(true);
+        textPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 11,
+                getResources().getDisplayMetrics()));
+        setVisibility(GONE);
+    }
+
+    // liste à faire défiler et bulle affichant la lettre en cours (peut etre null)
+    public void attachTo(RecyclerView recyclerView, TextView bubble) {
+        this.recyclerView = recyclerView;
+        this.bubble = bubble;
+    }
+
+    // sections de la liste affichée, null si elle n'est pas triée par nom
+    public void setSections(SectionIndex sections) {
+        this.sections = sections;
+        currentSection = -1;
+        hideBubble();
+        boolean visible = sections != null && sections.size() > 1 && sections.getRowCount() >= MIN_ROWS;
+        setVisibility(visible ? VISIBLE : GONE);
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (sections == null || sections.size() == 0) return;
+
+        float slot = (float) getHeight() / sections.size();
+        float x = getWidth() / 2f;
+        // texte centré verticalement dans sa case
+        float baseline = slot / 2f - (textPaint.descent() + textPaint.ascent()) / 2f;
+        for (int i = 0; i < sections.size(); i++) {
+            canvas.drawText(sections.getLabel(i), x, i * slot + baseline, textPaint);
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (sections == null || sections.size() == 0 || recyclerView == null) {
+            return false;
+        }
+
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                // la liste ne doit pas récupérer le geste pendant qu'on glisse sur la barre
+                getParent().requestDisallowInterceptTouchEvent(true);
+                removeCallbacks(hideBubble);
+                recyclerView.stopScroll();
+                // pas de break : on saute aussi à la lettre touchée
+            case MotionEvent.ACTION_MOVE:
+                int section = (int) (event.getY() / getHeight() * sections.size());
+                jumpToSection(Math.max(0, Math.min(section, sections.size() - 1)));
+                return true;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                currentSection = -1;
+                postDelayed(hideBubble, BUBBLE_HIDE_DELAY_MS);
+                return true;
+            default:
+                return super.onTouchEvent(event);
+        }
+    }
+
+    private void jumpToSection(int section) {
+        if (section == currentSection) return;
+        currentSection = section;
+
+        int position = Math.min(sections.getPosition(section), recyclerView.getAdapter().getItemCount() - 1);
+        if (position >= 0 && recyclerView.getLayoutManager() instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) recyclerView.getLayoutManager()).scrollToPositionWithOffset(position, 0);
+        }
+
+        if (bubble != null) {
+            bubble.setText(sections.getLabel(section));
+            bubble.setVisibility(VISIBLE);
+        }
+    }
+
+    private void hideBubble() {
+        removeCallbacks(hideBubble);
+        if (bubble != null) {
+            bubble.setVisibility(GONE);
+        }
+    }
+}
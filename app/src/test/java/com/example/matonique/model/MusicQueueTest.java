@@ -0,0 +1,68 @@
+package com.example.matonique.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests de l'édition de la queue avec des musiques en double (meme chemin à plusieurs positions).
+ */
+public class MusicQueueTest {
+
+    @Test
+    public void removeInShuffleRemovesTheSameOriginalEntry() {
+        MusicQueue queue = new MusicQueue();
+        queue.setFromPlaylist(Arrays.asList("a", "b", "a", "c"), "b");
+        queue.setShuffle(true, 42);
+
+        // la musique actuelle est en premier : l'ajout arrive en position 1,
+        // et juste apres "b" dans l'ordre d'origine
+        queue.addNext("a");
+        assertEquals(Arrays.asList("a", "b", "a", "a", "c"), queue.getOriginalOrder());
+
+        assertTrue(queue.remove(1));
+        assertEquals(Arrays.asList("a", "b", "a", "c"), queue.getOriginalOrder());
+
+        queue.setShuffle(false);
+        assertEquals(Arrays.asList("a", "b", "a", "c"), queue.getPaths());
+        assertEquals(1, queue.getCurrentIndex());
+    }
+
+    @Test
+    public void leavingShuffleKeepsTheCurrentEntry() {
+        MusicQueue queue = new MusicQueue();
+        queue.restore(MusicQueue.QueueType.PLAYLIST, Arrays.asList("a", "b", "a"), null, 2, false, 0, false);
+
+        queue.setShuffle(true, 7);
+        queue.setShuffle(false);
+
+        // la deuxieme occurrence de "a", pas la premiere
+        assertEquals(2, queue.getCurrentIndex());
+    }
+
+    @Test
+    public void indexOfFollowsEdits() {
+        MusicQueue queue = new MusicQueue();
+        queue.setFromPlaylist(Arrays.asList("a", "b", "a", "c"), "c");
+        assertEquals(0, queue.indexOf("a"));
+
+        assertTrue(queue.remove(0));
+        assertEquals(1, queue.indexOf("a"));
+        assertEquals(0, queue.indexOf("b"));
+
+        assertTrue(queue.move(2, 0)); // c, b, a
+        assertEquals(0, queue.indexOf("c"));
+        assertEquals(2, queue.indexOf("a"));
+
+        queue.addNext("b"); // c, b, b, a
+        assertEquals(1, queue.indexOf("b"));
+        assertEquals(3, queue.indexOf("a"));
+
+        queue.enqueue(Arrays.asList("d", "a"));
+        assertEquals(4, queue.indexOf("d"));
+        assertEquals(3, queue.indexOf("a"));
+        assertEquals(-1, queue.indexOf("e"));
+    }
+}
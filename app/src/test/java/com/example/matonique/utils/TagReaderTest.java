@@ -0,0 +1,203 @@
+package com.example.matonique.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests du lecteur de tags sur des fichiers générés (en-tetes et tags seulement, pas de vrai son).
+ */
+public class TagReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsId3v23TagsAndCbrDuration() throws IOException {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        frames.write(id3Frame("TIT2", latin1Text("Titre")));
+        frames.write(id3Frame("TPE1", utf16Text("Élève")));
+        frames.write(id3Frame("TALB", latin1Text("Album")));
+        frames.write(id3Frame("TPE2", latin1Text("Artiste de l'album")));
+        frames.write(id3Frame("TRCK", latin1Text("3/12")));
+        frames.write(id3Frame("TCON", latin1Text("(17)")));
+        frames.write(id3Frame("TYER", latin1Text("2019")));
+        // une image de 64 Ko qui doit etre sautée
+        frames.write(id3Frame("APIC", new byte[64 * 1024]));
+        frames.write(new byte[256]); // padding
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write(new byte[]{'I', 'D', '3', 3, 0, 0});
+        file.write(syncSafe(frames.size()));
+        file.write(frames.toByteArray());
+
+        // 100 trames MPEG1 layer III, 128 kbit/s, 44100 Hz (417 octets chacune)
+        byte[] frame = new byte[417];
+        ByteBuffer.wrap(frame).putInt(0xFFFB9000);
+        for (int i = 0; i < 100; i++) {
+            file.write(frame);
+        }
+
+        TagReader.Tags tags = TagReader.read(write("test.mp3", file.toByteArray()));
+
+        assertNotNull(tags);
+        assertEquals("Titre", tags.getTitle());
+        assertEquals("Élève", tags.getArtist());
+        assertEquals("Album", tags.getAlbum());
+        assertEquals("Artiste de l'album", tags.getAlbumArtist());
+        assertEquals("3/12", tags.getTrackNumber());
+        assertEquals("Rock", tags.getGenre());
+        assertEquals("2019", tags.getYear());
+        assertEquals(100 * 417 * 8 / 128, tags.getDurationMs());
+    }
+
+    @Test
+    public void readsFlacVorbisCommentsAndStreamInfo() throws IOException {
+        // STREAMINFO : 44100 Hz, 2 canaux, 16 bits, 441000 échantillons
+        ByteBuffer streamInfo = ByteBuffer.allocate(34);
+        streamInfo.position(10);
+        streamInfo.putLong((44100L << 44) | (1L << 41) | (15L << 36) | 441000L);
+
+        ByteArrayOutputStream comments = new ByteArrayOutputStream();
+        comments.write(littleEndian(6));
+        comments.write("vendor".getBytes(StandardCharsets.UTF_8));
+        String[] values = {"TITLE=Été indien", "artist=Joe Dassin", "DATE=1975-06-01", "TRACKNUMBER=7", "GENRE=Chanson"};
+        comments.write(littleEndian(values.length));
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            comments.write(littleEndian(bytes.length));
+            comments.write(bytes);
+        }
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write("fLaC".getBytes(StandardCharsets.US_ASCII));
+        file.write(flacBlock(0, false, streamInfo.array()));
+        file.write(flacBlock(6, false, new byte[32 * 1024])); // image sautée
+        file.write(flacBlock(4, true, comments.toByteArray()));
+
+        TagReader.Tags tags = TagReader.read(write("test.flac", file.toByteArray()));
+
+        assertNotNull(tags);
+        assertEquals("Été indien", tags.getTitle());
+        assertEquals("Joe Dassin", tags.getArtist());
+        assertEquals("1975", tags.getYear());
+        assertEquals("7", tags.getTrackNumber());
+        assertEquals("Chanson", tags.getGenre());
+        assertEquals(10000, tags.getDurationMs());
+    }
+
+    @Test
+    public void readsMp4IlstAtomsAndMvhdDuration() throws IOException {
+        ByteBuffer mvhd = ByteBuffer.allocate(100);
+        mvhd.putInt(12, 1000);   // timescale
+        mvhd.putInt(16, 215000); // durée
+
+        byte[] trkn = new byte[8];
+        ByteBuffer.wrap(trkn).putShort(2, (short) 4).putShort(4, (short) 10);
+
+        byte[] ilst = concat(
+                atom("©nam", dataAtom(1, "Chanson".getBytes(StandardCharsets.UTF_8))),
+                atom("©ART", dataAtom(1, "Artiste".getBytes(StandardCharsets.UTF_8))),
+                atom("©alb", dataAtom(1, "Disque".getBytes(StandardCharsets.UTF_8))),
+                atom("trkn", dataAtom(0, trkn)),
+                atom("covr", dataAtom(13, new byte[16 * 1024])));
+        byte[] meta = concat(new byte[4], atom("hdlr", new byte[25]), atom("ilst", ilst));
+        byte[] moov = concat(atom("mvhd", mvhd.array()), atom("udta", atom("meta", meta)));
+
+        byte[] file = concat(
+                atom("ftyp", "M4A \0\0\0\0".getBytes(StandardCharsets.US_ASCII)),
+                atom("mdat", new byte[8 * 1024]),
+                atom("moov", moov));
+
+        TagReader.Tags tags = TagReader.read(write("test.m4a", file));
+
+        assertNotNull(tags);
+        assertEquals("Chanson", tags.getTitle());
+        assertEquals("Artiste", tags.getArtist());
+        assertEquals("Disque", tags.getAlbum());
+        assertEquals("4", tags.getTrackNumber());
+        assertEquals(215000, tags.getDurationMs());
+    }
+
+    @Test
+    public void returnsNullForUnknownFormat() throws IOException {
+        assertNull(TagReader.read(write("test.txt", "pas un fichier audio".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    // -------- Génération des fichiers --------
+
+    private File write(String name, byte[] content) throws IOException {
+        File file = folder.newFile(name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content);
+        }
+        return file;
+    }
+
+    private static byte[] id3Frame(String id, byte[] data) {
+        ByteBuffer frame = ByteBuffer.allocate(10 + data.length);
+        frame.put(id.getBytes(StandardCharsets.US_ASCII));
+        frame.putInt(data.length);
+        frame.putShort((short) 0);
+        frame.put(data);
+        return frame.array();
+    }
+
+    private static byte[] latin1Text(String text) {
+        return concat(new byte[]{0}, text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static byte[] utf16Text(String text) {
+        return concat(new byte[]{1}, text.getBytes(StandardCharsets.UTF_16), new byte[2]);
+    }
+
+    private static byte[] syncSafe(int value) {
+        return new byte[]{(byte) ((value >> 21) & 0x7F), (byte) ((value >> 14) & 0x7F),
+                (byte) ((value >> 7) & 0x7F), (byte) (value & 0x7F)};
+    }
+
+    private static byte[] flacBlock(int type, boolean last, byte[] data) {
+        ByteBuffer block = ByteBuffer.allocate(4 + data.length);
+        block.putInt(((last ? 0x80 : 0) | type) << 24 | data.length);
+        block.put(data);
+        return block.array();
+    }
+
+    private static byte[] littleEndian(int value) {
+        return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array();
+    }
+
+    private static byte[] atom(String type, byte[] content) {
+        ByteBuffer atom = ByteBuffer.allocate(8 + content.length);
+        atom.putInt(8 + content.length);
+        atom.put(type.getBytes(StandardCharsets.ISO_8859_1));
+        atom.put(content);
+        return atom.array();
+    }
+
+    private static byte[] dataAtom(int type, byte[] value) {
+        ByteBuffer content = ByteBuffer.allocate(8 + value.length);
+        content.putInt(type);
+        content.putInt(0); // locale
+        content.put(value);
+        return atom("data", content.array());
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+}